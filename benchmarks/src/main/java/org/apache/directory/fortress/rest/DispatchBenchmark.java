@@ -0,0 +1,97 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * A call through {@link FortressServiceImpl}, its delegate and the manager registry, down to a manager answering
+ * from memory ({@link StubAccessMgr}, {@link StubReviewMgr}), so the numbers are those of the Fortress Rest layer.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( 4 )
+public class DispatchBenchmark
+{
+    private FortressServiceImpl service;
+    private FortRequest checkAccessRequest;
+    private FortRequest checkAccessBulkRequest;
+    private FortRequest findUsersRequest;
+
+
+    @Setup
+    public void setUp()
+    {
+        service = new FortressServiceImpl();
+        checkAccessRequest = Payloads.checkAccessRequest();
+
+        checkAccessBulkRequest = Payloads.checkAccessRequest();
+        PermCheckSet checkSet = new PermCheckSet();
+        checkSet.setPermissions( Payloads.permissions( 20 ) );
+        checkAccessBulkRequest.setEntity( checkSet );
+
+        findUsersRequest = new FortRequest();
+        findUsersRequest.setContextId( "HOME" );
+        findUsersRequest.setEntity( new User( "bench-user" ) );
+    }
+
+
+    @Benchmark
+    public FortResponse checkAccess()
+    {
+        return service.checkAccess( checkAccessRequest );
+    }
+
+
+    @Benchmark
+    public FortResponse checkAccessBulk()
+    {
+        return service.checkAccessBulk( checkAccessBulkRequest );
+    }
+
+
+    @Benchmark
+    public FortResponse findUsers()
+    {
+        return service.findUsers( findUsersRequest );
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.lang.reflect.Method;
+import java.security.Principal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageContentsList;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.security.SecurityContext;
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * The per request work of the CXF interceptors: the role check of {@link FortressInterceptor} and the status
+ * mapping of {@link FortressResponseInterceptor}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class InterceptorBenchmark
+{
+    /** Exposes the authorization decision of the interceptor */
+    static class AuthorizingInterceptor extends FortressInterceptor
+    {
+        boolean check( SecurityContext sc, Method method )
+        {
+            return authorize( sc, method );
+        }
+    }
+
+    /** A caller holding only the review role, so the check walks the list of allowed roles */
+    static class ReviewUser implements SecurityContext
+    {
+        private final Principal principal = () -> "bench-review-user";
+
+        @Override
+        public Principal getUserPrincipal()
+        {
+            return principal;
+        }
+
+
+        @Override
+        public boolean isUserInRole( String role )
+        {
+            return "fortress-rest-review-user".equals( role );
+        }
+    }
+
+    private AuthorizingInterceptor authorizingInterceptor;
+    private SecurityContext securityContext;
+    private Method findUsers;
+    private Method checkAccess;
+    private FortressResponseInterceptor responseInterceptor;
+    private Message outMessage;
+
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        authorizingInterceptor = new AuthorizingInterceptor();
+        authorizingInterceptor.setSecuredObject( new FortressServiceImpl() );
+        securityContext = new ReviewUser();
+        findUsers = FortressServiceImpl.class.getMethod( "findUsers", FortRequest.class );
+        checkAccess = FortressServiceImpl.class.getMethod( "checkAccess", FortRequest.class );
+
+        responseInterceptor = new FortressResponseInterceptor();
+        Exchange exchange = new ExchangeImpl();
+        outMessage = new MessageImpl();
+        exchange.setOutMessage( outMessage );
+        outMessage.setExchange( exchange );
+        outMessage.setContent( List.class, new MessageContentsList( Payloads.usersResponse( 1 ) ) );
+    }
+
+
+    @Benchmark
+    public List<String> expectedRoles()
+    {
+        return authorizingInterceptor.getExpectedRoles( findUsers );
+    }
+
+
+    @Benchmark
+    public boolean authorizeAllowed()
+    {
+        return authorizingInterceptor.check( securityContext, findUsers );
+    }
+
+
+    @Benchmark
+    public boolean authorizeDenied()
+    {
+        return authorizingInterceptor.check( securityContext, checkAccess );
+    }
+
+
+    @Benchmark
+    public Message responseStatus()
+    {
+        responseInterceptor.handleMessage( outMessage );
+
+        return outMessage;
+    }
+}
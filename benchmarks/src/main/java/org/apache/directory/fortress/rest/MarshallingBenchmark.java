@@ -0,0 +1,153 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+
+/**
+ * Serialization and deserialization of requests and responses through the {@link JacksonFieldOnlyMapper}, as done
+ * by the JSON, Smile and CBOR providers on every call, and through the {@link TunedJacksonMapper}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class MarshallingBenchmark
+{
+    /** The number of users in the search response */
+    @Param( { "1", "100", "1000" } )
+    public int users;
+
+    /** The wire format */
+    @Param( { "json", "smile", "cbor" } )
+    public String format;
+
+    /** plain: JacksonFieldOnlyMapper, tuned: TunedJacksonMapper, warmed when created */
+    @Param( { "plain", "tuned" } )
+    public String mapper;
+
+    private ObjectReader requestReader;
+    private ObjectReader responseReader;
+    private ObjectWriter requestWriter;
+    private ObjectWriter responseWriter;
+
+    private FortRequest request;
+    private FortResponse response;
+    private byte[] requestJson;
+    private byte[] responseJson;
+
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        JsonFactory factory;
+
+        switch ( format )
+        {
+            case "smile":
+                factory = new SmileFactory();
+                break;
+
+            case "cbor":
+                factory = new CBORFactory();
+                break;
+
+            default:
+                factory = null;
+        }
+
+        if ( "tuned".equals( mapper ) )
+        {
+            TunedJacksonMapper tuned = new TunedJacksonMapper( factory );
+            requestReader = tuned.readerFor( FortRequest.class );
+            responseReader = tuned.readerFor( FortResponse.class );
+            requestWriter = tuned.writer();
+            responseWriter = tuned.writer();
+        }
+        else
+        {
+            ObjectMapper plain = new JacksonFieldOnlyMapper( factory );
+            requestReader = plain.readerFor( FortRequest.class );
+            responseReader = plain.readerFor( FortResponse.class );
+            requestWriter = plain.writer();
+            responseWriter = plain.writer();
+        }
+
+        request = Payloads.checkAccessRequest();
+        response = Payloads.usersResponse( users );
+        response.setSession( Payloads.session( 0 ) );
+        requestJson = requestWriter.writeValueAsBytes( request );
+        responseJson = responseWriter.writeValueAsBytes( response );
+    }
+
+
+    @Benchmark
+    public byte[] serializeRequest() throws Exception
+    {
+        return requestWriter.writeValueAsBytes( request );
+    }
+
+
+    @Benchmark
+    public FortRequest deserializeRequest() throws Exception
+    {
+        return requestReader.readValue( requestJson );
+    }
+
+
+    @Benchmark
+    public byte[] serializeResponse() throws Exception
+    {
+        return responseWriter.writeValueAsBytes( response );
+    }
+
+
+    @Benchmark
+    public FortResponse deserializeResponse() throws Exception
+    {
+        return responseReader.readValue( responseJson );
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+
+
+/**
+ * Builds the entities used by the benchmarks, sized like those of a real directory: users with a dozen roles and
+ * a few properties, sessions carrying them, and permissions granted to several roles.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class Payloads
+{
+    /** The number of roles assigned to each user */
+    static final int ROLES_PER_USER = 12;
+
+    private Payloads()
+    {
+    }
+
+
+    /**
+     * @param i the index of the user
+     * @return a populated user
+     */
+    static User user( int i )
+    {
+        String userId = "bench-user-" + i;
+        User user = new User( userId );
+        user.setCn( "Bench User " + i );
+        user.setSn( "User" + i );
+        user.setOu( "dev" + ( i % 10 ) );
+        user.setDescription( "A user of the benchmark directory" );
+        user.addProperty( "employeeType", "contractor" );
+        user.addProperty( "location", "site" + ( i % 5 ) );
+        List<UserRole> roles = new ArrayList<>();
+
+        for ( int r = 0; r < ROLES_PER_USER; r++ )
+        {
+            roles.add( new UserRole( userId, "bench-role-" + r ) );
+        }
+
+        user.setRoles( roles );
+
+        return user;
+    }
+
+
+    /**
+     * @param i the index of the user
+     * @return a session of that user, with all its roles activated
+     */
+    static Session session( int i )
+    {
+        Session session = new Session();
+        session.setUser( user( i ) );
+
+        return session;
+    }
+
+
+    /**
+     * @param i the index of the permission
+     * @return a permission granted to a few roles
+     */
+    static Permission permission( int i )
+    {
+        Permission perm = new Permission( "bench-obj-" + ( i / 4 ), "op" + ( i % 4 ) );
+        Set<String> roles = new HashSet<>();
+
+        for ( int r = 0; r < 3; r++ )
+        {
+            roles.add( "bench-role-" + ( ( i + r ) % ROLES_PER_USER ) );
+        }
+
+        perm.setRoles( roles );
+
+        return perm;
+    }
+
+
+    /**
+     * @return a checkAccess request
+     */
+    static FortRequest checkAccessRequest()
+    {
+        FortRequest request = new FortRequest();
+        request.setContextId( "HOME" );
+        request.setSession( session( 0 ) );
+        request.setEntity( permission( 0 ) );
+
+        return request;
+    }
+
+
+    /**
+     * @param count the number of users
+     * @return a search response holding that many users
+     */
+    static FortResponse usersResponse( int count )
+    {
+        List<User> users = new ArrayList<>( count );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            users.add( user( i ) );
+        }
+
+        FortResponse response = new FortResponse();
+        response.setErrorCode( GlobalErrIds.NO_ERROR );
+        response.setEntities( users );
+
+        return response;
+    }
+
+
+    /**
+     * @param count the number of permissions
+     * @return the permissions
+     */
+    static List<Permission> permissions( int count )
+    {
+        List<Permission> perms = new ArrayList<>( count );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            perms.add( permission( i ) );
+        }
+
+        return perms;
+    }
+}
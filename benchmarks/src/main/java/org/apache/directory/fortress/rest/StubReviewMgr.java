@@ -0,0 +1,56 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.User;
+
+
+/**
+ * A ReviewMgr answering from memory, so {@link DispatchBenchmark} measures the Fortress Rest layer and not the
+ * directory.  Configured as 'reviewImplementation' in the fortress.properties of the benchmarks.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class StubReviewMgr extends org.apache.directory.fortress.core.impl.ReviewMgrImpl
+{
+    private static final List<User> USERS = new ArrayList<>();
+
+    static
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            USERS.add( Payloads.user( i ) );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<User> findUsers( User user ) throws SecurityException
+    {
+        return new ArrayList<>( USERS );
+    }
+}
@@ -22,7 +22,9 @@ package org.apache.directory.fortress.rest;
 import org.slf4j.Logger;
 
 import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.Manageable;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.FortRequest;
 import org.apache.directory.fortress.core.model.FortResponse;
 
 /**
@@ -61,4 +63,34 @@ abstract class AbstractMgrImpl
 
         return response;
     }
+
+
+    /**
+     * Get a manager for the tenant of the request, carrying the request's session as its admin session.
+     *
+     * @param type The manager interface, e.g. {@code AdminMgr.class}
+     * @param request The request, providing the contextId and the session
+     * @param <T> The manager type
+     * @return The manager, taken from the {@link MgrRegistry}
+     * @throws SecurityException If the manager can't be created
+     */
+    protected <T extends Manageable> T getManager( Class<T> type, FortRequest request ) throws SecurityException
+    {
+        return MgrRegistry.getInstance().getManager( type, request.getContextId(), request.getSession() );
+    }
+
+
+    /**
+     * Get a manager for the given tenant, without any admin session.
+     *
+     * @param type The manager interface, e.g. {@code AccessMgr.class}
+     * @param contextId The tenant
+     * @param <T> The manager type
+     * @return The manager, taken from the {@link MgrRegistry}
+     * @throws SecurityException If the manager can't be created
+     */
+    protected <T extends Manageable> T getManager( Class<T> type, String contextId ) throws SecurityException
+    {
+        return MgrRegistry.getInstance().getManager( type, contextId, null );
+    }
 }
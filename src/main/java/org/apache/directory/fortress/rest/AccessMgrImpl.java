@@ -20,13 +20,16 @@
 package org.apache.directory.fortress.rest;
 
 import org.apache.directory.fortress.core.AccessMgr;
-import org.apache.directory.fortress.core.AccessMgrFactory;
 import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 /**
@@ -45,6 +48,15 @@ class AccessMgrImpl extends AbstractMgrImpl
     /** A flag for untrusted sessions */
     private static final boolean UNTRUSTED = false;
 
+    /** Reuses recent checkAccess decisions, when enabled */
+    private final AuthzDecisionCache decisionCache = AuthzDecisionCache.getInstance();
+
+    /** Answers checkAccess from the permissions materialized for the session, when enabled */
+    private final PermissionSets permissionSets = PermissionSets.getInstance();
+
+    /** Answers authorizedSessionRoles from the in-memory role hierarchy, when enabled */
+    private final RoleHierarchyIndex roleIndex = RoleHierarchyIndex.getInstance();
+
     /**
      * ************************************************************************************************************************************
      * BEGIN ACCESSMGR
@@ -56,7 +68,7 @@ class AccessMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             User inUser = (User) request.getEntity();
             Session outSession = accessMgr.authenticate( inUser.getUserId(), inUser.getPassword() );
             response.setSession( outSession );
@@ -106,7 +118,7 @@ class AccessMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             Group inGroup = (Group) request.getEntity();
             Session outSession = accessMgr.createSession( inGroup );
             response.setSession( outSession );
@@ -133,9 +145,10 @@ class AccessMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             User inUser = (User) request.getEntity();
             Session outSession = accessMgr.createSession( inUser, trusted );
+            permissionSets.load( request.getContextId(), outSession, false, accessMgr::sessionPermissions );
             response.setSession( outSession );
         }
         catch ( SecurityException se )
@@ -159,11 +172,29 @@ class AccessMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
             Permission perm = (Permission)request.getEntity();
             perm.setAdmin( false );
             Session session = request.getSession();
-            boolean result = accessMgr.checkAccess( session, perm );
+            String key = decisionCache.key( request.getContextId(), session, perm );
+            Boolean result = decisionCache.get( key );
+
+            if ( result == null )
+            {
+                AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
+
+                if ( permissionSets.isEnabled() )
+                {
+                    result = permissionSets.checkAccess( request.getContextId(), session, perm,
+                        accessMgr::sessionPermissions );
+                }
+                else
+                {
+                    result = accessMgr.checkAccess( session, perm );
+                }
+
+                decisionCache.put( key, result );
+            }
+
             response.setSession( session );
             response.setAuthorized( result );
         }
@@ -188,12 +219,20 @@ class AccessMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
             Permission perm = (Permission)request.getEntity();
             perm.setAdmin( false );
             User user = (User) request.getEntity2();
             boolean isTrusted = request.getIsFlag();
-            boolean result = accessMgr.checkAccess( user, perm, isTrusted );
+            String key = decisionCache.key( request.getContextId(), user, perm, isTrusted );
+            Boolean result = decisionCache.get( key );
+
+            if ( result == null )
+            {
+                AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
+                result = accessMgr.checkAccess( user, perm, isTrusted );
+                decisionCache.put( key, result );
+            }
+
             response.setAuthorized( result );
         }
         catch ( SecurityException se )
@@ -205,6 +244,69 @@ class AccessMgrImpl extends AbstractMgrImpl
     }
 
 
+    /**
+     * Check a batch of permissions against one session.  The permissions of the session are loaded once, through
+     * {@link AccessMgr#sessionPermissions(Session)}, and every requested permission is then matched in memory on its
+     * objName, opName and objId.
+     *
+     * @param request The {@link FortRequest} carrying the session and a {@link PermCheckSet}
+     * @return a {@link FortResponse} containing the {@link PermCheckSet} with its results filled
+     */
+    /* no qualifier*/ FortResponse checkAccessBulk( FortRequest request )
+    {
+        FortResponse response = createResponse();
+
+        try
+        {
+            PermCheckSet checkSet = (PermCheckSet)request.getEntity();
+            Session session = request.getSession();
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
+            List<Permission> granted = accessMgr.sessionPermissions( session );
+            Set<String> grantedKeys = new HashSet<>();
+
+            for ( Permission perm : granted )
+            {
+                grantedKeys.add( permKey( perm ) );
+            }
+
+            List<Boolean> results = new ArrayList<>( checkSet.getPermissions().size() );
+
+            for ( Permission perm : checkSet.getPermissions() )
+            {
+                results.add( grantedKeys.contains( permKey( perm ) ) );
+            }
+
+            checkSet.setResults( results );
+            response.setSession( session );
+            response.setEntity( checkSet );
+        }
+        catch ( SecurityException se )
+        {
+            createError( response, LOG, se );
+        }
+
+        return response;
+    }
+
+
+    /**
+     * The identity of a permission, objName, opName and objId, ignoring the case as the directory does.
+     *
+     * @param perm The permission
+     * @return The key identifying the permission
+     */
+    static String permKey( Permission perm )
+    {
+        return lower( perm.getObjName() ) + '\u0000' + lower( perm.getOpName() ) + '\u0000' + lower( perm.getObjId() );
+    }
+
+
+    private static String lower( String value )
+    {
+        return value == null ? "" : value.toLowerCase( Locale.ROOT );
+    }
+
+
     /**
      * Perform user ROLE check.
      *
@@ -217,7 +319,7 @@ class AccessMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             Role role = (Role)request.getEntity();
             User user = (User) request.getEntity2();
             boolean isTrusted = request.getIsFlag();
@@ -239,8 +341,9 @@ class AccessMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             Session session = request.getSession();
+            // Not coalesced, Fortress Core validates and changes the session of each call
             List<Permission> perms = accessMgr.sessionPermissions( session );
             response.setSession( session );
             response.setEntities( perms );
@@ -260,7 +363,7 @@ class AccessMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             Session session = request.getSession();
             List<UserRole> roles = accessMgr.sessionRoles( session );
             response.setEntities( roles );
@@ -281,9 +384,27 @@ class AccessMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             Session session = request.getSession();
-            Set<String> roles = accessMgr.authorizedRoles( session );
+            Set<String> roles;
+
+            if ( roleIndex.isEnabled() && ( session != null ) && ( session.getRoles() != null ) )
+            {
+                List<String> activated = new ArrayList<>();
+
+                for ( UserRole uRole : session.getRoles() )
+                {
+                    activated.add( uRole.getName() );
+                }
+
+                ReviewMgr reviewMgr = getManager( ReviewMgr.class, request.getContextId() );
+                roles = roleIndex.withAscendants( request.getContextId(), activated, () -> reviewMgr.findRoles( "" ) );
+            }
+            else
+            {
+                roles = accessMgr.authorizedRoles( session );
+            }
+
             response.setValueSet( roles );
             response.setSession( session );
         }
@@ -302,10 +423,13 @@ class AccessMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             UserRole uRole = (UserRole)request.getEntity();
             Session session = request.getSession();
+            String previous = permissionSets.fingerprint( request.getContextId(), session, false );
             accessMgr.addActiveRole( session, uRole );
+            permissionSets.roleAdded( request.getContextId(), previous, session, uRole.getName(), false,
+                accessMgr::sessionPermissions );
             response.setSession( session );
         }
         catch ( SecurityException se )
@@ -323,10 +447,11 @@ class AccessMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             UserRole uRole = (UserRole)request.getEntity();
             Session session = request.getSession();
             accessMgr.dropActiveRole( session, uRole );
+            permissionSets.load( request.getContextId(), session, false, accessMgr::sessionPermissions );
             response.setSession( session );
         }
         catch ( SecurityException se )
@@ -344,7 +469,7 @@ class AccessMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             Session session = request.getSession();
             String userId = accessMgr.getUserId( session );
             User outUser = new User( userId );
@@ -366,7 +491,7 @@ class AccessMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AccessMgr accessMgr = AccessMgrFactory.createInstance( request.getContextId() );
+            AccessMgr accessMgr = getManager( AccessMgr.class, request.getContextId() );
             Session session = request.getSession();
             User outUser = accessMgr.getUser( session );
             response.setSession( session );
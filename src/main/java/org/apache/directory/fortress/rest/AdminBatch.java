@@ -0,0 +1,234 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.FortResponse;
+
+/**
+ * Carries the operations of a {@link FortressService#adminBatch(org.apache.directory.fortress.core.model.FortRequest)}
+ * call, and their responses.  Each {@link Operation} names an AdminMgr service by its path, e.g. 'userAdd' or
+ * 'roleAsgn', and holds what that service reads from its FortRequest: the entity, and for some services a second
+ * entity, a value or a flag.  The operations are run in order, and
+ * {@link #getResults()} holds the response of each operation that was run, at the same index.
+ * <p>
+ * When {@link #isStopOnError()} is true, the default, the batch stops at the first failing operation, and the results
+ * end with its error.  Otherwise every operation is run and each one reports its own outcome.
+ * <p>
+ * This entity is only exchanged as JSON, it is not known to the JAXB context of Fortress Core.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AdminBatch extends FortEntity
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * One operation of the batch.
+     */
+    public static class Operation implements java.io.Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private String op;
+        private FortEntity entity;
+        private FortEntity entity2;
+        private String value;
+        private boolean isFlag;
+
+
+        /**
+         * default constructor
+         */
+        public Operation()
+        {
+        }
+
+
+        /**
+         * @param op the path of the AdminMgr service, e.g. 'userAdd'
+         * @param entity the entity passed to that service
+         */
+        public Operation( String op, FortEntity entity )
+        {
+            this.op = op;
+            this.entity = entity;
+        }
+
+
+        /**
+         * @return the path of the AdminMgr service, e.g. 'userAdd'
+         */
+        public String getOp()
+        {
+            return op;
+        }
+
+
+        /**
+         * @param op the path of the AdminMgr service, e.g. 'userAdd'
+         */
+        public void setOp( String op )
+        {
+            this.op = op;
+        }
+
+
+        /**
+         * @return the entity passed to the service
+         */
+        public FortEntity getEntity()
+        {
+            return entity;
+        }
+
+
+        /**
+         * @param entity the entity passed to the service
+         */
+        public void setEntity( FortEntity entity )
+        {
+            this.entity = entity;
+        }
+
+
+        /**
+         * @return the second entity passed to the service, e.g. the RoleConstraint of 'roleAddConstraint'
+         */
+        public FortEntity getEntity2()
+        {
+            return entity2;
+        }
+
+
+        /**
+         * @param entity2 the second entity passed to the service
+         */
+        public void setEntity2( FortEntity entity2 )
+        {
+            this.entity2 = entity2;
+        }
+
+
+        /**
+         * @return the value passed to the service, e.g. the role name of 'ssdAddMember'
+         */
+        public String getValue()
+        {
+            return value;
+        }
+
+
+        /**
+         * @param value the value passed to the service
+         */
+        public void setValue( String value )
+        {
+            this.value = value;
+        }
+
+
+        /**
+         * @return the flag passed to the service, e.g. whether 'updatePermAttributeInSet' replaces the attribute
+         */
+        public boolean getIsFlag()
+        {
+            return isFlag;
+        }
+
+
+        /**
+         * @param isFlag the flag passed to the service
+         */
+        public void setIsFlag( boolean isFlag )
+        {
+            this.isFlag = isFlag;
+        }
+    }
+
+    private List<Operation> operations = new ArrayList<>();
+    private boolean stopOnError = true;
+    private List<FortResponse> results;
+
+
+    /**
+     * default constructor
+     */
+    public AdminBatch()
+    {
+    }
+
+
+    /**
+     * @return the operations to run, in order
+     */
+    public List<Operation> getOperations()
+    {
+        return operations;
+    }
+
+
+    /**
+     * @param operations the operations to run, in order
+     */
+    public void setOperations( List<Operation> operations )
+    {
+        this.operations = operations;
+    }
+
+
+    /**
+     * @return true if the batch stops at the first failing operation
+     */
+    public boolean isStopOnError()
+    {
+        return stopOnError;
+    }
+
+
+    /**
+     * @param stopOnError true to stop at the first failing operation, false to run them all
+     */
+    public void setStopOnError( boolean stopOnError )
+    {
+        this.stopOnError = stopOnError;
+    }
+
+
+    /**
+     * @return the response of each operation run, in order, null until run
+     */
+    public List<FortResponse> getResults()
+    {
+        return results;
+    }
+
+
+    /**
+     * @param results the response of each operation run, in order
+     */
+    public void setResults( List<FortResponse> results )
+    {
+        this.results = results;
+    }
+}
@@ -19,9 +19,18 @@
  */
 package org.apache.directory.fortress.rest;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.directory.fortress.core.rest.HttpIds;
 import org.apache.directory.fortress.core.*;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.*;
+import org.apache.directory.fortress.core.util.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +44,40 @@ class AdminMgrImpl extends AbstractMgrImpl
 {
     /** A logger for this class */
     private static final Logger LOG = LoggerFactory.getLogger( AdminMgrImpl.class.getName() );
+
+    /** Property name, read from fortress.properties */
+    static final String BATCH_MAX_SIZE_PROP = "rest.admin.batch.max.size";
+
+    private static final int DEFAULT_BATCH_MAX_SIZE = 100;
+
+    /** The handlers available to adminBatch */
+    private final Map<String, Function<FortRequest, FortResponse>> batchOperations = createBatchOperations();
+
+    /** Kept current with the grants and assignments made here, when enabled */
+    private final PermissionIndex permissionIndex;
+
+    /** The largest number of operations an adminBatch may carry */
+    private final int batchMaxSize;
+
+
+    AdminMgrImpl()
+    {
+        this( PermissionIndex.getInstance(), Config.getInstance().getInt( BATCH_MAX_SIZE_PROP, DEFAULT_BATCH_MAX_SIZE ) );
+    }
+
+
+    /**
+     * Package private for the unit tests, everyone else uses the default constructor.
+     *
+     * @param permissionIndex the index kept current with the grants and assignments made here
+     * @param batchMaxSize the largest number of operations an adminBatch may carry
+     */
+    AdminMgrImpl( PermissionIndex permissionIndex, int batchMaxSize )
+    {
+        this.permissionIndex = permissionIndex;
+        this.batchMaxSize = batchMaxSize;
+    }
+
     
     /* No qualifier */ FortResponse addUser( FortRequest request )
     {
@@ -42,11 +85,18 @@ class AdminMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             User inUser = (User)request.getEntity();
             User outUser = adminMgr.addUser( inUser );
             response.setEntity( outUser );
+
+            if ( inUser.getRoles() != null )
+            {
+                for ( UserRole uRole : inUser.getRoles() )
+                {
+                    permissionIndex.userAssigned( request.getContextId(), uRole.getName(), inUser.getUserId() );
+                }
+            }
         }
         catch ( SecurityException se )
         {
@@ -63,11 +113,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             User inUser = (User)request.getEntity();
             adminMgr.deleteUser( inUser );
             response.setEntity( inUser );
+            permissionIndex.invalidate( request.getContextId() );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -84,11 +135,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             User inUser = (User)request.getEntity();
             adminMgr.disableUser( inUser );
             response.setEntity( inUser );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -105,11 +156,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             User inUser = (User) request.getEntity();
             User outUser = adminMgr.updateUser( inUser );
             response.setEntity( outUser );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -126,8 +177,7 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             User inUser = (User) request.getEntity();
             adminMgr.changePassword( inUser, inUser.getNewPassword() );
             response.setEntity( inUser );
@@ -147,11 +197,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             User inUser = (User) request.getEntity();
             adminMgr.lockUserAccount( inUser );
             response.setEntity( inUser );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -168,8 +218,7 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             User inUser = (User) request.getEntity();
             adminMgr.unlockUserAccount( inUser );
             response.setEntity( inUser );
@@ -189,8 +238,7 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             User inUser = (User) request.getEntity();
             adminMgr.resetPassword( inUser, inUser.getNewPassword() );
             response.setEntity( inUser );
@@ -210,11 +258,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             Role inRole = (Role) request.getEntity();
             Role outRole = adminMgr.addRole( inRole );
             response.setEntity( outRole );
+            RoleHierarchyIndex.getInstance().roleAdded( request.getContextId(), outRole );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -231,11 +280,13 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             Role inRole = (Role) request.getEntity();
             adminMgr.deleteRole( inRole );
             response.setEntity( inRole );
+            RoleHierarchyIndex.getInstance().invalidate( request.getContextId() );
+            permissionIndex.invalidate( request.getContextId() );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -252,11 +303,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             Role inRole = (Role) request.getEntity();
             Role outRole = adminMgr.updateRole( inRole );
             response.setEntity( outRole );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -273,11 +324,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             UserRole inRole = (UserRole) request.getEntity();
             adminMgr.assignUser( inRole );
             response.setEntity( inRole );
+            permissionIndex.userAssigned( request.getContextId(), inRole.getName(), inRole.getUserId() );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -294,11 +346,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             UserRole inRole = (UserRole) request.getEntity();
             adminMgr.deassignUser( inRole );
             response.setEntity( inRole );
+            permissionIndex.userDeassigned( request.getContextId(), inRole.getName(), inRole.getUserId() );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -315,11 +368,16 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             Permission inPerm = (Permission) request.getEntity();
             Permission outPerm = adminMgr.addPermission( inPerm );
             response.setEntity( outPerm );
+
+            if ( !outPerm.isAdmin() )
+            {
+                permissionIndex.permissionAdded( request.getContextId(), outPerm );
+            }
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -336,11 +394,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             Permission inPerm = (Permission) request.getEntity();
             Permission outPerm = adminMgr.updatePermission( inPerm );
             response.setEntity( outPerm );
+            permissionIndex.invalidate( request.getContextId() );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -357,11 +416,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             Permission inPerm = (Permission) request.getEntity();
             adminMgr.deletePermission( inPerm );
             response.setEntity( inPerm );
+            permissionIndex.invalidate( request.getContextId() );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -378,11 +438,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             PermObj inObj = (PermObj) request.getEntity();
             PermObj outObj = adminMgr.addPermObj( inObj );
             response.setEntity( outObj );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -399,11 +459,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             PermObj inObj = (PermObj) request.getEntity();
             PermObj outObj = adminMgr.updatePermObj( inObj );
             response.setEntity( outObj );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -420,11 +480,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             PermObj inObj = (PermObj) request.getEntity();
             adminMgr.deletePermObj( inObj );
             response.setEntity( inObj );
+            permissionIndex.invalidate( request.getContextId() );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -438,20 +499,19 @@ class AdminMgrImpl extends AbstractMgrImpl
     private void grantPerm( FortRequest request ) throws SecurityException
     {
         PermGrant permGrant = (PermGrant) request.getEntity();
-        AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-        adminMgr.setAdmin( request.getSession() );
+        AdminMgr adminMgr = getManager( AdminMgr.class, request );
         Role role = new Role( permGrant.getRoleNm() );
         Permission perm = new Permission( permGrant.getObjName(), permGrant.getOpName(), permGrant.getObjId() );
         perm.setAdmin( false );
         adminMgr.grantPermission( perm, role );
+        permissionIndex.granted( request.getContextId(), perm, role.getName(), null );
     }
 
     
     private void grantAdminPerm( FortRequest request ) throws SecurityException
     {
         PermGrant permGrant = (PermGrant) request.getEntity();
-        DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-        delegatedAdminMgr.setAdmin( request.getSession() );
+        DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
         AdminRole role = new AdminRole( permGrant.getRoleNm() );
         Permission perm = new Permission( permGrant.getObjName(), permGrant.getOpName(), permGrant.getObjId() );
         perm.setAdmin( true );
@@ -462,20 +522,19 @@ class AdminMgrImpl extends AbstractMgrImpl
     private void revokePerm( FortRequest request ) throws SecurityException
     {
         PermGrant permGrant = (PermGrant) request.getEntity();
-        AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-        adminMgr.setAdmin( request.getSession() );
+        AdminMgr adminMgr = getManager( AdminMgr.class, request );
         Role role = new Role( permGrant.getRoleNm() );
         Permission perm = new Permission( permGrant.getObjName(), permGrant.getOpName(), permGrant.getObjId() );
         perm.setAdmin( false );
         adminMgr.revokePermission( perm, role );
+        permissionIndex.revoked( request.getContextId(), perm, role.getName(), null );
     }
 
     
     private void revokeAdminPerm( FortRequest request ) throws SecurityException
     {
         PermGrant permGrant = (PermGrant) request.getEntity();
-        DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-        delegatedAdminMgr.setAdmin( request.getSession() );
+        DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
         AdminRole role = new AdminRole( permGrant.getRoleNm() );
         Permission perm = new Permission( permGrant.getObjName(), permGrant.getOpName(), permGrant.getObjId() );
         perm.setAdmin( true );
@@ -486,20 +545,19 @@ class AdminMgrImpl extends AbstractMgrImpl
     private void grantUserPerm( FortRequest request ) throws SecurityException
     {
         PermGrant permGrant = (PermGrant) request.getEntity();
-        AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-        adminMgr.setAdmin( request.getSession() );
+        AdminMgr adminMgr = getManager( AdminMgr.class, request );
         User user = new User( permGrant.getUserId() );
         Permission perm = new Permission( permGrant.getObjName(), permGrant.getOpName(), permGrant.getObjId() );
         perm.setAdmin( false );
         adminMgr.grantPermission( perm, user );
+        permissionIndex.granted( request.getContextId(), perm, null, user.getUserId() );
     }
 
     
     private void grantAdminUserPerm( FortRequest request ) throws SecurityException
     {
         PermGrant permGrant = (PermGrant) request.getEntity();
-        DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-        delegatedAdminMgr.setAdmin( request.getSession() );
+        DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
         User user = new User( permGrant.getUserId() );
         Permission perm = new Permission( permGrant.getObjName(), permGrant.getOpName(), permGrant.getObjId() );
         perm.setAdmin( true );
@@ -510,20 +568,19 @@ class AdminMgrImpl extends AbstractMgrImpl
     private void revokeUserPerm( FortRequest request ) throws SecurityException
     {
         PermGrant permGrant = (PermGrant) request.getEntity();
-        AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-        adminMgr.setAdmin( request.getSession() );
+        AdminMgr adminMgr = getManager( AdminMgr.class, request );
         User user = new User( permGrant.getUserId() );
         Permission perm = new Permission( permGrant.getObjName(), permGrant.getOpName(), permGrant.getObjId() );
         perm.setAdmin( false );
         adminMgr.revokePermission( perm, user );
+        permissionIndex.revoked( request.getContextId(), perm, null, user.getUserId() );
     }
 
     
     private void revokeAdminUserPerm( FortRequest request ) throws SecurityException
     {
         PermGrant permGrant = (PermGrant) request.getEntity();
-        DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-        delegatedAdminMgr.setAdmin( request.getSession() );
+        DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
         User user = new User( permGrant.getUserId() );
         Permission perm = new Permission( permGrant.getObjName(), permGrant.getOpName(), permGrant.getObjId() );
         perm.setAdmin( true );
@@ -549,6 +606,7 @@ class AdminMgrImpl extends AbstractMgrImpl
             }
             
             response.setEntity(permGrant);
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -576,6 +634,7 @@ class AdminMgrImpl extends AbstractMgrImpl
                 revokePerm( request );
             }
             response.setEntity( permGrant );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -604,6 +663,7 @@ class AdminMgrImpl extends AbstractMgrImpl
             }
             
             response.setEntity( permGrant );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -632,6 +692,7 @@ class AdminMgrImpl extends AbstractMgrImpl
             }
             
             response.setEntity( permGrant );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -648,12 +709,13 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             RoleRelationship relationship = (RoleRelationship) request.getEntity();
             adminMgr.addDescendant(relationship.getParent(), relationship.getChild());
             response.setEntity( relationship );
+            inheritanceAdded( request, relationship );
 
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -670,11 +732,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             RoleRelationship relationship = (RoleRelationship) request.getEntity();
             adminMgr.addAscendant(relationship.getChild(), relationship.getParent());
             response.setEntity( relationship );
+            inheritanceAdded( request, relationship );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -691,11 +754,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             RoleRelationship relationship = (RoleRelationship) request.getEntity();
             adminMgr.addInheritance(relationship.getParent(), relationship.getChild());
             response.setEntity( relationship );
+            inheritanceAdded( request, relationship );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -712,11 +776,13 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             RoleRelationship relationship = (RoleRelationship) request.getEntity();
             adminMgr.deleteInheritance( relationship.getParent(), relationship.getChild() );
             response.setEntity( relationship );
+            RoleHierarchyIndex.getInstance().inheritanceDeleted( request.getContextId(),
+                relationship.getParent().getName(), relationship.getChild().getName() );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -733,11 +799,11 @@ class AdminMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             SDSet outSet = adminMgr.createSsdSet( inSet );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -754,11 +820,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             SDSet outSet = adminMgr.updateSsdSet( inSet );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -775,12 +841,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             Role role = new Role( request.getValue() );
             SDSet outSet = adminMgr.addSsdRoleMember( inSet, role );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -797,12 +863,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             Role role = new Role( request.getValue() );
             SDSet outSet = adminMgr.deleteSsdRoleMember( inSet, role );
             response.setEntity(outSet);
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -819,11 +885,11 @@ class AdminMgrImpl extends AbstractMgrImpl
         
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             SDSet outSet = adminMgr.deleteSsdSet( inSet );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -840,11 +906,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             SDSet outSet = adminMgr.setSsdSetCardinality( inSet, inSet.getCardinality() );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -861,11 +927,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             SDSet outSet = adminMgr.createDsdSet( inSet );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -882,11 +948,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             SDSet outSet = adminMgr.updateDsdSet( inSet );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -903,12 +969,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             Role role = new Role(request.getValue());
             SDSet outSet = adminMgr.addDsdRoleMember( inSet, role );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -925,12 +991,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             Role role = new Role(request.getValue());
             SDSet outSet = adminMgr.deleteDsdRoleMember( inSet, role );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -947,11 +1013,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             SDSet outSet = adminMgr.deleteDsdSet( inSet );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -968,11 +1034,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             SDSet outSet = adminMgr.setDsdSetCardinality( inSet, inSet.getCardinality() );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -989,12 +1055,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             UserRole inRole = (UserRole) request.getEntity();
             RoleConstraint inConstraint = (RoleConstraint) request.getEntity2();
             RoleConstraint outRole = adminMgr.addRoleConstraint( inRole, inConstraint );
             response.setEntity( outRole );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -1011,11 +1077,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             UserRole inRole = (UserRole) request.getEntity();
             RoleConstraint inConstraint = (RoleConstraint) request.getEntity2();
             adminMgr.removeRoleConstraint( inRole, inConstraint );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -1032,11 +1098,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             UserRole inRole = (UserRole) request.getEntity();
             String szConstraintId = request.getValue();
             adminMgr.removeRoleConstraint( inRole, szConstraintId );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -1053,11 +1119,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             Role inRole = (Role) request.getEntity();
             RoleConstraint inConstraint = (RoleConstraint) request.getEntity2();
             adminMgr.enableRoleConstraint( inRole, inConstraint );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -1073,11 +1139,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             Role inRole = (Role) request.getEntity();
             RoleConstraint inConstraint = (RoleConstraint) request.getEntity2();
             adminMgr.disableRoleConstraint( inRole, inConstraint );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -1093,12 +1159,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             PermissionAttribute inAttr = (PermissionAttribute) request.getEntity();
             String attrName = request.getValue();
             PermissionAttribute outAttr = adminMgr.addPermissionAttributeToSet( inAttr, attrName );
             response.setEntity( outAttr );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -1115,12 +1181,12 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             PermissionAttribute inAttr = (PermissionAttribute) request.getEntity();
             String attrName = request.getValue();
             boolean isReplace = request.getIsFlag();
             adminMgr.updatePermissionAttributeInSet( inAttr, attrName, isReplace );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -1137,11 +1203,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             PermissionAttribute inAttr = (PermissionAttribute) request.getEntity();
             String attrName = request.getValue();
             adminMgr.removePermissionAttributeFromSet( inAttr, attrName );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -1157,11 +1223,11 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             PermissionAttributeSet inSet = (PermissionAttributeSet) request.getEntity();
             PermissionAttributeSet outSet = adminMgr.addPermissionAttributeSet( inSet );
             response.setEntity( outSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -1178,10 +1244,10 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         try
         {
-            AdminMgr adminMgr = AdminMgrFactory.createInstance( request.getContextId() );
-            adminMgr.setAdmin( request.getSession() );
+            AdminMgr adminMgr = getManager( AdminMgr.class, request );
             PermissionAttributeSet inSet = (PermissionAttributeSet) request.getEntity();
             adminMgr.deletePermissionAttributeSet( inSet );
+            entityChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -1190,4 +1256,213 @@ class AdminMgrImpl extends AbstractMgrImpl
 
         return response;
     }
+
+
+    /**
+     * Run an ordered list of AdminMgr operations in one request.  Every operation goes through the same handler as its
+     * own service, with the contextId and session of the batch request, so they all share the manager the
+     * {@link MgrRegistry} binds to this thread.
+     *
+     * @param request The {@link FortRequest} carrying an {@link AdminBatch}
+     * @return a {@link FortResponse} containing the {@link AdminBatch} with one result per operation run.  Its error code
+     * is the one of the first failed operation, if any.  A batch carrying more than {@value #BATCH_MAX_SIZE_PROP}
+     * operations is refused with a 400, none of its operations being run.
+     */
+    /* No qualifier */ FortResponse adminBatch( FortRequest request )
+    {
+        FortResponse response = createResponse();
+        AdminBatch batch = (AdminBatch) request.getEntity();
+
+        if ( batch.getOperations().size() > batchMaxSize )
+        {
+            String szError = "adminBatch carries " + batch.getOperations().size() + " operations, more than "
+                + BATCH_MAX_SIZE_PROP + "=" + batchMaxSize;
+            LOG.info( szError );
+            response.setErrorCode( GlobalErrIds.REST_WEB_ERR );
+            response.setErrorMessage( szError );
+            response.setHttpStatus( 400 );
+
+            return response;
+        }
+
+        List<FortResponse> results = new ArrayList<>( batch.getOperations().size() );
+
+        for ( AdminBatch.Operation operation : batch.getOperations() )
+        {
+            FortResponse result = runOperation( request, operation );
+            results.add( result );
+
+            if ( result.getErrorCode() != GlobalErrIds.NO_ERROR )
+            {
+                if ( response.getErrorCode() == GlobalErrIds.NO_ERROR )
+                {
+                    response.setErrorCode( result.getErrorCode() );
+                    response.setErrorMessage( "adminBatch operation " + ( results.size() - 1 ) + " failed: "
+                        + result.getErrorMessage() );
+                }
+
+                if ( batch.isStopOnError() )
+                {
+                    break;
+                }
+            }
+        }
+
+        batch.setResults( results );
+        response.setEntity( batch );
+
+        return response;
+    }
+
+
+    private FortResponse runOperation( FortRequest batchRequest, AdminBatch.Operation operation )
+    {
+        Function<FortRequest, FortResponse> handler = batchOperation( operation.getOp() );
+
+        if ( handler == null )
+        {
+            String szError = "adminBatch unknown operation: " + operation.getOp();
+            LOG.warn( szError );
+            FortResponse response = new FortResponse();
+            response.setErrorCode( GlobalErrIds.REST_NOT_FOUND_ERR );
+            response.setErrorMessage( szError );
+
+            return response;
+        }
+
+        FortRequest request = new FortRequest();
+        request.setContextId( batchRequest.getContextId() );
+        request.setSession( batchRequest.getSession() );
+        request.setEntity( operation.getEntity() );
+        request.setEntity2( operation.getEntity2() );
+        request.setValue( operation.getValue() );
+        request.setIsFlag( operation.getIsFlag() );
+
+        try
+        {
+            return handler.apply( request );
+        }
+        catch ( RuntimeException re )
+        {
+            // e.g. an entity of the wrong type, which must not abort the operations that follow
+            String szError = "adminBatch operation " + operation.getOp() + " caught " + re;
+            LOG.warn( szError );
+            FortResponse response = new FortResponse();
+            response.setErrorCode( GlobalErrIds.REST_WEB_ERR );
+            response.setErrorMessage( szError );
+
+            return response;
+        }
+    }
+
+
+    /**
+     * Package private so the unit tests can replace the handlers.
+     *
+     * @param op The path of the service an operation of the batch is run by, e.g. {@link HttpIds#USER_ADD}
+     * @return The handler of that service, null if it can't be batched
+     */
+    /* No qualifier */ Function<FortRequest, FortResponse> batchOperation( String op )
+    {
+        return batchOperations.get( op );
+    }
+
+
+    /**
+     * The operations accepted by {@link #adminBatch(FortRequest)}, keyed by the path of their own service.
+     */
+    private Map<String, Function<FortRequest, FortResponse>> createBatchOperations()
+    {
+        Map<String, Function<FortRequest, FortResponse>> ops = new HashMap<>();
+        ops.put( HttpIds.USER_ADD, this::addUser );
+        ops.put( HttpIds.USER_DELETE, this::deleteUser );
+        ops.put( HttpIds.USER_DISABLE, this::disableUser );
+        ops.put( HttpIds.USER_UPDATE, this::updateUser );
+        ops.put( HttpIds.USER_CHGPW, this::changePassword );
+        ops.put( HttpIds.USER_LOCK, this::lockUserAccount );
+        ops.put( HttpIds.USER_UNLOCK, this::unlockUserAccount );
+        ops.put( HttpIds.USER_RESET, this::resetPassword );
+        ops.put( HttpIds.ROLE_ADD, this::addRole );
+        ops.put( HttpIds.ROLE_DELETE, this::deleteRole );
+        ops.put( HttpIds.ROLE_UPDATE, this::updateRole );
+        ops.put( HttpIds.ROLE_ASGN, this::assignUser );
+        ops.put( HttpIds.ROLE_DEASGN, this::deassignUser );
+        ops.put( HttpIds.PERM_ADD, this::addPermission );
+        ops.put( HttpIds.PERM_UPDATE, this::updatePermission );
+        ops.put( HttpIds.PERM_DELETE, this::deletePermission );
+        ops.put( HttpIds.OBJ_ADD, this::addPermObj );
+        ops.put( HttpIds.OBJ_UPDATE, this::updatePermObj );
+        ops.put( HttpIds.OBJ_DELETE, this::deletePermObj );
+        ops.put( HttpIds.ROLE_GRANT, r -> grant( r, null ) );
+        ops.put( HttpIds.ROLE_REVOKE, r -> revoke( r, null ) );
+        ops.put( HttpIds.USER_GRANT, r -> grantUser( r, null ) );
+        ops.put( HttpIds.USER_REVOKE, r -> revokeUser( r, null ) );
+        ops.put( HttpIds.ROLE_DESC, this::addDescendant );
+        ops.put( HttpIds.ROLE_ASC, this::addAscendant );
+        ops.put( HttpIds.ROLE_ADDINHERIT, this::addInheritance );
+        ops.put( HttpIds.ROLE_DELINHERIT, this::deleteInheritance );
+        ops.put( HttpIds.SSD_ADD, this::createSsdSet );
+        ops.put( HttpIds.SSD_UPDATE, this::updateSsdSet );
+        ops.put( HttpIds.SSD_ADD_MEMBER, this::addSsdRoleMember );
+        ops.put( HttpIds.SSD_DEL_MEMBER, this::deleteSsdRoleMember );
+        ops.put( HttpIds.SSD_DELETE, this::deleteSsdSet );
+        ops.put( HttpIds.SSD_CARD_UPDATE, this::setSsdSetCardinality );
+        ops.put( HttpIds.DSD_ADD, this::createDsdSet );
+        ops.put( HttpIds.DSD_UPDATE, this::updateDsdSet );
+        ops.put( HttpIds.DSD_ADD_MEMBER, this::addDsdRoleMember );
+        ops.put( HttpIds.DSD_DEL_MEMBER, this::deleteDsdRoleMember );
+        ops.put( HttpIds.DSD_DELETE, this::deleteDsdSet );
+        ops.put( HttpIds.DSD_CARD_UPDATE, this::setDsdSetCardinality );
+        ops.put( HttpIds.ROLE_ADD_CONSTRAINT, this::addRoleConstraint );
+        ops.put( HttpIds.ROLE_DELETE_CONSTRAINT, this::removeRoleConstraint );
+        ops.put( HttpIds.ROLE_DELETE_CONSTRAINT_ID, this::removeRoleConstraintWid );
+        ops.put( HttpIds.ROLE_ENABLE_CONSTRAINT, this::enableRoleConstraint );
+        ops.put( HttpIds.ROLE_DISABLE_CONSTRAINT, this::disableRoleConstraint );
+        ops.put( HttpIds.PERM_ADD_ATTRIBUTE_SET, this::addPermissionAttributeSet );
+        ops.put( HttpIds.PERM_DELETE_ATTRIBUTE_SET, this::deletePermissionAttributeSet );
+        ops.put( HttpIds.PERM_ADD_PERM_ATTRIBUTE_TO_SET, this::addPermissionAttributeToSet );
+        ops.put( HttpIds.PERM_DELETE_PERM_ATTRIBUTE_TO_SET, this::removePermissionAttributeFromSet );
+        ops.put( HttpIds.PERM_UPDATE_PERM_ATTRIBUTE_IN_SET, this::updatePermissionAttributeInSet );
+
+        return Collections.unmodifiableMap( ops );
+    }
+
+
+    /**
+     * Apply a new inheritance relationship to the role hierarchy index of the tenant.
+     *
+     * @param request The request that carried the change
+     * @param relationship The parent and child roles
+     */
+    private void inheritanceAdded( FortRequest request, RoleRelationship relationship )
+    {
+        RoleHierarchyIndex.getInstance().inheritanceAdded( request.getContextId(), relationship.getParent().getName(),
+            relationship.getChild().getName() );
+    }
+
+
+    /**
+     * Called after a successful change that may alter the outcome of an RBAC checkAccess, so the decisions cached
+     * and the permission sets materialized for the tenant, and the ETags issued for its reads, are no longer used.
+     *
+     * @param request The request that carried the change
+     */
+    private void policyChanged( FortRequest request )
+    {
+        AuthzDecisionCache.getInstance().invalidate( request.getContextId() );
+        PermissionSets.getInstance().invalidate( request.getContextId() );
+        entityChanged( request );
+    }
+
+
+    /**
+     * Called after a successful change to a role, permission or object of the tenant, so the ETags issued for their
+     * reads are no longer honored.
+     *
+     * @param request The request that carried the change
+     */
+    private void entityChanged( FortRequest request )
+    {
+        EntityVersions.getInstance().changed( request.getContextId() );
+    }
 }
@@ -0,0 +1,244 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.ws.rs.core.Response;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageContentsList;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admits the service calls through the {@link TenantLimits} of their tenant, then the {@link LaneScheduler}.  The
+ * instance in the pre-invoke phase, which runs once the caller is authorized and the FortRequest is read, rejects a
+ * call over the limits of its tenant with a 429 or 503 FortResponse, then waits for the turn of the call in its lane,
+ * or sheds it with a 503.  The instance in the setup phase of the out and out fault chains gives the tenant permit and
+ * the turn back once the call completed.  A call the {@link AsyncInvokeInterceptor} runs on its pool may still be
+ * running when the response is sent, after a timeout: it holds the permits, see {@link #hold(Exchange)}, which are then
+ * given back when the pool task completes.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AdmissionInterceptor extends AbstractPhaseInterceptor<Message>
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( AdmissionInterceptor.class.getName() );
+
+    /** Exchange key of the permits of an admitted call */
+    private static final String PERMITS = AdmissionInterceptor.class.getName() + ".permits";
+
+    /** The hold on a call that has no permits */
+    private static final Runnable NO_HOLD = () -> { };
+
+    /** The turn and the tenant permit of a call, given back once the response and every hold on them are done */
+    private final class Permits
+    {
+        private final Lane lane;
+        private final String tenant;
+        private final AtomicInteger holders = new AtomicInteger( 1 );
+
+        private Permits( Lane lane, String tenant )
+        {
+            this.lane = lane;
+            this.tenant = tenant;
+        }
+
+        private void done()
+        {
+            if ( holders.decrementAndGet() == 0 )
+            {
+                if ( lane != null )
+                {
+                    scheduler.release( lane );
+                }
+
+                if ( tenant != null )
+                {
+                    tenantLimits.release( tenant );
+                }
+            }
+        }
+    }
+
+    private final LaneScheduler scheduler;
+    private final TenantLimits tenantLimits;
+
+
+    /**
+     * @param phase The CXF phase this instance runs in, pre-invoke or setup
+     */
+    public AdmissionInterceptor( String phase )
+    {
+        this( phase, LaneScheduler.getInstance(), TenantLimits.getInstance() );
+    }
+
+
+    /**
+     * Package private for the unit tests.
+     *
+     * @param phase The CXF phase this instance runs in, pre-invoke or setup
+     * @param scheduler The scheduler of the lanes
+     * @param tenantLimits The limits of the tenants
+     */
+    AdmissionInterceptor( String phase, LaneScheduler scheduler, TenantLimits tenantLimits )
+    {
+        super( phase );
+        this.scheduler = scheduler;
+        this.tenantLimits = tenantLimits;
+
+        if ( Phase.PRE_INVOKE.equals( phase ) )
+        {
+            addAfter( FortressInterceptor.class.getName() );
+            addAfter( MetricsInterceptor.class.getName() );
+        }
+    }
+
+
+    @Override
+    public void handleMessage( Message message ) throws Fault
+    {
+        Exchange exchange = message.getExchange();
+
+        if ( Phase.PRE_INVOKE.equals( getPhase() ) )
+        {
+            String path = MetricsInterceptor.path( exchange );
+            FortRequest request = request( message );
+            String tenant = null;
+
+            if ( request != null )
+            {
+                TenantLimits.Decision decision = tenantLimits.admit( request.getContextId() );
+
+                if ( decision != TenantLimits.Decision.ADMITTED )
+                {
+                    Response.Status status = decision == TenantLimits.Decision.RATE_LIMITED
+                        ? Response.Status.TOO_MANY_REQUESTS : Response.Status.SERVICE_UNAVAILABLE;
+                    reject( exchange, status, "AdmissionInterceptor rejected " + path + ", the tenant "
+                        + MgrRegistry.key( request.getContextId() ) + " is over its "
+                        + ( decision == TenantLimits.Decision.RATE_LIMITED ? "rate" : "concurrency" ) + " limit" );
+
+                    return;
+                }
+
+                tenant = MgrRegistry.key( request.getContextId() );
+            }
+
+            Lane lane = Lane.of( path );
+            Lane admitted = null;
+
+            if ( scheduler.admit( lane ) )
+            {
+                admitted = lane;
+            }
+            else
+            {
+                reject( exchange, Response.Status.SERVICE_UNAVAILABLE, "AdmissionInterceptor shed " + path + ", the "
+                    + lane.getId() + " lane is saturated" );
+            }
+
+            if ( ( admitted != null ) || ( tenant != null ) )
+            {
+                exchange.put( PERMITS, new Permits( admitted, tenant ) );
+            }
+        }
+        else
+        {
+            // Removed, so a call reaching both the fault and the normal out chain gives its permits back once
+            Permits permits = ( Permits ) exchange.remove( PERMITS );
+
+            if ( permits != null )
+            {
+                permits.done();
+            }
+        }
+    }
+
+
+    /**
+     * Keep the permits of a call until the returned action runs, for a call running on another thread that may
+     * outlive its response.
+     *
+     * @param exchange The exchange of the call
+     * @return The action ending this hold, to run once, when the call completed
+     */
+    static Runnable hold( Exchange exchange )
+    {
+        Permits permits = ( Permits ) exchange.get( PERMITS );
+
+        if ( permits == null )
+        {
+            return NO_HOLD;
+        }
+
+        permits.holders.incrementAndGet();
+
+        return permits::done;
+    }
+
+
+    /**
+     * @return the FortRequest of a service call, or null for the services taking none
+     */
+    private static FortRequest request( Message message )
+    {
+        MessageContentsList objs = MessageContentsList.getContentsList( message );
+
+        if ( ( objs != null ) && !objs.isEmpty() && ( objs.get( 0 ) instanceof FortRequest ) )
+        {
+            return ( FortRequest ) objs.get( 0 );
+        }
+
+        return null;
+    }
+
+
+    /**
+     * @param exchange The exchange of the request
+     * @return true if the call was shed, and so must not be run
+     */
+    static boolean isShed( Exchange exchange )
+    {
+        return exchange.get( Response.class ) != null;
+    }
+
+
+    /**
+     * Answer the call with an error FortResponse, the JAX-RS invoker returns it instead of calling the service.
+     */
+    private static void reject( Exchange exchange, Response.Status status, String errMsg )
+    {
+        LOG.info( errMsg );
+        FortResponse response = new FortResponse();
+        response.setErrorCode( GlobalErrIds.REST_WEB_ERR );
+        response.setErrorMessage( errMsg );
+        response.setHttpStatus( status.getStatusCode() );
+        exchange.put( Response.class, Response.status( status ).entity( response ).build() );
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.ServiceInvokerInterceptor;
+import org.apache.cxf.jaxrs.model.OperationResourceInfo;
+import org.apache.cxf.jaxrs.provider.ServerProviderFactory;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Interceptor;
+import org.apache.cxf.phase.InterceptorChain;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the service calls on a bounded pool instead of the container thread.  The request is suspended with a CXF
+ * continuation, which releases the container thread, the call to FortressServiceImpl and the Mgr implementations runs
+ * on the pool, then the continuation is resumed and the response is written by a container thread.  A request waiting
+ * for a pool thread only holds its queue slot, so the number of requests in flight is bounded by the size of the
+ * queue, not by the number of threads.
+ * <p>
+ * The continuation needs the CXFServlet to be declared async-supported in web.xml.  When it is not, or when the queue
+ * is full, the call runs on the container thread as before.  A call still running after the timeout gets a 503, it
+ * keeps its {@link AdmissionInterceptor} permits until it completes on the pool.
+ * <p>
+ * The configuration is read from fortress.properties:
+ * <ul>
+ *   <li>rest.async.enabled: false by default</li>
+ *   <li>rest.async.threads: the number of threads of the pool, 200 by default</li>
+ *   <li>rest.async.queue.size: the number of calls waiting for a thread, 10000 by default</li>
+ *   <li>rest.async.timeout.seconds: how long a request stays suspended, 60 by default</li>
+ * </ul>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AsyncInvokeInterceptor extends AbstractPhaseInterceptor<Message>
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( AsyncInvokeInterceptor.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.async.enabled";
+    static final String THREADS_PROP = "rest.async.threads";
+    static final String QUEUE_SIZE_PROP = "rest.async.queue.size";
+    static final String TIMEOUT_SECONDS_PROP = "rest.async.timeout.seconds";
+
+    private static final int DEFAULT_THREADS = 200;
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_TIMEOUT_SECONDS = 60;
+
+    /** Exchange key of the outcome of the call, {@link #PENDING}, {@link #DONE} or the Throwable it ended with */
+    private static final String OUTCOME = AsyncInvokeInterceptor.class.getName() + ".outcome";
+    private static final Object PENDING = new Object();
+    private static final Object DONE = new Object();
+
+    /** The message of the call running on a pool thread, which is not known to PhaseInterceptorChain */
+    private static final ThreadLocal<Message> INVOKING = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final ExecutorService executor;
+    private final ServiceInvokerInterceptor invoker = new ServiceInvokerInterceptor();
+
+
+    /**
+     * Create the interceptor from the configuration found in fortress.properties.
+     */
+    public AsyncInvokeInterceptor()
+    {
+        this( Config.getInstance().getBoolean( ENABLED_PROP, false ),
+            Config.getInstance().getInt( THREADS_PROP, DEFAULT_THREADS ),
+            Config.getInstance().getInt( QUEUE_SIZE_PROP, DEFAULT_QUEUE_SIZE ),
+            Config.getInstance().getInt( TIMEOUT_SECONDS_PROP, DEFAULT_TIMEOUT_SECONDS ) * 1000L );
+    }
+
+
+    /**
+     * Package private for the unit tests.
+     *
+     * @param enabled if false, every call runs on the container thread
+     * @param threads the number of threads of the pool
+     * @param queueSize the number of calls waiting for a thread
+     * @param timeoutMillis how long a request stays suspended
+     */
+    AsyncInvokeInterceptor( boolean enabled, int threads, int queueSize, long timeoutMillis )
+    {
+        super( Phase.INVOKE );
+        addBefore( ServiceInvokerInterceptor.class.getName() );
+        this.enabled = enabled;
+        this.timeoutMillis = timeoutMillis;
+
+        if ( enabled )
+        {
+            AtomicInteger count = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>( queueSize ), runnable ->
+                {
+                    Thread thread = new Thread( runnable, "fortress-rest-async-" + count.incrementAndGet() );
+                    thread.setDaemon( true );
+
+                    return thread;
+                } );
+            ( ( ThreadPoolExecutor ) executor ).allowCoreThreadTimeOut( true );
+            LOG.info( "AsyncInvokeInterceptor enabled, threads={}, queueSize={}, timeoutMillis={}", threads,
+                queueSize, timeoutMillis );
+        }
+        else
+        {
+            this.executor = null;
+        }
+    }
+
+
+    @Override
+    public void handleMessage( Message message ) throws Fault
+    {
+        Exchange exchange = message.getExchange();
+
+        if ( !enabled || exchange.isOneWay() || AdmissionInterceptor.isShed( exchange ) )
+        {
+            return;
+        }
+
+        // Resumed, the call ran on the pool
+        if ( exchange.containsKey( OUTCOME ) )
+        {
+            resumed( message );
+
+            return;
+        }
+
+        ContinuationProvider provider = message.get( ContinuationProvider.class );
+        Continuation continuation = provider == null ? null : provider.getContinuation();
+
+        if ( continuation == null )
+        {
+            return;
+        }
+
+        synchronized ( continuation )
+        {
+            if ( !continuation.isNew() )
+            {
+                return;
+            }
+
+            exchange.put( OUTCOME, PENDING );
+            Runnable release = AdmissionInterceptor.hold( exchange );
+
+            try
+            {
+                executor.execute( () -> invoke( message, continuation, release ) );
+            }
+            catch ( RejectedExecutionException ree )
+            {
+                LOG.debug( "AsyncInvokeInterceptor queue full, running on the container thread" );
+                exchange.remove( OUTCOME );
+                release.run();
+
+                return;
+            }
+
+            removeServiceInvoker( message.getInterceptorChain() );
+            continuation.suspend( timeoutMillis );
+        }
+    }
+
+
+    /**
+     * Run the call on a pool thread, give back the admission permits it holds, then resume the request.
+     */
+    private void invoke( Message message, Continuation continuation, Runnable release )
+    {
+        Object outcome = DONE;
+        INVOKING.set( message );
+
+        try
+        {
+            invoker.handleMessage( message );
+        }
+        catch ( Throwable t )
+        {
+            outcome = t;
+        }
+        finally
+        {
+            INVOKING.remove();
+            clearThreadLocalProxies( message );
+            release.run();
+        }
+
+        synchronized ( continuation )
+        {
+            message.getExchange().put( OUTCOME, outcome );
+
+            try
+            {
+                continuation.resume();
+            }
+            catch ( IllegalStateException ise )
+            {
+                // The request timed out and was already answered
+                LOG.debug( "AsyncInvokeInterceptor could not resume, caught " + ise );
+            }
+        }
+    }
+
+
+    private static void resumed( Message message )
+    {
+        Object outcome = message.getExchange().get( OUTCOME );
+
+        if ( outcome == PENDING )
+        {
+            LOG.warn( "AsyncInvokeInterceptor timed out on " + MetricsInterceptor.path( message.getExchange() ) );
+            Fault fault = new Fault( new IllegalStateException( "The service call timed out" ) );
+            fault.setStatusCode( 503 );
+            throw fault;
+        }
+        else if ( outcome instanceof Fault )
+        {
+            throw ( Fault ) outcome;
+        }
+        else if ( outcome instanceof Throwable )
+        {
+            throw new Fault( ( Throwable ) outcome );
+        }
+    }
+
+
+    /**
+     * The call now runs on the pool, the invoker of the chain must not run it again on resume.  The chain is a copy
+     * made for this message, the other requests are not affected.
+     */
+    private static void removeServiceInvoker( InterceptorChain chain )
+    {
+        for ( Iterator<Interceptor<? extends Message>> it = chain.iterator(); it.hasNext(); )
+        {
+            Interceptor<? extends Message> interceptor = it.next();
+
+            if ( interceptor instanceof ServiceInvokerInterceptor )
+            {
+                chain.remove( interceptor );
+
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * The JAX-RS contexts injected in FortressServiceImpl are held by the threads that run its calls.
+     */
+    private static void clearThreadLocalProxies( Message message )
+    {
+        OperationResourceInfo ori = message.getExchange().get( OperationResourceInfo.class );
+
+        if ( ori != null )
+        {
+            ori.getClassResourceInfo().clearThreadLocalProxies();
+            ServerProviderFactory.getInstance( message ).clearThreadLocalProxies();
+        }
+    }
+
+
+    /**
+     * @return the message of the request served by this thread, on a container or a pool thread, or null
+     */
+    static Message currentMessage()
+    {
+        Message message = PhaseInterceptorChain.getCurrentMessage();
+
+        return message != null ? message : INVOKING.get();
+    }
+
+
+    /**
+     * Stop the pool, called by Spring when the application stops.
+     */
+    public void destroy()
+    {
+        if ( executor != null )
+        {
+            executor.shutdown();
+        }
+    }
+}
@@ -20,7 +20,6 @@
 package org.apache.directory.fortress.rest;
 
 import org.apache.directory.fortress.core.AuditMgr;
-import org.apache.directory.fortress.core.AuditMgrFactory;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Bind;
@@ -55,8 +54,7 @@ class AuditMgrImpl extends AbstractMgrImpl
         try
         {
             UserAudit inAudit = (UserAudit) request.getEntity();
-            AuditMgr auditMgr = AuditMgrFactory.createInstance( request.getContextId() );
-            auditMgr.setAdmin( request.getSession() );
+            AuditMgr auditMgr = getManager( AuditMgr.class, request );
             List<Bind> outAudit = auditMgr.searchBinds( inAudit );
             response.setEntities( outAudit );
         }
@@ -76,8 +74,7 @@ class AuditMgrImpl extends AbstractMgrImpl
         try
         {
             UserAudit inAudit = (UserAudit)request.getEntity();
-            AuditMgr auditMgr = AuditMgrFactory.createInstance( request.getContextId() );
-            auditMgr.setAdmin( request.getSession() );
+            AuditMgr auditMgr = getManager( AuditMgr.class, request );
             List<AuthZ> outAudit = auditMgr.getUserAuthZs( inAudit );
             response.setEntities( outAudit );
         }
@@ -97,8 +94,7 @@ class AuditMgrImpl extends AbstractMgrImpl
         try
         {
             UserAudit inAudit = (UserAudit)request.getEntity();
-            AuditMgr auditMgr = AuditMgrFactory.createInstance( request.getContextId() );
-            auditMgr.setAdmin( request.getSession() );
+            AuditMgr auditMgr = getManager( AuditMgr.class, request );
             List<AuthZ> outAudit = auditMgr.searchAuthZs( inAudit );
             response.setEntities( outAudit );
         }
@@ -118,8 +114,7 @@ class AuditMgrImpl extends AbstractMgrImpl
         try
         {
             UserAudit inAudit = (UserAudit)request.getEntity();
-            AuditMgr auditMgr = AuditMgrFactory.createInstance( request.getContextId() );
-            auditMgr.setAdmin( request.getSession() );
+            AuditMgr auditMgr = getManager( AuditMgr.class, request );
             List<Mod> outAudit = auditMgr.searchUserSessions( inAudit );
             response.setEntities( outAudit );
         }
@@ -139,8 +134,7 @@ class AuditMgrImpl extends AbstractMgrImpl
         try
         {
             UserAudit inAudit = (UserAudit)request.getEntity();
-            AuditMgr auditMgr = AuditMgrFactory.createInstance( request.getContextId() );
-            auditMgr.setAdmin( request.getSession() );
+            AuditMgr auditMgr = getManager( AuditMgr.class, request );
             List<Mod> outAudit = auditMgr.searchAdminMods( inAudit );
             response.setEntities( outAudit );
         }
@@ -160,8 +154,7 @@ class AuditMgrImpl extends AbstractMgrImpl
         try
         {
             UserAudit inAudit = (UserAudit)request.getEntity();
-            AuditMgr auditMgr = AuditMgrFactory.createInstance( request.getContextId() );
-            auditMgr.setAdmin( request.getSession() );
+            AuditMgr auditMgr = getManager( AuditMgr.class, request );
             List<AuthZ> outAudit = auditMgr.searchInvalidUsers( inAudit );
             response.setEntities( outAudit );
         }
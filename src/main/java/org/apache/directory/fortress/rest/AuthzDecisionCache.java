@@ -0,0 +1,275 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Caches the result of the RBAC checkAccess calls, so a repeated (user, active roles, objName, opName, objId) tuple
+ * does not go back to the directory until its entry expires.  The key is a SHA-256 digest of that tuple, so it stays
+ * compact whatever the number of roles and cannot collide in practice.
+ * <p>
+ * Every tenant carries a generation number which is part of the key.  {@link #invalidate(String)} bumps it, which
+ * makes all the decisions cached for that tenant unreachable at once; AdminMgrImpl calls it after every successful
+ * policy change.  The invalidation is local to this server, on a cluster the TTL bounds how long another node may
+ * serve a stale decision.
+ * <p>
+ * The cache is disabled unless 'rest.authz.cache.enabled' is set to true.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class AuthzDecisionCache
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( AuthzDecisionCache.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.authz.cache.enabled";
+    static final String MAX_SIZE_PROP = "rest.authz.cache.max.size";
+    static final String TTL_SECONDS_PROP = "rest.authz.cache.ttl.seconds";
+
+    private static final int DEFAULT_MAX_SIZE = 100000;
+    private static final int DEFAULT_TTL_SECONDS = 30;
+
+    /** Separates the fields of the digested tuple, it can't appear in a role, object or operation name */
+    private static final char SEP = '\u0000';
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final AuthzDecisionCache INSTANCE = new AuthzDecisionCache(
+            Config.getInstance().getBoolean( ENABLED_PROP, false ),
+            Config.getInstance().getInt( MAX_SIZE_PROP, DEFAULT_MAX_SIZE ),
+            Config.getInstance().getInt( TTL_SECONDS_PROP, DEFAULT_TTL_SECONDS ) * 1000L );
+    }
+
+    private final boolean enabled;
+    private final ExpiringCache<String, Boolean> decisions;
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.
+     *
+     * @param enabled if false, nothing is ever cached
+     * @param maxSize the maximum number of cached decisions
+     * @param ttlMillis how long a decision is reused
+     */
+    AuthzDecisionCache( boolean enabled, int maxSize, long ttlMillis )
+    {
+        this.enabled = enabled;
+        this.decisions = new ExpiringCache<>( "AuthzDecisions", maxSize, ttlMillis );
+
+        if ( enabled )
+        {
+            LOG.info( "AuthzDecisionCache enabled, maxSize={}, ttlMillis={}", maxSize, ttlMillis );
+            decisions.registerMBean();
+        }
+    }
+
+
+    /**
+     * @return the cache used by AccessMgrImpl
+     */
+    static AuthzDecisionCache getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * @return true if decisions are cached
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * The key of a checkAccess decision made against an existing session.
+     *
+     * @param contextId the tenant
+     * @param session the RBAC session, only its user and activated roles are used
+     * @param perm the permission checked
+     * @return the key, or null if the session does not allow caching
+     */
+    String key( String contextId, Session session, Permission perm )
+    {
+        if ( !enabled || session == null || perm == null )
+        {
+            return null;
+        }
+
+        return digest( contextId, "S", session.getUserId(), session.getRoles(), perm );
+    }
+
+
+    /**
+     * The key of a createSessionCheckAccess decision.  Only trusted calls are cached, an untrusted one must always
+     * have its password verified.
+     *
+     * @param contextId the tenant
+     * @param user the user, only its userId and the requested roles are used
+     * @param perm the permission checked
+     * @param isTrusted whether the call skips the password check
+     * @return the key, or null if this call can't be cached
+     */
+    String key( String contextId, User user, Permission perm, boolean isTrusted )
+    {
+        if ( !enabled || !isTrusted || user == null || perm == null )
+        {
+            return null;
+        }
+
+        return digest( contextId, "U", user.getUserId(), user.getRoles(), perm );
+    }
+
+
+    /**
+     * @param key a key built by one of the key methods, may be null
+     * @return the cached decision, or null
+     */
+    Boolean get( String key )
+    {
+        return key == null ? null : decisions.get( key );
+    }
+
+
+    /**
+     * @param key a key built by one of the key methods, nothing is stored if null
+     * @param authorized the decision
+     */
+    void put( String key, boolean authorized )
+    {
+        if ( key != null )
+        {
+            decisions.put( key, authorized );
+        }
+    }
+
+
+    /**
+     * Forget every decision made for a tenant.  Called after a change to users, roles, permissions or grants.
+     *
+     * @param contextId the tenant whose policy changed
+     */
+    void invalidate( String contextId )
+    {
+        if ( enabled )
+        {
+            generation( contextId ).incrementAndGet();
+        }
+    }
+
+
+    /**
+     * @return the statistics of the underlying cache
+     */
+    ExpiringCacheMBean getStats()
+    {
+        return decisions;
+    }
+
+
+    private AtomicLong generation( String contextId )
+    {
+        return generations.computeIfAbsent( MgrRegistry.key( contextId ), k -> new AtomicLong() );
+    }
+
+
+    private String digest( String contextId, String kind, String userId, List<UserRole> roles, Permission perm )
+    {
+        List<String> roleNames = new ArrayList<>();
+
+        if ( roles != null )
+        {
+            for ( UserRole role : roles )
+            {
+                roleNames.add( lower( role.getName() ) );
+            }
+
+            Collections.sort( roleNames );
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append( MgrRegistry.key( contextId ) ).append( SEP );
+        sb.append( generation( contextId ).get() ).append( SEP );
+        sb.append( kind ).append( SEP );
+        sb.append( lower( userId ) ).append( SEP );
+
+        for ( String roleName : roleNames )
+        {
+            sb.append( roleName ).append( SEP );
+        }
+
+        sb.append( SEP );
+        sb.append( lower( perm.getObjName() ) ).append( SEP );
+        sb.append( lower( perm.getOpName() ) ).append( SEP );
+        sb.append( lower( perm.getObjId() ) );
+
+        return sha256( sb.toString() );
+    }
+
+
+    private static String lower( String value )
+    {
+        return value == null ? "" : value.toLowerCase( Locale.ROOT );
+    }
+
+
+    /**
+     * @param value the text to digest
+     * @return the base64 encoded SHA-256 digest of the UTF-8 bytes of value
+     */
+    static String sha256( String value )
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance( "SHA-256" );
+
+            return Base64.getEncoder().encodeToString( md.digest( value.getBytes( StandardCharsets.UTF_8 ) ) );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // Every JRE must support SHA-256
+            throw new IllegalStateException( e );
+        }
+    }
+}
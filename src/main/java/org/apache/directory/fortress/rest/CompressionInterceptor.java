@@ -0,0 +1,147 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.transport.common.gzip.GZIPOutInterceptor;
+import org.apache.directory.fortress.core.rest.HttpIds;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compresses the responses of the services returning large bodies, the searches of ReviewMgr and AuditMgr.  The
+ * encoding is negotiated with the Accept-Encoding header of the request, and a body smaller than the threshold is sent
+ * as is, so the small replies, like checkAccess, never pay for the compression.
+ * <p>
+ * The configuration is read from fortress.properties:
+ * <ul>
+ *   <li>rest.compression.enabled: false by default</li>
+ *   <li>rest.compression.threshold.bytes: the smallest body compressed, 8192 by default</li>
+ *   <li>rest.compression.paths: the comma separated path templates of the services compressed, as shown on the
+ *   metrics page, the search services by default</li>
+ * </ul>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CompressionInterceptor extends GZIPOutInterceptor
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( CompressionInterceptor.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.compression.enabled";
+    static final String THRESHOLD_PROP = "rest.compression.threshold.bytes";
+    static final String PATHS_PROP = "rest.compression.paths";
+
+    private static final int DEFAULT_THRESHOLD = 8192;
+
+    /** The services compressed when rest.compression.paths is not set */
+    static final Set<String> DEFAULT_PATHS = Collections.unmodifiableSet( new HashSet<>( Arrays.asList(
+        HttpIds.USER_SEARCH, HttpIds.USER_ASGNED, HttpIds.ROLE_SEARCH, HttpIds.PERM_SEARCH, HttpIds.PERM_SEARCH_ANY,
+        HttpIds.OBJ_SEARCH, HttpIds.AUDIT_BINDS, HttpIds.AUDIT_UAUTHZS, HttpIds.AUDIT_AUTHZS, HttpIds.AUDIT_SESSIONS,
+        HttpIds.AUDIT_MODS, HttpIds.AUDIT_INVLD, RestIds.STREAM + "/{service}" ) ) );
+
+    private final boolean enabled;
+    private final Set<String> paths;
+
+
+    /**
+     * Create the interceptor from the configuration found in fortress.properties.
+     */
+    public CompressionInterceptor()
+    {
+        this( Config.getInstance().getBoolean( ENABLED_PROP, false ),
+            Config.getInstance().getInt( THRESHOLD_PROP, DEFAULT_THRESHOLD ),
+            parsePaths( Config.getInstance().getProperty( PATHS_PROP ) ) );
+    }
+
+
+    /**
+     * Package private for the unit tests.
+     *
+     * @param enabled if false, nothing is compressed
+     * @param threshold the smallest body compressed, in bytes
+     * @param paths the path templates of the services compressed
+     */
+    CompressionInterceptor( boolean enabled, int threshold, Set<String> paths )
+    {
+        super( threshold );
+        this.enabled = enabled;
+        this.paths = paths;
+
+        if ( enabled )
+        {
+            LOG.info( "CompressionInterceptor enabled, threshold={}, paths={}", threshold, paths );
+        }
+    }
+
+
+    @Override
+    public void handleMessage( Message message ) throws Fault
+    {
+        if ( isCompressed( MetricsInterceptor.path( message.getExchange() ) ) )
+        {
+            super.handleMessage( message );
+        }
+    }
+
+
+    /**
+     * @param path the path template of a service
+     * @return true if the responses of this service may be compressed
+     */
+    boolean isCompressed( String path )
+    {
+        return enabled && paths.contains( path );
+    }
+
+
+    /**
+     * @param value a comma separated list of path templates, may be null
+     * @return the path templates, or the default ones if value is empty
+     */
+    static Set<String> parsePaths( String value )
+    {
+        if ( StringUtils.isBlank( value ) )
+        {
+            return DEFAULT_PATHS;
+        }
+
+        Set<String> paths = new HashSet<>();
+
+        for ( String path : value.split( "," ) )
+        {
+            if ( StringUtils.isNotBlank( path ) )
+            {
+                paths.add( StringUtils.strip( path.trim(), "/" ) );
+            }
+        }
+
+        return Collections.unmodifiableSet( paths );
+    }
+}
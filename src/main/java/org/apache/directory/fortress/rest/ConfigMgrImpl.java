@@ -57,6 +57,7 @@ class ConfigMgrImpl extends AbstractMgrImpl
             {
                 response.setEntity( outCfg );
             }
+            EntityVersions.getInstance().configChanged();
         }
         catch ( SecurityException se )
         {
@@ -84,6 +85,7 @@ class ConfigMgrImpl extends AbstractMgrImpl
             {
                 response.setEntity( outCfg );
             }
+            EntityVersions.getInstance().configChanged();
         }
         catch ( SecurityException se )
         {
@@ -116,6 +118,7 @@ class ConfigMgrImpl extends AbstractMgrImpl
                 Properties inProperties = RestUtils.getProperties( (Props)request.getEntity() );
                 configMgr.delete( request.getValue(), inProperties );
             }
+            EntityVersions.getInstance().configChanged();
         }
         catch ( SecurityException se )
         {
@@ -20,7 +20,6 @@
 package org.apache.directory.fortress.rest;
 
 import org.apache.directory.fortress.core.DelAccessMgr;
-import org.apache.directory.fortress.core.DelAccessMgrFactory;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.RolePerm;
 import org.apache.directory.fortress.core.model.UserAdminRole;
@@ -46,6 +45,9 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
     /** A logger for this class */
     private static final Logger LOG = LoggerFactory.getLogger( DelegatedAccessMgrImpl.class.getName() );
 
+    /** Answers checkAdminAccess from the administrative permissions materialized for the session, when enabled */
+    private final PermissionSets permissionSets = PermissionSets.getInstance();
+
     /**
      * ************************************************************************************************************************************
      * BEGIN DELEGATEDACCESSMGR
@@ -60,7 +62,7 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
         {
             UserRole uRole = (UserRole) request.getEntity();
             Session session = request.getSession();
-            DelAccessMgr accessMgr = DelAccessMgrFactory.createInstance( request.getContextId() );
+            DelAccessMgr accessMgr = getManager( DelAccessMgr.class, request.getContextId() );
             boolean result = accessMgr.canAssign( session, new User( uRole.getUserId() ), new Role( uRole.getName() ) );
             response.setSession( session );
             response.setAuthorized( result );
@@ -82,7 +84,7 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
         {
             UserRole uRole = (UserRole) request.getEntity();
             Session session = request.getSession();
-            DelAccessMgr accessMgr = DelAccessMgrFactory.createInstance( request.getContextId() );
+            DelAccessMgr accessMgr = getManager( DelAccessMgr.class, request.getContextId() );
             boolean result = accessMgr.canDeassign( session, new User( uRole.getUserId() ), new Role( uRole.getName() ) );
             response.setSession( session );
             response.setAuthorized( result );
@@ -104,7 +106,7 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
         {
             RolePerm context = (RolePerm) request.getEntity();
             Session session = request.getSession();
-            DelAccessMgr accessMgr = DelAccessMgrFactory.createInstance( request.getContextId() );
+            DelAccessMgr accessMgr = getManager( DelAccessMgr.class, request.getContextId() );
             boolean result = accessMgr.canGrant( session, new Role( context.getRole().getName() ), context.getPerm() );
             response.setSession( session );
             response.setAuthorized( result );
@@ -126,7 +128,7 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
         {
             RolePerm context = (RolePerm) request.getEntity();
             Session session = request.getSession();
-            DelAccessMgr accessMgr = DelAccessMgrFactory.createInstance( request.getContextId() );
+            DelAccessMgr accessMgr = getManager( DelAccessMgr.class, request.getContextId() );
             boolean result = accessMgr.canRevoke( session, new Role( context.getRole().getName() ), context.getPerm() );
             response.setSession( session );
             response.setAuthorized( result );
@@ -147,9 +149,20 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
         {
             Permission perm = (Permission) request.getEntity();
             Session session = request.getSession();
-            DelAccessMgr accessMgr = DelAccessMgrFactory.createInstance( request.getContextId() );
+            DelAccessMgr accessMgr = getManager( DelAccessMgr.class, request.getContextId() );
             perm.setAdmin( true );
-            boolean result = accessMgr.checkAccess( session, perm );
+            boolean result;
+
+            if ( permissionSets.isEnabled() )
+            {
+                result = permissionSets.checkAccess( request.getContextId(), session, perm,
+                    accessMgr::sessionPermissions );
+            }
+            else
+            {
+                result = accessMgr.checkAccess( session, perm );
+            }
+
             response.setSession( session );
             response.setAuthorized( result );
         }
@@ -170,8 +183,11 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
         {
             UserAdminRole uAdminRole = (UserAdminRole) request.getEntity();
             Session session = request.getSession();
-            DelAccessMgr accessMgr = DelAccessMgrFactory.createInstance( request.getContextId() );
+            DelAccessMgr accessMgr = getManager( DelAccessMgr.class, request.getContextId() );
+            String previous = permissionSets.fingerprint( request.getContextId(), session, true );
             accessMgr.addActiveRole( session, uAdminRole );
+            permissionSets.roleAdded( request.getContextId(), previous, session, uAdminRole.getName(), true,
+                accessMgr::sessionPermissions );
             response.setSession( session );
         }
         catch ( SecurityException se )
@@ -191,8 +207,9 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
         {
             UserAdminRole uAdminRole = (UserAdminRole) request.getEntity();
             Session session = request.getSession();
-            DelAccessMgr accessMgr = DelAccessMgrFactory.createInstance( request.getContextId() );
+            DelAccessMgr accessMgr = getManager( DelAccessMgr.class, request.getContextId() );
             accessMgr.dropActiveRole( session, uAdminRole );
+            permissionSets.load( request.getContextId(), session, true, accessMgr::sessionPermissions );
             response.setSession( session );
         }
         catch ( SecurityException se )
@@ -211,7 +228,7 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
         try
         {
             Session session = request.getSession();
-            DelAccessMgr accessMgr = DelAccessMgrFactory.createInstance( request.getContextId() );
+            DelAccessMgr accessMgr = getManager( DelAccessMgr.class, request.getContextId() );
             List<UserAdminRole> roles = accessMgr.sessionAdminRoles( session );
             response.setEntities( roles );
         }
@@ -230,7 +247,7 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
 
         try
         {
-            DelAccessMgr accessMgr = DelAccessMgrFactory.createInstance( request.getContextId() );
+            DelAccessMgr accessMgr = getManager( DelAccessMgr.class, request.getContextId() );
             Session session = request.getSession();
             List<Permission> perms = accessMgr.sessionPermissions( session );
             response.setSession( session );
@@ -251,7 +268,7 @@ class DelegatedAccessMgrImpl extends AbstractMgrImpl
 
         try
         {
-            DelAccessMgr accessMgr = DelAccessMgrFactory.createInstance( request.getContextId() );
+            DelAccessMgr accessMgr = getManager( DelAccessMgr.class, request.getContextId() );
             Session session = request.getSession();
             Set<String> roles = accessMgr.authorizedAdminRoles( session );
             response.setValueSet( roles );
@@ -20,7 +20,6 @@
 package org.apache.directory.fortress.rest;
 
 import org.apache.directory.fortress.core.DelAdminMgr;
-import org.apache.directory.fortress.core.DelAdminMgrFactory;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.model.AdminRoleRelationship;
@@ -56,8 +55,7 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             AdminRole inRole = (AdminRole) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             AdminRole retRole = delegatedAdminMgr.addRole( inRole );
             response.setEntity(retRole);
         }
@@ -79,10 +77,10 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             AdminRole inRole = (AdminRole) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.deleteRole( inRole );
             response.setEntity(inRole);
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -100,10 +98,10 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             AdminRole inRole = (AdminRole) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             AdminRole retRole = delegatedAdminMgr.updateRole( inRole );
             response.setEntity(retRole);
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -123,10 +121,10 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             UserAdminRole inRole = (UserAdminRole) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.assignUser( inRole );
             response.setEntity(inRole);
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -144,10 +142,10 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             UserAdminRole inRole = (UserAdminRole) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.deassignUser( inRole );
             response.setEntity(inRole);
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -165,10 +163,10 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             AdminRoleRelationship relationship = (AdminRoleRelationship) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.addDescendant( relationship.getParent(), relationship.getChild() );
             response.setEntity( relationship );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -186,10 +184,10 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             AdminRoleRelationship relationship = (AdminRoleRelationship) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.addAscendant( relationship.getChild(), relationship.getParent() );
             response.setEntity( relationship );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -207,10 +205,10 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             AdminRoleRelationship relationship = (AdminRoleRelationship) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.addInheritance( relationship.getParent(), relationship.getChild() );
             response.setEntity( relationship );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -228,10 +226,10 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             AdminRoleRelationship relationship = (AdminRoleRelationship) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.deleteInheritance( relationship.getParent(), relationship.getChild() );
             response.setEntity( relationship );
+            policyChanged( request );
         }
         catch ( SecurityException se )
         {
@@ -249,8 +247,7 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             OrgUnit inOrg = (OrgUnit) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             OrgUnit retOrg = delegatedAdminMgr.add( inOrg );
             response.setEntity(retOrg);
         }
@@ -270,8 +267,7 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             OrgUnit inOrg = (OrgUnit) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             OrgUnit retOrg = delegatedAdminMgr.update( inOrg );
             response.setEntity(retOrg);
         }
@@ -291,8 +287,7 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             OrgUnit inOrg = (OrgUnit) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             OrgUnit retOrg = delegatedAdminMgr.delete( inOrg );
             response.setEntity(retOrg);
         }
@@ -312,8 +307,7 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             OrgUnitRelationship relationship = (OrgUnitRelationship) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.addDescendant( relationship.getParent(), relationship.getChild() );
             response.setEntity( relationship );
         }
@@ -333,8 +327,7 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             OrgUnitRelationship relationship = (OrgUnitRelationship) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.addAscendant( relationship.getChild(), relationship.getParent() );
             response.setEntity( relationship );
         }
@@ -354,8 +347,7 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             OrgUnitRelationship relationship = (OrgUnitRelationship) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.addInheritance(relationship.getParent(), relationship.getChild());
             response.setEntity( relationship );
         }
@@ -375,8 +367,7 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         try
         {
             OrgUnitRelationship relationship = (OrgUnitRelationship) request.getEntity();
-            DelAdminMgr delegatedAdminMgr = DelAdminMgrFactory.createInstance( request.getContextId() );
-            delegatedAdminMgr.setAdmin( request.getSession() );
+            DelAdminMgr delegatedAdminMgr = getManager( DelAdminMgr.class, request );
             delegatedAdminMgr.deleteInheritance( relationship.getParent(), relationship.getChild() );
             response.setEntity( relationship );
         }
@@ -387,4 +378,17 @@ class DelegatedAdminMgrImpl extends AbstractMgrImpl
         
         return response;
     }
+
+
+    /**
+     * Called after a successful change that may alter the outcome of an administrative checkAccess, so the permission
+     * sets materialized for the tenant and the ETags issued for its reads are no longer used.
+     *
+     * @param request The request that carried the change
+     */
+    private void policyChanged( FortRequest request )
+    {
+        PermissionSets.getInstance().invalidate( request.getContextId() );
+        EntityVersions.getInstance().changed( request.getContextId() );
+    }
 }
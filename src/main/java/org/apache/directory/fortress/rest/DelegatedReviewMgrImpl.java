@@ -20,7 +20,6 @@
 package org.apache.directory.fortress.rest;
 
 import org.apache.directory.fortress.core.DelReviewMgr;
-import org.apache.directory.fortress.core.DelReviewMgrFactory;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.model.OrgUnit;
@@ -55,7 +54,7 @@ class DelegatedReviewMgrImpl extends AbstractMgrImpl
         try
         {
             AdminRole inRole = (AdminRole) request.getEntity();
-            DelReviewMgr delegatedReviewMgr = DelReviewMgrFactory.createInstance( request.getContextId() );
+            DelReviewMgr delegatedReviewMgr = getManager( DelReviewMgr.class, request.getContextId() );
             AdminRole outRole = delegatedReviewMgr.readRole( inRole );
             response.setEntity( outRole );
         }
@@ -75,8 +74,7 @@ class DelegatedReviewMgrImpl extends AbstractMgrImpl
         try
         {
             String searchVal = request.getValue();
-            DelReviewMgr delegatedReviewMgr = DelReviewMgrFactory.createInstance( request.getContextId() );
-            delegatedReviewMgr.setAdmin( request.getSession() );
+            DelReviewMgr delegatedReviewMgr = getManager( DelReviewMgr.class, request );
             List<AdminRole> outRoles = delegatedReviewMgr.findRoles( searchVal );
             response.setEntities( outRoles );
         }
@@ -96,8 +94,7 @@ class DelegatedReviewMgrImpl extends AbstractMgrImpl
         try
         {
             User inUser = (User)request.getEntity();
-            DelReviewMgr delegatedReviewMgr = DelReviewMgrFactory.createInstance( request.getContextId() );
-            delegatedReviewMgr.setAdmin( request.getSession() );
+            DelReviewMgr delegatedReviewMgr = getManager( DelReviewMgr.class, request );
             List<UserAdminRole> uRoles = delegatedReviewMgr.assignedRoles( inUser );
             response.setEntities( uRoles );
         }
@@ -117,8 +114,7 @@ class DelegatedReviewMgrImpl extends AbstractMgrImpl
         try
         {
             AdminRole inRole = (AdminRole) request.getEntity();
-            DelReviewMgr delegatedReviewMgr = DelReviewMgrFactory.createInstance( request.getContextId() );
-            delegatedReviewMgr.setAdmin( request.getSession() );
+            DelReviewMgr delegatedReviewMgr = getManager( DelReviewMgr.class, request );
             List<User> users = delegatedReviewMgr.assignedUsers( inRole );
             response.setEntities( users );
         }
@@ -138,8 +134,7 @@ class DelegatedReviewMgrImpl extends AbstractMgrImpl
         try
         {
             OrgUnit inOrg = (OrgUnit) request.getEntity();
-            DelReviewMgr delegatedReviewMgr = DelReviewMgrFactory.createInstance( request.getContextId() );
-            delegatedReviewMgr.setAdmin( request.getSession() );
+            DelReviewMgr delegatedReviewMgr = getManager( DelReviewMgr.class, request );
             OrgUnit returnOrg = delegatedReviewMgr.read( inOrg );
             response.setEntity( returnOrg );
         }
@@ -159,8 +154,7 @@ class DelegatedReviewMgrImpl extends AbstractMgrImpl
         try
         {
             OrgUnit inOrg = (OrgUnit) request.getEntity();
-            DelReviewMgr delegatedReviewMgr = DelReviewMgrFactory.createInstance( request.getContextId() );
-            delegatedReviewMgr.setAdmin( request.getSession() );
+            DelReviewMgr delegatedReviewMgr = getManager( DelReviewMgr.class, request );
             List<OrgUnit> orgs = delegatedReviewMgr.search( inOrg.getType(), inOrg.getName() );
             response.setEntities( orgs );
         }
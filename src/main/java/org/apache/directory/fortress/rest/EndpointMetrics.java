@@ -0,0 +1,341 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The latency and error metrics of one Fortress Rest service, fed by the {@link MetricsInterceptor}.  Each request is
+ * recorded in four HDR histograms: the whole request, the time in SecUtils.initializeSession, the time in the
+ * *MgrImpl call, and the time spent marshalling the response.  Error codes taken from the FortResponse are counted.
+ * <p>
+ * Every service gets an MBean, {@code org.apache.directory.fortress.rest:type=Endpoint,name=<path>}, and
+ * {@link #scrape()} renders all of them in the Prometheus text format.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class EndpointMetrics implements EndpointMetricsMBean
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( EndpointMetrics.class.getName() );
+
+    /** The error code recorded for a request that ended with a fault instead of a FortResponse */
+    static final int FAULT = -1;
+
+    /** Longer times are recorded as this value, in microseconds */
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros( 10 );
+
+    private static final ConcurrentMap<String, EndpointMetrics> ENDPOINTS = new ConcurrentHashMap<>();
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private final String path;
+    private final Histogram total = new ConcurrentHistogram( HIGHEST_MICROS, 3 );
+    private final Histogram secUtils = new ConcurrentHistogram( HIGHEST_MICROS, 3 );
+    private final Histogram manager = new ConcurrentHistogram( HIGHEST_MICROS, 3 );
+    private final Histogram marshal = new ConcurrentHistogram( HIGHEST_MICROS, 3 );
+    private final ConcurrentMap<Integer, LongAdder> errorCodes = new ConcurrentHashMap<>();
+
+
+    private EndpointMetrics( String path )
+    {
+        this.path = path;
+    }
+
+
+    /**
+     * @param path the HttpIds path of the service
+     * @return the metrics of that service, created and registered on JMX on first use
+     */
+    static EndpointMetrics get( String path )
+    {
+        EndpointMetrics metrics = ENDPOINTS.get( path );
+
+        if ( metrics == null )
+        {
+            EndpointMetrics created = new EndpointMetrics( path );
+            metrics = ENDPOINTS.putIfAbsent( path, created );
+
+            if ( metrics == null )
+            {
+                metrics = created;
+                metrics.registerMBean();
+            }
+        }
+
+        return metrics;
+    }
+
+
+    /**
+     * Record a completed request.  Times are in nanoseconds, a stage that did not run is passed as a negative value.
+     *
+     * @param totalNanos the whole request
+     * @param secUtilsNanos the time in SecUtils.initializeSession
+     * @param managerNanos the time in the *MgrImpl call
+     * @param marshalNanos the time spent marshalling the response
+     * @param errorCode the error code of the FortResponse, 0 if none, or {@link #FAULT}
+     */
+    void record( long totalNanos, long secUtilsNanos, long managerNanos, long marshalNanos, int errorCode )
+    {
+        recordValue( total, totalNanos );
+        recordValue( secUtils, secUtilsNanos );
+        recordValue( manager, managerNanos );
+        recordValue( marshal, marshalNanos );
+
+        if ( errorCode != 0 )
+        {
+            errorCodes.computeIfAbsent( errorCode, k -> new LongAdder() ).increment();
+        }
+    }
+
+
+    private static void recordValue( Histogram histogram, long nanos )
+    {
+        if ( nanos >= 0 )
+        {
+            histogram.recordValue( Math.min( TimeUnit.NANOSECONDS.toMicros( nanos ), HIGHEST_MICROS ) );
+        }
+    }
+
+
+    /**
+     * Render the metrics of every service in the Prometheus text exposition format, version 0.0.4.
+     *
+     * @return the scrape page
+     */
+    static String scrape()
+    {
+        StringBuilder sb = new StringBuilder();
+        Map<String, EndpointMetrics> sorted = new TreeMap<>( ENDPOINTS );
+
+        sb.append( "# HELP fortress_rest_request_seconds Time spent serving Fortress Rest requests, by stage\n" );
+        sb.append( "# TYPE fortress_rest_request_seconds summary\n" );
+
+        for ( EndpointMetrics metrics : sorted.values() )
+        {
+            metrics.appendSummary( sb, "total", metrics.total );
+            metrics.appendSummary( sb, "secutils", metrics.secUtils );
+            metrics.appendSummary( sb, "manager", metrics.manager );
+            metrics.appendSummary( sb, "marshal", metrics.marshal );
+        }
+
+        sb.append( "# HELP fortress_rest_errors_total Fortress Rest responses carrying an error code, -1 is a fault\n" );
+        sb.append( "# TYPE fortress_rest_errors_total counter\n" );
+
+        for ( EndpointMetrics metrics : sorted.values() )
+        {
+            for ( Map.Entry<Integer, LongAdder> entry : new TreeMap<>( metrics.errorCodes ).entrySet() )
+            {
+                sb.append( "fortress_rest_errors_total{path=\"" ).append( metrics.path ).append( "\",code=\"" )
+                    .append( entry.getKey() ).append( "\"} " ).append( entry.getValue().sum() ).append( '\n' );
+            }
+        }
+
+        return sb.toString();
+    }
+
+
+    private void appendSummary( StringBuilder sb, String stage, Histogram histogram )
+    {
+        long count = histogram.getTotalCount();
+
+        if ( count == 0 )
+        {
+            return;
+        }
+
+        String labels = "path=\"" + path + "\",stage=\"" + stage + "\"";
+
+        for ( double quantile : QUANTILES )
+        {
+            sb.append( "fortress_rest_request_seconds{" ).append( labels ).append( ",quantile=\"" ).append( quantile )
+                .append( "\"} " ).append( seconds( histogram.getValueAtPercentile( quantile * 100 ) ) ).append( '\n' );
+        }
+
+        sb.append( "fortress_rest_request_seconds_sum{" ).append( labels ).append( "} " )
+            .append( seconds( histogram.getMean() * count ) ).append( '\n' );
+        sb.append( "fortress_rest_request_seconds_count{" ).append( labels ).append( "} " ).append( count )
+            .append( '\n' );
+    }
+
+
+    private static double seconds( double micros )
+    {
+        return micros / 1000000d;
+    }
+
+
+    private void registerMBean()
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName( ExpiringCache.JMX_DOMAIN + ":type=Endpoint,name="
+                + ObjectName.quote( path ) );
+
+            if ( !server.isRegistered( objectName ) )
+            {
+                server.registerMBean( this, objectName );
+            }
+        }
+        catch ( JMException e )
+        {
+            LOG.warn( "EndpointMetrics.registerMBean could not register " + path + ", caught " + e );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPath()
+    {
+        return path;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCount()
+    {
+        return total.getTotalCount();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getErrors()
+    {
+        long errors = 0;
+
+        for ( LongAdder count : errorCodes.values() )
+        {
+            errors += count.sum();
+        }
+
+        return errors;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getErrorCodes()
+    {
+        return new TreeMap<>( errorCodes ).toString();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTotalP50()
+    {
+        return total.getValueAtPercentile( 50 );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTotalP99()
+    {
+        return total.getValueAtPercentile( 99 );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTotalMax()
+    {
+        return total.getMaxValue();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSecUtilsP99()
+    {
+        return secUtils.getValueAtPercentile( 99 );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getManagerP99()
+    {
+        return manager.getValueAtPercentile( 99 );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMarshalP99()
+    {
+        return marshal.getValueAtPercentile( 99 );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset()
+    {
+        total.reset();
+        secUtils.reset();
+        manager.reset();
+        marshal.reset();
+        errorCodes.clear();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+/**
+ * JMX view of the metrics of one Fortress Rest service, see {@link EndpointMetrics}.  Times are in microseconds.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface EndpointMetricsMBean
+{
+    /**
+     * @return the HttpIds path of the service
+     */
+    String getPath();
+
+    /**
+     * @return the number of requests completed
+     */
+    long getCount();
+
+    /**
+     * @return the number of requests whose FortResponse carried an error code, or that ended with a fault
+     */
+    long getErrors();
+
+    /**
+     * @return the number of requests per error code
+     */
+    String getErrorCodes();
+
+    /**
+     * @return the median time of the whole request
+     */
+    long getTotalP50();
+
+    /**
+     * @return the 99th percentile time of the whole request
+     */
+    long getTotalP99();
+
+    /**
+     * @return the longest time of the whole request
+     */
+    long getTotalMax();
+
+    /**
+     * @return the 99th percentile time spent in SecUtils.initializeSession
+     */
+    long getSecUtilsP99();
+
+    /**
+     * @return the 99th percentile time spent in the *MgrImpl call
+     */
+    long getManagerP99();
+
+    /**
+     * @return the 99th percentile time spent marshalling the response
+     */
+    long getMarshalP99();
+
+    /**
+     * Forget everything recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,230 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * Versions the policy entities read by the polled services, readRole, readPermObj, readPermission, readConfig and
+ * readGroup, so a client sending back the ETag of its last read gets a cheap "not modified" reply instead of a
+ * directory read.
+ * <p>
+ * Every tenant carries a change counter, bumped by the Mgr implementations after each successful write; the
+ * configuration, shared by the tenants, has its own.  An ETag is a digest of the counters, the service with its query
+ * string, which may project the fields returned, and the request, so any write made through this server to the tenant
+ * makes its ETags stale.  A change made elsewhere, on another node or in the directory, is not seen: an ETag also
+ * carries the time it was issued, and is only honored for 'rest.etag.ttl.seconds'.
+ * <p>
+ * The versioning is disabled unless 'rest.etag.enabled' is set to true.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class EntityVersions
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( EntityVersions.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.etag.enabled";
+    static final String TTL_SECONDS_PROP = "rest.etag.ttl.seconds";
+
+    private static final int DEFAULT_TTL_SECONDS = 30;
+
+    /** Separates the fields of the digested tuple */
+    private static final char SEP = '\u0000';
+
+    /** Writes the request entity, to identify what is read */
+    private static final ObjectMapper MAPPER = new JacksonFieldOnlyMapper();
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final EntityVersions INSTANCE = new EntityVersions(
+            Config.getInstance().getBoolean( ENABLED_PROP, false ),
+            Config.getInstance().getInt( TTL_SECONDS_PROP, DEFAULT_TTL_SECONDS ) * 1000L );
+    }
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final AtomicLong configVersion = new AtomicLong();
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.
+     *
+     * @param enabled if false, no ETag is issued or honored
+     * @param ttlMillis how long an ETag is honored after being issued
+     */
+    EntityVersions( boolean enabled, long ttlMillis )
+    {
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+
+        if ( enabled )
+        {
+            LOG.info( "EntityVersions enabled, ttlMillis={}", ttlMillis );
+        }
+    }
+
+
+    /**
+     * @return the versions used by FortressServiceImpl and the Mgr implementations
+     */
+    static EntityVersions getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * @return true if ETags are issued and honored
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Make the ETags of a tenant stale, after a write to its users, roles, permissions, groups or organizations.
+     *
+     * @param contextId the tenant
+     */
+    void changed( String contextId )
+    {
+        if ( enabled )
+        {
+            version( contextId ).incrementAndGet();
+        }
+    }
+
+
+    /**
+     * Make all the ETags stale, after a write to the configuration.
+     */
+    void configChanged()
+    {
+        if ( enabled )
+        {
+            configVersion.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * The ETag of a read, to compute before reading so a concurrent write makes it stale.
+     *
+     * @param path the path of the service, with the query string of the request if any
+     * @param request the request, its tenant, entity and value identify what is read
+     * @return the ETag, quoted
+     */
+    String etag( String path, FortRequest request )
+    {
+        return etag( path, request, System.currentTimeMillis() / 1000 );
+    }
+
+
+    /**
+     * @param path the path of the service, with the query string of the request if any
+     * @param request the request
+     * @param ifNoneMatch the If-None-Match header of the request, may be null
+     * @return true if the ETag sent is the current one for this read and is not too old to be trusted
+     */
+    boolean isCurrent( String path, FortRequest request, String ifNoneMatch )
+    {
+        if ( !enabled || ( ifNoneMatch == null ) )
+        {
+            return false;
+        }
+
+        String tag = ifNoneMatch.trim();
+
+        if ( tag.startsWith( "W/" ) )
+        {
+            tag = tag.substring( 2 );
+        }
+
+        int dot = tag.indexOf( '.' );
+
+        if ( !tag.startsWith( "\"" ) || ( dot < 0 ) )
+        {
+            return false;
+        }
+
+        try
+        {
+            long issued = Long.parseLong( tag.substring( 1, dot ) );
+
+            if ( System.currentTimeMillis() - issued * 1000 >= ttlMillis )
+            {
+                return false;
+            }
+
+            return tag.equals( etag( path, request, issued ) );
+        }
+        catch ( NumberFormatException nfe )
+        {
+            return false;
+        }
+    }
+
+
+    private String etag( String path, FortRequest request, long issued )
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( MgrRegistry.key( request.getContextId() ) ).append( SEP );
+        sb.append( version( request.getContextId() ).get() ).append( SEP );
+        sb.append( configVersion.get() ).append( SEP );
+        sb.append( issued ).append( SEP );
+        sb.append( path ).append( SEP );
+        sb.append( request.getValue() ).append( SEP );
+
+        try
+        {
+            sb.append( MAPPER.writeValueAsString( request.getEntity() ) );
+        }
+        catch ( JsonProcessingException jpe )
+        {
+            // Still unique to this read for the other fields, the entity only narrows it
+            LOG.debug( "EntityVersions.etag could not write the entity, caught " + jpe );
+        }
+
+        // The digest is base64, its characters are all allowed in an ETag
+        return "\"" + issued + "." + AuthzDecisionCache.sha256( sb.toString() ) + "\"";
+    }
+
+
+    private AtomicLong version( String contextId )
+    {
+        return versions.computeIfAbsent( MgrRegistry.key( contextId ), k -> new AtomicLong() );
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A bounded in-memory cache whose entries expire a fixed time after being stored.  When the cache is full, expired
+ * entries are purged first, then arbitrary entries are dropped until it is back under 90% of its size, so the bound is
+ * honored without keeping an LRU list on the read path.  A cache given a weigher is also bounded by the total weight of
+ * its entries, and shrinks the same way when that bound would be crossed.  This class is thread safe.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class ExpiringCache<K, V> implements ExpiringCacheMBean
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( ExpiringCache.class.getName() );
+
+    /** The JMX domain the caches are registered under */
+    static final String JMX_DOMAIN = "org.apache.directory.fortress.rest";
+
+    private static final class Entry<V>
+    {
+        private final V value;
+        private final long expires;
+        private final int weight;
+
+        private Entry( V value, long expires, int weight )
+        {
+            this.value = value;
+            this.expires = expires;
+            this.weight = weight;
+        }
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final ToIntFunction<V> weigher;
+    private final long maxWeight;
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong weight = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+
+    /**
+     * Create a cache.
+     *
+     * @param name the name used in logs and in the JMX ObjectName
+     * @param maxSize the maximum number of entries
+     * @param ttlMillis how long an entry lives once stored
+     */
+    public ExpiringCache( String name, int maxSize, long ttlMillis )
+    {
+        this( name, maxSize, ttlMillis, value -> 1, Long.MAX_VALUE );
+    }
+
+
+    /**
+     * Create a cache also bounded by the total weight of its entries.
+     *
+     * @param name the name used in logs and in the JMX ObjectName
+     * @param maxSize the maximum number of entries
+     * @param ttlMillis how long an entry lives once stored
+     * @param weigher gives the weight of a value, computed once when it is stored
+     * @param maxWeight the maximum total weight of the entries
+     */
+    public ExpiringCache( String name, int maxSize, long ttlMillis, ToIntFunction<V> weigher, long maxWeight )
+    {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.weigher = weigher;
+        this.maxWeight = maxWeight;
+    }
+
+
+    /**
+     * @param key the key
+     * @return the live value for this key, or null
+     */
+    public V get( K key )
+    {
+        Entry<V> entry = entries.get( key );
+
+        if ( entry != null )
+        {
+            if ( entry.expires > System.currentTimeMillis() )
+            {
+                hits.incrementAndGet();
+
+                return entry.value;
+            }
+
+            removeEntry( key, entry );
+        }
+
+        misses.incrementAndGet();
+
+        return null;
+    }
+
+
+    /**
+     * Store a value, replacing any previous one.
+     *
+     * @param key the key
+     * @param value the value, must not be null
+     */
+    public void put( K key, V value )
+    {
+        int valueWeight = weigher.applyAsInt( value );
+        Entry<V> current = entries.get( key );
+
+        // Replacing a value doesn't add an entry, only a heavier value may cross a bound
+        if ( ( ( current == null ) && ( entries.size() >= maxSize ) )
+            || ( weight.get() - ( current == null ? 0 : current.weight ) + valueWeight > maxWeight ) )
+        {
+            shrink( valueWeight );
+        }
+
+        Entry<V> previous = entries.put( key, new Entry<>( value, System.currentTimeMillis() + ttlMillis,
+            valueWeight ) );
+        weight.addAndGet( valueWeight );
+
+        if ( previous != null )
+        {
+            weight.addAndGet( -previous.weight );
+        }
+    }
+
+
+    /**
+     * @param key the key of the entry to drop
+     */
+    public void remove( K key )
+    {
+        Entry<V> previous = entries.remove( key );
+
+        if ( previous != null )
+        {
+            weight.addAndGet( -previous.weight );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        entries.forEach( this::removeEntry );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSize()
+    {
+        return entries.size();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getWeight()
+    {
+        return weight.get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getHitRatio()
+    {
+        long h = hits.get();
+        long total = h + misses.get();
+
+        return total == 0 ? 0d : ( double ) h / total;
+    }
+
+
+    /**
+     * Publish this cache's statistics on the platform MBean server, under
+     * {@code org.apache.directory.fortress.rest:type=Cache,name=<name>}.  A failure is logged, never thrown.
+     */
+    public void registerMBean()
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName( JMX_DOMAIN + ":type=Cache,name=" + name );
+
+            if ( !server.isRegistered( objectName ) )
+            {
+                server.registerMBean( this, objectName );
+            }
+        }
+        catch ( JMException e )
+        {
+            LOG.warn( "ExpiringCache.registerMBean could not register " + name + ", caught " + e );
+        }
+    }
+
+
+    private void removeEntry( K key, Entry<V> entry )
+    {
+        if ( entries.remove( key, entry ) )
+        {
+            weight.addAndGet( -entry.weight );
+        }
+    }
+
+
+    /**
+     * @param incoming the weight of the value about to be stored
+     */
+    private void shrink( int incoming )
+    {
+        long now = System.currentTimeMillis();
+        entries.forEach( ( key, entry ) ->
+        {
+            if ( entry.expires <= now )
+            {
+                removeEntry( key, entry );
+            }
+        } );
+        int target = maxSize - maxSize / 10 - 1;
+        long targetWeight = maxWeight - maxWeight / 10 - incoming;
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+
+        while ( ( entries.size() > target || weight.get() > targetWeight ) && it.hasNext() )
+        {
+            Map.Entry<K, Entry<V>> next = it.next();
+
+            if ( entries.remove( next.getKey(), next.getValue() ) )
+            {
+                weight.addAndGet( -next.getValue().weight );
+                evictions.incrementAndGet();
+            }
+        }
+    }
+}
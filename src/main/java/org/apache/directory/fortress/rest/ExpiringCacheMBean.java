@@ -0,0 +1,68 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+/**
+ * JMX view of an {@link ExpiringCache}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface ExpiringCacheMBean
+{
+    /**
+     * @return the number of entries currently held
+     */
+    int getSize();
+
+    /**
+     * @return the maximum number of entries
+     */
+    int getMaxSize();
+
+    /**
+     * @return the total weight of the entries held, their number unless the cache was given a weigher
+     */
+    long getWeight();
+
+    /**
+     * @return the number of lookups that found a live entry
+     */
+    long getHits();
+
+    /**
+     * @return the number of lookups that found nothing, or an expired entry
+     */
+    long getMisses();
+
+    /**
+     * @return the number of entries dropped to stay under the maximum size
+     */
+    long getEvictions();
+
+    /**
+     * @return hits / (hits + misses), 0 when nothing was looked up yet
+     */
+    double getHitRatio();
+
+    /**
+     * Remove every entry.
+     */
+    void clear();
+}
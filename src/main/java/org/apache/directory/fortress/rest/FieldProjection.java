@@ -0,0 +1,243 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.ws.rs.core.MultivaluedMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.cxf.jaxrs.utils.JAXRSUtils;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.directory.fortress.core.model.FortEntity;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.jakarta.rs.cfg.EndpointConfigBase;
+import com.fasterxml.jackson.jakarta.rs.cfg.ObjectWriterInjector;
+import com.fasterxml.jackson.jakarta.rs.cfg.ObjectWriterModifier;
+
+/**
+ * Serializes only the requested fields of the entities returned by a service.  A caller lists the fields it wants in
+ * the {@link RestIds#FIELDS} query parameter, e.g. fields=userId,ou on a user search, and the other fields of the
+ * entities found in the entity and entities fields of the FortResponse are left out.  The type id is always written,
+ * the nested entities, like the roles of a user, are written whole when their field is requested.
+ * <p>
+ * The fields are read from the query string once per response, by {@link #select(Exchange)}, which hands the writer
+ * of the Jackson provider a filter holding them.  A response without the parameter is written by the mapper's own
+ * filter provider, which has no filter, so its entities are serialized without any per field check.
+ * <p>
+ * Fortress Core reads complete entries from the directory, so the projection saves serialization time and response
+ * bytes, not directory reads.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class FieldProjection extends SimpleBeanPropertyFilter
+{
+    /** The id of the filter, attached to FortEntity through {@link Filtered} */
+    static final String FILTER_ID = "fortressFieldProjection";
+
+    /** The fields of FortResponse holding the entities projected */
+    private static final String ENTITY = "entity";
+    private static final String ENTITIES = "entities";
+
+    /** Returned by parse when the request asks for no projection */
+    private static final Set<String> ALL_FIELDS = Collections.emptySet();
+
+    /** A mix-in attaching the filter to FortEntity and its subclasses */
+    @JsonFilter( FILTER_ID )
+    abstract static class Filtered
+    {
+    }
+
+    /** Hands the projection of one response to the writer of the Jackson provider */
+    private static final class Modifier extends ObjectWriterModifier
+    {
+        private final Set<String> fields;
+
+        private Modifier( Set<String> fields )
+        {
+            this.fields = fields;
+        }
+
+        @Override
+        public ObjectWriter modify( EndpointConfigBase<?> endpoint, MultivaluedMap<String, Object> responseHeaders,
+            Object valueToWrite, ObjectWriter w, JsonGenerator g ) throws IOException
+        {
+            return project( w, fields );
+        }
+    }
+
+    /** The fields written, never empty */
+    private final Set<String> fields;
+
+
+    private FieldProjection( Set<String> fields )
+    {
+        this.fields = fields;
+    }
+
+
+    /**
+     * Attach the projection to every FortEntity written by a mapper.  The mapper itself holds no filter, its entities
+     * are written whole unless a writer is given one by {@link #project(ObjectWriter, Set)}.
+     *
+     * @param mapper the mapper
+     */
+    static void install( ObjectMapper mapper )
+    {
+        mapper.addMixIn( FortEntity.class, Filtered.class );
+        mapper.setFilterProvider( new SimpleFilterProvider().setFailOnUnknownId( false ) );
+    }
+
+
+    /**
+     * Called on the thread writing the response, before the Jackson provider runs: read the fields requested once, and
+     * have the provider's writer project the entities on them.  Every response sets or clears the modifier, so none is
+     * left behind for the next response written by the thread.
+     *
+     * @param exchange the exchange of the response
+     */
+    static void select( Exchange exchange )
+    {
+        Message in = exchange.getInMessage();
+        Set<String> fields = parse( in == null ? null : ( String ) in.get( Message.QUERY_STRING ) );
+        ObjectWriterInjector.set( fields.isEmpty() ? null : new Modifier( fields ) );
+    }
+
+
+    /**
+     * @param writer a writer of a mapper the projection is installed on
+     * @param fields the fields requested, empty for all
+     * @return a writer writing only those fields of the entities returned
+     */
+    static ObjectWriter project( ObjectWriter writer, Set<String> fields )
+    {
+        if ( fields.isEmpty() )
+        {
+            return writer;
+        }
+
+        return writer.with( new SimpleFilterProvider().addFilter( FILTER_ID, new FieldProjection( fields ) ) );
+    }
+
+
+    @Override
+    public void serializeAsField( Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer )
+        throws Exception
+    {
+        if ( include( jgen.getOutputContext(), writer.getName(), fields ) )
+        {
+            writer.serializeAsField( pojo, jgen, provider );
+        }
+        else if ( !jgen.canOmitFields() )
+        {
+            writer.serializeAsOmittedField( pojo, jgen, provider );
+        }
+    }
+
+
+    /**
+     * @param context the context of the entity being written
+     * @param name the name of the field
+     * @param fields the fields requested, empty for all
+     * @return true if the field is written
+     */
+    static boolean include( JsonStreamContext context, String name, Set<String> fields )
+    {
+        if ( fields.isEmpty() || fields.contains( name ) )
+        {
+            return true;
+        }
+
+        JsonStreamContext parent = context.getParent();
+
+        if ( parent == null )
+        {
+            return true;
+        }
+
+        if ( parent.inArray() )
+        {
+            parent = parent.getParent();
+
+            return ( parent == null ) || !isResponse( parent ) || !ENTITIES.equals( parent.getCurrentName() );
+        }
+
+        return !isResponse( parent ) || !ENTITY.equals( parent.getCurrentName() );
+    }
+
+
+    /**
+     * @return true if the context is the one of the response, the root object
+     */
+    private static boolean isResponse( JsonStreamContext context )
+    {
+        return context.inObject() && ( context.getParent() != null ) && context.getParent().inRoot();
+    }
+
+
+    /**
+     * @param queryString the query string of a request, may be null
+     * @return the fields listed by its fields parameter, empty for all
+     */
+    static Set<String> parse( String queryString )
+    {
+        if ( StringUtils.isEmpty( queryString ) )
+        {
+            return ALL_FIELDS;
+        }
+
+        MultivaluedMap<String, String> params = JAXRSUtils.getStructuredParams( queryString, "&", true, true );
+        List<String> values = params.get( RestIds.FIELDS );
+
+        if ( values == null )
+        {
+            return ALL_FIELDS;
+        }
+
+        Set<String> fields = new HashSet<>();
+
+        for ( String value : values )
+        {
+            for ( String field : value.split( "," ) )
+            {
+                if ( StringUtils.isNotBlank( field ) )
+                {
+                    fields.add( field.trim() );
+                }
+            }
+        }
+
+        return fields.isEmpty() ? ALL_FIELDS : Collections.unmodifiableSet( fields );
+    }
+}
@@ -23,8 +23,10 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -68,6 +70,9 @@ public class FortressInterceptor extends SimpleAuthorizingInterceptor
 
     private String annotationClassName = DEFAULT_ANNOTATION_CLASS_NAME;
 
+    /** The roles allowed for each method of the secured object, compiled once in setSecuredObject */
+    private volatile Map<Method, List<String>> methodRolesTable = Collections.emptyMap();
+
 
     /**
      * set annotation
@@ -113,6 +118,137 @@ public class FortressInterceptor extends SimpleAuthorizingInterceptor
         }
         
         super.setMethodRolesMap( rolesMap );
+        methodRolesTable = compileRoles( cls );
+    }
+
+
+    /**
+     * The roles allowed to call a method, taken from the table compiled by {@link #setSecuredObject(Object)}.  The
+     * name keyed map of {@link SimpleAuthorizingInterceptor} is only used for a method the table does not know.
+     *
+     * @param method The resolved target method
+     * @return The roles allowed to call it
+     */
+    @Override
+    protected List<String> getExpectedRoles( Method method )
+    {
+        List<String> roles = methodRolesTable.get( method );
+
+        if ( roles != null )
+        {
+            return roles;
+        }
+
+        return super.getExpectedRoles( method );
+    }
+
+
+    /**
+     * Compile the roles of every public method of the secured class into a table keyed by the Method itself, so
+     * overloaded methods keep their own roles.  The interface methods they implement are added as well, whichever
+     * one the runtime resolves is then found directly.
+     *
+     * @param cls The secured class
+     * @return An immutable table of the method roles
+     */
+    private Map<Method, List<String>> compileRoles( Class<?> cls )
+    {
+        Map<Method, List<String>> table = new HashMap<>();
+        Set<Class<?>> interfaces = new HashSet<>();
+        collectInterfaces( cls, interfaces );
+
+        for ( Method m : cls.getMethods() )
+        {
+            if ( SKIP_METHODS.contains( m.getName() ) )
+            {
+                continue;
+            }
+
+            List<String> roles = findMethodRoles( cls, m.getName(), m.getParameterTypes() );
+
+            if ( roles != null )
+            {
+                table.put( m, roles );
+
+                for ( Class<?> interfaceCls : interfaces )
+                {
+                    try
+                    {
+                        table.put( interfaceCls.getMethod( m.getName(), m.getParameterTypes() ), roles );
+                    }
+                    catch ( NoSuchMethodException ex )
+                    {
+                        // Not declared by this interface
+                    }
+                }
+            }
+        }
+
+        LOG.info( "FortressInterceptor.compileRoles compiled the roles of " + table.size() + " methods" );
+
+        return Collections.unmodifiableMap( table );
+    }
+
+
+    private void collectInterfaces( Class<?> cls, Set<Class<?>> interfaces )
+    {
+        if ( cls == null )
+        {
+            return;
+        }
+
+        for ( Class<?> interfaceCls : cls.getInterfaces() )
+        {
+            if ( interfaces.add( interfaceCls ) )
+            {
+                collectInterfaces( interfaceCls, interfaces );
+            }
+        }
+
+        collectInterfaces( cls.getSuperclass(), interfaces );
+    }
+
+
+    /**
+     * Look for the roles of a method on the class, then on its class annotation, then up its super class and
+     * interfaces.
+     */
+    private List<String> findMethodRoles( Class<?> cls, String name, Class<?>[] parameterTypes )
+    {
+        if ( ( cls == null ) || ( cls == Object.class ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            String[] roles = getRoleArray( cls.getMethod( name, parameterTypes ).getAnnotations(), annotationClassName );
+
+            if ( roles != null )
+            {
+                return Collections.unmodifiableList( Arrays.asList( roles ) );
+            }
+        }
+        catch ( NoSuchMethodException ex )
+        {
+            return null;
+        }
+
+        String[] classRoles = getRoleArray( cls.getAnnotations(), annotationClassName );
+
+        if ( classRoles != null )
+        {
+            return Collections.unmodifiableList( Arrays.asList( classRoles ) );
+        }
+
+        List<String> roles = findMethodRoles( cls.getSuperclass(), name, parameterTypes );
+
+        for ( int i = 0; ( roles == null ) && ( i < cls.getInterfaces().length ); i++ )
+        {
+            roles = findMethodRoles( cls.getInterfaces()[i], name, parameterTypes );
+        }
+
+        return roles;
     }
     
 
@@ -183,7 +319,21 @@ public class FortressInterceptor extends SimpleAuthorizingInterceptor
      */
     private String getRoles( Annotation[] anns, String annName )
     {
-        LOG.debug( "FortressInterceptor.getRoles:" + annName );
+        String[] roles = getRoleArray( anns, annName );
+
+        return roles == null ? null : String.join( " ", roles );
+    }
+
+
+    /**
+     * get the roles of the annotation, one per element
+     * @param anns
+     * @param annName
+     * @return the roles, or null if the annotation is not present
+     */
+    private String[] getRoleArray( Annotation[] anns, String annName )
+    {
+        LOG.debug( "FortressInterceptor.getRoleArray:" + annName );
         
         for ( Annotation ann : anns )
         {
@@ -192,37 +342,20 @@ public class FortressInterceptor extends SimpleAuthorizingInterceptor
                 try
                 {
                     Method valueMethod = ann.annotationType().getMethod( "value", new Class[]{} );
-                    String[] roles = (String[]) valueMethod.invoke( ann, new Object[]{} );
-                    StringBuilder sb = new StringBuilder();
-                    boolean isFirst = false;
-                    
-                    for ( String role : roles )
-                    {
-                        if ( isFirst )
-                        {
-                            isFirst = false;
-                        }
-                        else
-                        {
-                            sb.append( " " );
-                        }
-                        
-                        sb.append( role );
-                    }
-                    
-                    return sb.toString();
+
+                    return (String[]) valueMethod.invoke( ann, new Object[]{} );
                 }
                 catch ( NoSuchMethodException ex )
                 {
-                    LOG.info( "FortressInterceptor.getRoles annName=" + annName + ", caught NoSuchMethodException=" + ex );
+                    LOG.info( "FortressInterceptor.getRoleArray annName=" + annName + ", caught NoSuchMethodException=" + ex );
                 }
                 catch ( IllegalAccessException ex )
                 {
-                    LOG.info( "FortressInterceptor.getRoles annName=" + annName + ", caught IllegalAccessException=" + ex );
+                    LOG.info( "FortressInterceptor.getRoleArray annName=" + annName + ", caught IllegalAccessException=" + ex );
                 }
                 catch ( InvocationTargetException ex )
                 {
-                    LOG.info( "FortressInterceptor.getRoles annName=" + annName + ", caught InvocationTargetException=" + ex );
+                    LOG.info( "FortressInterceptor.getRoleArray annName=" + annName + ", caught InvocationTargetException=" + ex );
                 }
                 break;
             }
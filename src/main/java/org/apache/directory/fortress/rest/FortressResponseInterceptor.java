@@ -28,7 +28,8 @@ import org.apache.cxf.phase.Phase;
 import org.apache.directory.fortress.core.model.FortResponse;
 
 /**
- * Interceptor to set the HTTP Status code based on the value present in FortResponse.
+ * Interceptor to set the HTTP Status code based on the value present in FortResponse.  It also selects the fields
+ * the response is written with, see {@link FieldProjection}, as it runs on the thread writing the response.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -54,6 +55,7 @@ public class FortressResponseInterceptor extends AbstractPhaseInterceptor<Messag
         
         if( isOutbound )
         {
+            FieldProjection.select( message.getExchange() );
             MessageContentsList objs = MessageContentsList.getContentsList(message);
             if (objs != null && !objs.isEmpty())
             {
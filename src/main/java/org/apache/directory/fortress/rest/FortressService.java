@@ -30,6 +30,7 @@ import org.apache.directory.fortress.core.model.UserRole;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.core.Response;
 
 /**
  * Interface for Fortress Rest Service methods.
@@ -206,6 +207,35 @@ public interface FortressService
      */
     FortResponse deleteUser( FortRequest request );
 
+
+    /**
+     * Run an ordered list of AdminMgr operations in a single request.  Each operation is named by the path of its own
+     * service, e.g. {@code userAdd}, {@code roleAsgn} or {@code roleGrant}, and carries the entity that service
+     * expects, along with the entity2, value or isFlag of the services reading them, e.g. {@code ssdAddMember}.  The
+     * operations run in order, with the contextId and session of this request.
+     *
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>
+     *     {@link FortRequest#entity} - contains a reference to {@link AdminBatch} entity, holding the list of
+     *     {@link AdminBatch.Operation}
+     *   </li>
+     * </ul>
+     * <h4>optional parameters</h4>
+     * <ul>
+     *   <li>
+     *     {@link AdminBatch#isStopOnError()} - true, the default, stops at the first failed operation; false runs
+     *     every operation whatever the outcome of the previous ones
+     *   </li>
+     * </ul>
+     *
+     * @param request contains a reference to {@code FortRequest}
+     * @return reference to {@code FortResponse}, {@link FortResponse#entity} contains the {@link AdminBatch} whose
+     * {@link AdminBatch#getResults()} holds the {@code FortResponse} of each operation run, in order.
+     * {@link FortResponse#errorCode} is the one of the first failed operation, if any.
+     */
+    FortResponse adminBatch( FortRequest request );
+
     
     /**
      * This command deletes an existing user from the RBAC database. The command is valid
@@ -2841,6 +2871,26 @@ public interface FortressService
     FortResponse assignedUsers( FortRequest request );
 
 
+    /**
+     * Run one of the large ReviewMgr searches and stream its result.  The request and the JSON document returned are
+     * the same as those of the search service itself, but the entities are written one at a time as the response
+     * goes out, so the memory used by a search of hundreds of thousands of entries does not spike while serializing.
+     * The path is {@code stream/<service>}, where service is one of:
+     * <ul>
+     *   <li>{@link FortressService#findUsers}: {@code userSearch}</li>
+     *   <li>{@link FortressService#assignedUsers}: {@code userAsigned}</li>
+     *   <li>{@link FortressService#findPermissions}: {@code permSearch}</li>
+     *   <li>{@link FortressService#findPermObjs}: {@code objSearch}</li>
+     *   <li>{@link FortressService#userPermissions}: {@code userPerms}</li>
+     * </ul>
+     *
+     * @param service the path of the search service
+     * @param request contains a reference to {@code FortRequest}, as expected by that service
+     * @return the response of the search, streamed when it succeeds.
+     */
+    Response streamSearch( String service, FortRequest request );
+
+
     /**
      * This method returns the data set of all users who are assigned the given role constraint.  This searches the User data set for
      * RoleConstraint relationship.  This method does NOT search for hierarchical RBAC Roles relationships.
@@ -3991,6 +4041,30 @@ public interface FortressService
     FortResponse checkAccess( FortRequest request );
 
 
+    /**
+     * Perform user RBAC authorization for a batch of permissions in one call.  The permissions of the session are loaded
+     * once and every requested permission is checked against them, which answers N checks for the price of one.
+     *
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>
+     *     {@link FortRequest#entity} - contains a reference to {@link PermCheckSet} entity, whose
+     *     {@link PermCheckSet#getPermissions()} lists the objName, opName and optional objId to check
+     *   </li>
+     *   <li>
+     *     {@link FortRequest#session} - contains a reference to User's RBAC session that is created by calling
+     *     {@link FortressServiceImpl#createSession} method before use in this service.
+     *   </li>
+     * </ul>
+     *
+     * @param request contains a reference to {@code FortRequest}
+     * @return reference to {@code FortResponse}, {@link FortResponse#entity} contains the {@link PermCheckSet} whose
+     * {@link PermCheckSet#getResults()} holds one decision per permission, in the request order.  Updated
+     * {@link FortResponse#session} will be included in response as well.
+     */
+    FortResponse checkAccessBulk( FortRequest request );
+
+
     /**
      * Combine createSession and checkAccess into a single method.
      * This function returns a Boolean value meaning whether the User is allowed or not to perform a given operation on a given object.
@@ -4296,6 +4370,24 @@ public interface FortressService
     FortResponse getUser( FortRequest request );
 
 
+    /**
+     * Forget a session kept on the server.  When createSession, createSessionTrusted or createGroupSession are called
+     * with the {@code sessionHandle=true} query parameter, the session is kept on the server and its handle returned in
+     * the {@code X-Fortress-Session-Handle} response header.  The AccessMgr services that take a session then accept
+     * that header in place of {@link FortRequest#session}, and no longer return the session.  This service releases
+     * the session before it expires.
+     *
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>{@code X-Fortress-Session-Handle} request header - the handle of the session</li>
+     * </ul>
+     *
+     * @param request contains a reference to {@code FortRequest}, no field is used
+     * @return reference to {@code FortResponse}
+     */
+    FortResponse releaseSession( FortRequest request );
+
+
     //------------ DelegatedAdminMgr --------------------------------------------------------------------------------------
     /**
      * This command creates a new admin role. The command is valid if and only if the new admin role is not
@@ -7273,6 +7365,17 @@ public interface FortressService
     public FortResponse rolePermissionAttributeSets( FortRequest request );
 
 
+    /**
+     * Render the latency and error metrics of every service in the Prometheus text format.  Each service, keyed by its
+     * path, reports the time of the whole request and of its stages (session load in SecUtils, *MgrImpl call and
+     * marshalling) as summaries, and counts its responses by error code.  The same metrics are published over JMX
+     * under {@code org.apache.directory.fortress.rest:type=Endpoint}.
+     *
+     * @return the scrape page
+     */
+    String metrics();
+
+
     /**
      * If matching jax-rs service was not found, the client will be returned a response with an error generated by this method.
      *
@@ -20,10 +20,18 @@
 package org.apache.directory.fortress.rest;
 
 import jakarta.annotation.security.RolesAllowed;
+import java.util.function.Function;
+
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
 
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.model.*;
@@ -70,6 +78,9 @@ public class FortressServiceImpl implements FortressService
     @Context
     private HttpServletRequest httpRequest;
 
+    @Context
+    private HttpServletResponse httpResponse;
+
     /**
      * ************************************************************************************************************************************
      * BEGIN ADMINMGR
@@ -83,6 +94,96 @@ public class FortressServiceImpl implements FortressService
     {
     }
 
+    /**
+     * Run an AccessMgr call, with the session stored in the {@link SessionHandles} when the client sent a handle.
+     *
+     * @param request The request of the call
+     * @param mutates True if the call changes the session
+     * @param call The call
+     * @return The response of the call
+     */
+    private FortResponse withSessionHandle( FortRequest request, boolean mutates, Function<FortRequest, FortResponse> call )
+    {
+        String handle = httpRequest == null ? null : httpRequest.getHeader( RestIds.SESSION_HANDLE_HEADER );
+        if( handle == null )
+            return call.apply( request );
+        return SessionHandles.getInstance().call( request, handle, httpRequest.getRemoteUser(), mutates, call );
+    }
+
+    /**
+     * Store the created session in the {@link SessionHandles}, and return its handle, when the client asked for it.
+     *
+     * @param request The createSession request
+     * @param response The createSession response
+     * @return The response
+     */
+    private FortResponse createSessionHandle( FortRequest request, FortResponse response )
+    {
+        if( httpRequest != null && httpResponse != null
+            && Boolean.parseBoolean( httpRequest.getParameter( RestIds.SESSION_HANDLE ) ) )
+        {
+            String handle = SessionHandles.getInstance().create( request.getContextId(), response.getSession(),
+                httpRequest.getRemoteUser() );
+            if( handle != null )
+                httpResponse.setHeader( RestIds.SESSION_HANDLE_HEADER, handle );
+        }
+        return response;
+    }
+
+    /**
+     * Run a search through the {@link PageCursors}, which page its entities when the client asks for it with the
+     * 'pageSize' or 'pageToken' query parameters.
+     *
+     * @param request The request of the search service
+     * @param search The search to run
+     * @return The response of the search, or one page of it
+     */
+    private FortResponse paged( FortRequest request, Function<FortRequest, FortResponse> search )
+    {
+        if( httpRequest == null )
+            return search.apply( request );
+        StringBuilder nextToken = new StringBuilder();
+        FortResponse response = PageCursors.getInstance().page( request, search, httpRequest.getRemoteUser(),
+            httpRequest.getPathInfo(), httpRequest.getParameter( RestIds.PAGE_SIZE ),
+            httpRequest.getParameter( RestIds.PAGE_TOKEN ), nextToken );
+        if( nextToken.length() > 0 && httpResponse != null )
+            httpResponse.setHeader( RestIds.PAGE_TOKEN_HEADER, nextToken.toString() );
+        return response;
+    }
+
+    /**
+     * Run a read through the {@link EntityVersions}: the response carries an ETag, and a request whose If-None-Match
+     * header holds the current ETag gets an empty 304 response instead of a directory read.
+     *
+     * @param request The request of the read service
+     * @param read The read to run
+     * @return The response of the read, or the "not modified" response
+     */
+    private FortResponse conditional( FortRequest request, Function<FortRequest, FortResponse> read )
+    {
+        EntityVersions versions = EntityVersions.getInstance();
+        if( httpRequest == null || httpResponse == null || !versions.isEnabled() )
+            return read.apply( request );
+        // The query string selects the representation, e.g. the fields projected, it is part of what is read
+        String path = httpRequest.getPathInfo();
+        if( httpRequest.getQueryString() != null )
+            path += "?" + httpRequest.getQueryString();
+        if( versions.isCurrent( path, request, httpRequest.getHeader( HttpHeaders.IF_NONE_MATCH ) ) )
+        {
+            FortResponse response = new FortResponse();
+            response.setErrorCode( GlobalErrIds.NO_ERROR );
+            response.setHttpStatus( Response.Status.NOT_MODIFIED.getStatusCode() );
+            httpResponse.setHeader( HttpHeaders.ETAG, httpRequest.getHeader( HttpHeaders.IF_NONE_MATCH ).trim() );
+            return response;
+        }
+        // Computed before the read, so a write racing with it makes this ETag stale
+        String etag = versions.etag( path, request );
+        FortResponse response = read.apply( request );
+        if( response.getErrorCode() == GlobalErrIds.NO_ERROR )
+            httpResponse.setHeader( HttpHeaders.ETAG, etag );
+        return response;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -115,6 +216,22 @@ public class FortressServiceImpl implements FortressService
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @POST
+    @Path("/" + RestIds.ADMIN_BATCH + "/")
+    @RolesAllowed({SUPER_USER, ADMIN_MGR_USER})
+    @Override
+    public FortResponse adminBatch( FortRequest request )
+    {
+        FortResponse response = SecUtils.initializeSession(request, httpRequest);
+        if( response == null )
+            response = adminMgrImpl.adminBatch( request );
+        return response;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -884,7 +1001,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.readPermission( request );
+            response = conditional( request, reviewMgrImpl::readPermission );
         return response;
     }
 
@@ -900,7 +1017,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.readPermObj( request );
+            response = conditional( request, reviewMgrImpl::readPermObj );
         return response;
     }
 
@@ -915,7 +1032,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.findPermissions( request );
+            response = paged( request, reviewMgrImpl::findPermissions );
         return response;
     }
 
@@ -931,7 +1048,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.findObjPermissions( request );
+            response = paged( request, reviewMgrImpl::findObjPermissions );
         return response;
     }
 
@@ -947,7 +1064,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.findAnyPermissions( request );
+            response = paged( request, reviewMgrImpl::findAnyPermissions );
         return response;
     }
 
@@ -963,7 +1080,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.findPermObjs( request );
+            response = paged( request, reviewMgrImpl::findPermObjs );
         return response;
     }
 
@@ -979,7 +1096,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.readRole( request );
+            response = conditional( request, reviewMgrImpl::readRole );
         return response;
     }
 
@@ -995,7 +1112,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.findRoles( request );
+            response = paged( request, reviewMgrImpl::findRoles );
         return response;
     }
 
@@ -1027,7 +1144,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.findUsersM( request );
+            response = paged( request, reviewMgrImpl::findUsersM );
         return response;
     }
 
@@ -1043,11 +1160,27 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.assignedUsersM( request );
+            response = paged( request, reviewMgrImpl::assignedUsersM );
         return response;
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @POST
+    @Path("/" + RestIds.STREAM + "/{service}/")
+    @RolesAllowed({SUPER_USER, REVIEW_MGR_USER})
+    @Override
+    public Response streamSearch( @PathParam("service") String service, FortRequest request )
+    {
+        FortResponse response = SecUtils.initializeSession(request, httpRequest);
+        if( response == null )
+            response = reviewMgrImpl.streamSearch( service, request );
+        return StreamingFortResponse.toResponse( response );
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -1059,7 +1192,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.assignedUsersConstraints( request );
+            response = paged( request, reviewMgrImpl::assignedUsersConstraints );
         return response;
     }
 
@@ -1075,7 +1208,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.assignedUsersConstraintsKey( request );
+            response = paged( request, reviewMgrImpl::assignedUsersConstraintsKey );
         return response;
     }
 
@@ -1091,7 +1224,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.assignedRolesM( request );
+            response = paged( request, reviewMgrImpl::assignedRolesM );
         return response;
     }
 
@@ -1107,7 +1240,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.authorizedUsersM( request );
+            response = paged( request, reviewMgrImpl::authorizedUsersM );
         return response;
     }
 
@@ -1123,7 +1256,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.authorizedRoleM( request );
+            response = paged( request, reviewMgrImpl::authorizedRoleM );
         return response;
     }
 
@@ -1139,7 +1272,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.permissionRolesM( request );
+            response = paged( request, reviewMgrImpl::permissionRolesM );
         return response;
     }
 
@@ -1167,7 +1300,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.rolePermissionsM( request );
+            response = paged( request, reviewMgrImpl::rolePermissionsM );
         return response;
     }
 
@@ -1183,7 +1316,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.userPermissionsM( request );
+            response = paged( request, reviewMgrImpl::userPermissionsM );
         return response;
     }
 
@@ -1199,7 +1332,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.authorizedPermissionRolesM( request );
+            response = paged( request, reviewMgrImpl::authorizedPermissionRolesM );
         return response;
     }
 
@@ -1215,7 +1348,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.permissionUsersM( request );
+            response = paged( request, reviewMgrImpl::permissionUsersM );
         return response;
     }
 
@@ -1231,7 +1364,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = reviewMgrImpl.authorizedPermissionUsersM( request );
+            response = paged( request, reviewMgrImpl::authorizedPermissionUsersM );
         return response;
     }
 
@@ -1449,7 +1582,7 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse createSession( FortRequest request )
     {
-        return accessMgrImpl.createSession( request );
+        return createSessionHandle( request, accessMgrImpl.createSession( request ) );
     }
 
 
@@ -1462,7 +1595,7 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse createSessionTrusted( FortRequest request )
     {
-        return accessMgrImpl.createSessionTrusted( request );
+        return createSessionHandle( request, accessMgrImpl.createSessionTrusted( request ) );
     }
 
 
@@ -1475,7 +1608,7 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse createGroupSession(FortRequest request )
     {
-        return accessMgrImpl.createGroupSession( request );
+        return createSessionHandle( request, accessMgrImpl.createGroupSession( request ) );
     }
 
 
@@ -1488,7 +1621,20 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse checkAccess( FortRequest request )
     {
-        return accessMgrImpl.checkAccess( request );
+        return withSessionHandle( request, false, accessMgrImpl::checkAccess );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @POST
+    @Path("/" + RestIds.RBAC_AUTHZ_BULK + "/")
+    @RolesAllowed({SUPER_USER, ACCESS_MGR_USER})
+    @Override
+    public FortResponse checkAccessBulk( FortRequest request )
+    {
+        return withSessionHandle( request, false, accessMgrImpl::checkAccessBulk );
     }
 
 
@@ -1527,7 +1673,7 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse sessionPermissions( FortRequest request )
     {
-        return accessMgrImpl.sessionPermissions( request );
+        return withSessionHandle( request, false, accessMgrImpl::sessionPermissions );
     }
 
 
@@ -1540,7 +1686,7 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse sessionRoles( FortRequest request )
     {
-        return accessMgrImpl.sessionRoles( request );
+        return withSessionHandle( request, false, accessMgrImpl::sessionRoles );
     }
 
 
@@ -1553,7 +1699,7 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse authorizedSessionRoles( FortRequest request )
     {
-        return accessMgrImpl.authorizedSessionRoles( request );
+        return withSessionHandle( request, false, accessMgrImpl::authorizedSessionRoles );
     }
 
 
@@ -1566,7 +1712,7 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse addActiveRole( FortRequest request )
     {
-        return accessMgrImpl.addActiveRole( request );
+        return withSessionHandle( request, true, accessMgrImpl::addActiveRole );
     }
 
 
@@ -1579,7 +1725,7 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse dropActiveRole( FortRequest request )
     {
-        return accessMgrImpl.dropActiveRole( request );
+        return withSessionHandle( request, true, accessMgrImpl::dropActiveRole );
     }
 
 
@@ -1592,7 +1738,7 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse getUserId( FortRequest request )
     {
-        return accessMgrImpl.getUserId( request );
+        return withSessionHandle( request, false, accessMgrImpl::getUserId );
     }
 
 
@@ -1605,7 +1751,25 @@ public class FortressServiceImpl implements FortressService
     @Override
     public FortResponse getUser( FortRequest request )
     {
-        return accessMgrImpl.getUser( request );
+        return withSessionHandle( request, false, accessMgrImpl::getUser );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @POST
+    @Path("/" + RestIds.SESSION_RELEASE + "/")
+    @RolesAllowed({SUPER_USER, ACCESS_MGR_USER})
+    @Override
+    public FortResponse releaseSession( FortRequest request )
+    {
+        FortResponse response = new FortResponse();
+        response.setErrorCode( GlobalErrIds.NO_ERROR );
+        String handle = httpRequest == null ? null : httpRequest.getHeader( RestIds.SESSION_HANDLE_HEADER );
+        if( handle != null )
+            SessionHandles.getInstance().remove( handle, httpRequest.getRemoteUser() );
+        return response;
     }
 
 
@@ -1966,7 +2130,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = delegatedReviewMgrImpl.searchOrg( request );
+            response = paged( request, delegatedReviewMgrImpl::searchOrg );
         return response;
     }
 
@@ -2239,7 +2403,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = auditMgrImpl.searchBinds( request );
+            response = paged( request, auditMgrImpl::searchBinds );
         return response;
     }
 
@@ -2255,7 +2419,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = auditMgrImpl.getUserAuthZs( request );
+            response = paged( request, auditMgrImpl::getUserAuthZs );
         return response;
     }
 
@@ -2271,7 +2435,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = auditMgrImpl.searchAuthZs( request );
+            response = paged( request, auditMgrImpl::searchAuthZs );
         return response;
     }
 
@@ -2287,7 +2451,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = auditMgrImpl.searchUserSessions( request );
+            response = paged( request, auditMgrImpl::searchUserSessions );
         return response;
     }
 
@@ -2303,7 +2467,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = auditMgrImpl.searchAdminMods( request );
+            response = paged( request, auditMgrImpl::searchAdminMods );
         return response;
     }
 
@@ -2319,7 +2483,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = auditMgrImpl.searchInvalidUsers( request );
+            response = paged( request, auditMgrImpl::searchInvalidUsers );
         return response;
     }
 
@@ -2388,7 +2552,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = configMgrImpl.readConfig( request );
+            response = conditional( request, configMgrImpl::readConfig );
         return response;
     }
 
@@ -2409,7 +2573,7 @@ public class FortressServiceImpl implements FortressService
     {
         FortResponse response = SecUtils.initializeSession(request, httpRequest);
         if( response == null )
-            response = groupMgrImpl.readGroup( request );
+            response = conditional( request, groupMgrImpl::readGroup );
         return response;
     }
 
@@ -2520,6 +2684,21 @@ public class FortressServiceImpl implements FortressService
         return response;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @GET
+    @Path("/" + RestIds.METRICS)
+    @Produces("text/plain; version=0.0.4")
+    @RolesAllowed({SUPER_USER, AUDIT_MGR_USER})
+    @Override
+    public String metrics()
+    {
+        return EndpointMetrics.scrape() + MgrRegistry.getInstance().scrape() + ReadCoalescer.getInstance().scrape()
+            + LaneScheduler.getInstance().scrape() + TenantLimits.getInstance().scrape();
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -46,11 +46,11 @@ class GroupMgrImpl extends AbstractMgrImpl
         
         try
         {
-            GroupMgr groupMgr = GroupMgrFactory.createInstance( request.getContextId() );
-            groupMgr.setAdmin( request.getSession() );
+            GroupMgr groupMgr = getManager( GroupMgr.class, request );
             Group inGroup = (Group) request.getEntity();
             Group outGroup = groupMgr.add( inGroup );
             response.setEntity( outGroup );
+            EntityVersions.getInstance().changed( request.getContextId() );
         }
         catch ( SecurityException se )
         {
@@ -66,8 +66,7 @@ class GroupMgrImpl extends AbstractMgrImpl
 
         try
         {
-            GroupMgr groupMgr = GroupMgrFactory.createInstance( request.getContextId() );
-            groupMgr.setAdmin( request.getSession() );
+            GroupMgr groupMgr = getManager( GroupMgr.class, request );
             Group inGroup = (Group) request.getEntity();
             Group outGroup = groupMgr.read( inGroup );
             response.setEntity( outGroup );
@@ -87,12 +86,12 @@ class GroupMgrImpl extends AbstractMgrImpl
 
         try
         {
-            GroupMgr groupMgr = GroupMgrFactory.createInstance( request.getContextId() );
-            groupMgr.setAdmin( request.getSession() );
+            GroupMgr groupMgr = getManager( GroupMgr.class, request );
             Group inGroup = (Group) request.getEntity();
             Group outGroup = groupMgr.read( inGroup );
             groupMgr.delete( inGroup );
             response.setEntity( outGroup );
+            EntityVersions.getInstance().changed( request.getContextId() );
         }
         catch ( SecurityException se )
         {
@@ -109,11 +108,11 @@ class GroupMgrImpl extends AbstractMgrImpl
 
         try
         {
-            GroupMgr groupMgr = GroupMgrFactory.createInstance( request.getContextId() );
-            groupMgr.setAdmin( request.getSession() );
+            GroupMgr groupMgr = getManager( GroupMgr.class, request );
             Group inGroup = (Group) request.getEntity();
             Group outGroup = groupMgr.update( inGroup );
             response.setEntity( outGroup );
+            EntityVersions.getInstance().changed( request.getContextId() );
         }
         catch ( SecurityException se )
         {
@@ -129,8 +128,7 @@ class GroupMgrImpl extends AbstractMgrImpl
 
         try
         {
-            GroupMgr groupMgr = GroupMgrFactory.createInstance( request.getContextId() );
-            groupMgr.setAdmin( request.getSession() );
+            GroupMgr groupMgr = getManager( GroupMgr.class, request );
             Role inRole = (Role) request.getEntity();
 
             List<Group> groups = groupMgr.roleGroups( inRole );
@@ -151,8 +149,7 @@ class GroupMgrImpl extends AbstractMgrImpl
 
         try
         {
-            GroupMgr groupMgr = GroupMgrFactory.createInstance( request.getContextId() );
-            groupMgr.setAdmin( request.getSession() );
+            GroupMgr groupMgr = getManager( GroupMgr.class, request );
 
             if ( StringUtils.isNotEmpty( request.getValue() ) )
             {
@@ -186,11 +183,11 @@ class GroupMgrImpl extends AbstractMgrImpl
 
         try
         {
-            GroupMgr groupMgr = GroupMgrFactory.createInstance( request.getContextId() );
-            groupMgr.setAdmin( request.getSession() );
+            GroupMgr groupMgr = getManager( GroupMgr.class, request );
             Group inGroup = (Group) request.getEntity();
             String member = request.getValue();
             groupMgr.assign( inGroup, member );
+            EntityVersions.getInstance().changed( request.getContextId() );
         }
         catch ( SecurityException se )
         {
@@ -206,11 +203,11 @@ class GroupMgrImpl extends AbstractMgrImpl
 
         try
         {
-            GroupMgr groupMgr = GroupMgrFactory.createInstance( request.getContextId() );
-            groupMgr.setAdmin( request.getSession() );
+            GroupMgr groupMgr = getManager( GroupMgr.class, request );
             Group inGroup = (Group) request.getEntity();
             String member = request.getValue();
             groupMgr.deassign( inGroup, member );
+            EntityVersions.getInstance().changed( request.getContextId() );
         }
         catch ( SecurityException se )
         {
@@ -23,11 +23,15 @@ import org.apache.directory.fortress.core.model.FortEntity;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * This class is used to marshall/unmarshall subtypes of {@link FortEntity} using only the fields.
  * This mapper ignores all the getter and setters.
+ * <p>
+ * The same rules are used for the binary formats, Smile and CBOR, by passing their factory to the constructor.
+ * The entities returned are written through {@link FieldProjection}, which honors the fields query parameter.
  * 
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -39,11 +43,24 @@ public class JacksonFieldOnlyMapper extends ObjectMapper
      */
     public JacksonFieldOnlyMapper()
     {
-        super();
+        this( null );
+    }
+
+
+    /**
+     * Create a mapper writing another format than JSON, like Smile or CBOR, with the same visibility rules.
+     *
+     * @param factory the factory of the format, null for JSON
+     */
+    public JacksonFieldOnlyMapper( JsonFactory factory )
+    {
+        super( factory );
         // allow access to fields
         setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
         setVisibility(PropertyAccessor.GETTER, Visibility.NONE); // and do not use getters and setters
         setVisibility(PropertyAccessor.IS_GETTER, Visibility.NONE);
         setVisibility(PropertyAccessor.SETTER, Visibility.NONE);
+        // write only the fields a caller asked for, see RestIds.FIELDS
+        FieldProjection.install( this );
     }
 }
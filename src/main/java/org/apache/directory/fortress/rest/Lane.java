@@ -0,0 +1,139 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.directory.fortress.core.rest.HttpIds;
+
+
+/**
+ * The lanes the services are scheduled in by the {@link LaneScheduler}, so a burst of one kind of traffic, like a
+ * reporting job running searches, can't take the threads and directory connections of the authorization calls.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+enum Lane
+{
+    /** The AccessMgr and DelAccessMgr calls: sessions and checkAccess */
+    RUNTIME( "runtime", 200, 1000 ),
+
+    /** Everything else: the AdminMgr, DelAdminMgr, PwPolicyMgr, GroupMgr and ConfigMgr calls */
+    ADMIN( "admin", 20, 200 ),
+
+    /** The ReviewMgr and DelReviewMgr calls, and their streamed variants */
+    REVIEW( "review", 20, 200 ),
+
+    /** The AuditMgr searches */
+    AUDIT( "audit", 5, 50 );
+
+    private static final Set<String> RUNTIME_PATHS = Collections.unmodifiableSet( new HashSet<>( Arrays.asList(
+        HttpIds.RBAC_AUTHN, HttpIds.RBAC_CREATE, HttpIds.RBAC_CREATE_TRUSTED, HttpIds.RBAC_CREATE_GROUP_SESSION,
+        HttpIds.RBAC_AUTHZ, RestIds.RBAC_AUTHZ_BULK, HttpIds.RBAC_CHECK, HttpIds.RBAC_CHECK_ROLE, HttpIds.RBAC_PERMS,
+        HttpIds.RBAC_ROLES, HttpIds.RBAC_AUTHZ_ROLES, HttpIds.RBAC_ADD, HttpIds.RBAC_DROP, HttpIds.RBAC_USERID,
+        HttpIds.RBAC_USER, RestIds.SESSION_RELEASE, HttpIds.ADMIN_ASSIGN, HttpIds.ADMIN_DEASSIGN,
+        HttpIds.ADMIN_GRANT, HttpIds.ADMIN_REVOKE, HttpIds.ADMIN_AUTHZ, HttpIds.ADMIN_ADD, HttpIds.ADMIN_DROP,
+        HttpIds.ADMIN_ROLES, HttpIds.ADMIN_PERMS, HttpIds.ADMIN_AUTHZ_ROLES ) ) );
+
+    private static final Set<String> REVIEW_PATHS = Collections.unmodifiableSet( new HashSet<>( Arrays.asList(
+        HttpIds.PERM_READ, HttpIds.OBJ_READ, HttpIds.PERM_SEARCH, HttpIds.PERM_OBJ_SEARCH, HttpIds.PERM_SEARCH_ANY,
+        HttpIds.OBJ_SEARCH, HttpIds.ROLE_READ, HttpIds.ROLE_SEARCH, HttpIds.USER_READ, HttpIds.USER_SEARCH,
+        HttpIds.USER_ASGNED, HttpIds.USER_ASGNED_CONSTRAINTS, HttpIds.USER_ASGNED_CONSTRAINTS_KEY,
+        HttpIds.ROLE_ASGNED, HttpIds.USER_AUTHZED, HttpIds.ROLE_AUTHZED, HttpIds.PERM_ROLES,
+        HttpIds.ROLE_FIND_CONSTRAINTS, HttpIds.ROLE_PERMS, HttpIds.USER_PERMS, HttpIds.PERM_ROLES_AUTHZED,
+        HttpIds.PERM_USERS, HttpIds.PERM_USERS_AUTHZED, HttpIds.PERM_READ_PERM_ATTRIBUTE_SET,
+        HttpIds.ROLE_PERM_ATTR_SETS, HttpIds.SSD_ROLE_SETS, HttpIds.SSD_READ, HttpIds.SSD_ROLES, HttpIds.SSD_CARD,
+        HttpIds.SSD_SETS, HttpIds.DSD_ROLE_SETS, HttpIds.DSD_READ, HttpIds.DSD_ROLES, HttpIds.DSD_CARD,
+        HttpIds.DSD_SETS, HttpIds.ARLE_READ, HttpIds.ARLE_SEARCH, HttpIds.ARLE_ASGNED, HttpIds.USER_ASGNED_ADMIN,
+        HttpIds.ORG_READ, HttpIds.ORG_SEARCH, RestIds.STREAM + "/{service}" ) ) );
+
+    private static final Set<String> AUDIT_PATHS = Collections.unmodifiableSet( new HashSet<>( Arrays.asList(
+        HttpIds.AUDIT_BINDS, HttpIds.AUDIT_UAUTHZS, HttpIds.AUDIT_AUTHZS, HttpIds.AUDIT_SESSIONS, HttpIds.AUDIT_MODS,
+        HttpIds.AUDIT_INVLD ) ) );
+
+    private final String id;
+    private final int defaultMaxConcurrent;
+    private final int defaultQueueSize;
+
+
+    Lane( String id, int defaultMaxConcurrent, int defaultQueueSize )
+    {
+        this.id = id;
+        this.defaultMaxConcurrent = defaultMaxConcurrent;
+        this.defaultQueueSize = defaultQueueSize;
+    }
+
+
+    /**
+     * @return the name of the lane in the property names and on the metrics page, e.g. runtime
+     */
+    String getId()
+    {
+        return id;
+    }
+
+
+    /**
+     * @return the number of calls run at once when rest.lane.{id}.max.concurrent is not set
+     */
+    int getDefaultMaxConcurrent()
+    {
+        return defaultMaxConcurrent;
+    }
+
+
+    /**
+     * @return the number of calls waiting when rest.lane.{id}.queue.size is not set
+     */
+    int getDefaultQueueSize()
+    {
+        return defaultQueueSize;
+    }
+
+
+    /**
+     * @param path the path template of a service, as returned by {@link MetricsInterceptor#path}
+     * @return the lane of the service, or null for the metrics page which is never held back
+     */
+    static Lane of( String path )
+    {
+        if ( RUNTIME_PATHS.contains( path ) )
+        {
+            return RUNTIME;
+        }
+        else if ( REVIEW_PATHS.contains( path ) )
+        {
+            return REVIEW;
+        }
+        else if ( AUDIT_PATHS.contains( path ) )
+        {
+            return AUDIT;
+        }
+        else if ( RestIds.METRICS.equals( path ) )
+        {
+            return null;
+        }
+
+        return ADMIN;
+    }
+}
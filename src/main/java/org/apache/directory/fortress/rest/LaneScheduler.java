@@ -0,0 +1,267 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Admission control of the service calls, per {@link Lane}.  Every lane runs at most 'max.concurrent' calls at once,
+ * and lets at most 'queue.size' more wait for their turn, up to 'rest.lane.queue.timeout.millis'.  A call finding the
+ * queue of its lane full, or still waiting after the timeout, is shed: the {@link AdmissionInterceptor} answers it
+ * with a 503.
+ * <p>
+ * The limits are read from fortress.properties, per lane: rest.lane.{lane}.max.concurrent and
+ * rest.lane.{lane}.queue.size, where lane is one of runtime, admin, review or audit.  The scheduler is disabled unless
+ * 'rest.lane.enabled' is set to true.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class LaneScheduler
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( LaneScheduler.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.lane.enabled";
+    static final String QUEUE_TIMEOUT_PROP = "rest.lane.queue.timeout.millis";
+    static final String PROP_PREFIX = "rest.lane.";
+    static final String MAX_CONCURRENT_SUFFIX = ".max.concurrent";
+    static final String QUEUE_SIZE_SUFFIX = ".queue.size";
+
+    private static final int DEFAULT_QUEUE_TIMEOUT_MILLIS = 1000;
+
+    /** The limits and counters of one lane */
+    private static final class Limiter
+    {
+        private final int maxConcurrent;
+        private final int queueSize;
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final LongAdder shed = new LongAdder();
+
+        private Limiter( int maxConcurrent, int queueSize )
+        {
+            this.maxConcurrent = maxConcurrent;
+            this.queueSize = queueSize;
+            this.permits = new Semaphore( maxConcurrent, true );
+        }
+    }
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final LaneScheduler INSTANCE = create();
+
+        private static LaneScheduler create()
+        {
+            Config config = Config.getInstance();
+            LaneScheduler scheduler = new LaneScheduler( config.getBoolean( ENABLED_PROP, false ),
+                config.getInt( QUEUE_TIMEOUT_PROP, DEFAULT_QUEUE_TIMEOUT_MILLIS ) );
+
+            for ( Lane lane : Lane.values() )
+            {
+                scheduler.limit( lane,
+                    config.getInt( PROP_PREFIX + lane.getId() + MAX_CONCURRENT_SUFFIX, lane.getDefaultMaxConcurrent() ),
+                    config.getInt( PROP_PREFIX + lane.getId() + QUEUE_SIZE_SUFFIX, lane.getDefaultQueueSize() ) );
+            }
+
+            return scheduler;
+        }
+    }
+
+    private final boolean enabled;
+    private final long queueTimeoutMillis;
+    private final Map<Lane, Limiter> limiters = new EnumMap<>( Lane.class );
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.  Every lane starts with
+     * its default limits.
+     *
+     * @param enabled if false, every call is admitted at once
+     * @param queueTimeoutMillis how long a call waits for its turn before being shed
+     */
+    LaneScheduler( boolean enabled, long queueTimeoutMillis )
+    {
+        this.enabled = enabled;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+
+        for ( Lane lane : Lane.values() )
+        {
+            limiters.put( lane, new Limiter( lane.getDefaultMaxConcurrent(), lane.getDefaultQueueSize() ) );
+        }
+    }
+
+
+    /**
+     * @return the scheduler used by the AdmissionInterceptor
+     */
+    static LaneScheduler getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * Set the limits of a lane, only called while the scheduler is built.
+     *
+     * @param lane the lane
+     * @param maxConcurrent the number of calls run at once
+     * @param queueSize the number of calls waiting for their turn
+     */
+    void limit( Lane lane, int maxConcurrent, int queueSize )
+    {
+        limiters.put( lane, new Limiter( maxConcurrent, queueSize ) );
+
+        if ( enabled )
+        {
+            LOG.info( "LaneScheduler lane={}, maxConcurrent={}, queueSize={}, queueTimeoutMillis={}", lane.getId(),
+                maxConcurrent, queueSize, queueTimeoutMillis );
+        }
+    }
+
+
+    /**
+     * Wait for the turn of a call in its lane.  A call that is admitted must be {@link #release released} when it
+     * completes.
+     *
+     * @param lane the lane of the call, may be null for a call that is never held back
+     * @return false if the call is shed
+     */
+    boolean admit( Lane lane )
+    {
+        if ( !enabled || ( lane == null ) )
+        {
+            return true;
+        }
+
+        Limiter limiter = limiters.get( lane );
+
+        if ( limiter.permits.tryAcquire() )
+        {
+            return true;
+        }
+
+        if ( limiter.queued.incrementAndGet() > limiter.queueSize )
+        {
+            limiter.queued.decrementAndGet();
+            limiter.shed.increment();
+
+            return false;
+        }
+
+        try
+        {
+            if ( limiter.permits.tryAcquire( queueTimeoutMillis, TimeUnit.MILLISECONDS ) )
+            {
+                return true;
+            }
+        }
+        catch ( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            limiter.queued.decrementAndGet();
+        }
+
+        limiter.shed.increment();
+
+        return false;
+    }
+
+
+    /**
+     * @param lane the lane of a call that was admitted
+     */
+    void release( Lane lane )
+    {
+        if ( enabled && ( lane != null ) )
+        {
+            limiters.get( lane ).permits.release();
+        }
+    }
+
+
+    /**
+     * @param lane the lane
+     * @return the number of calls shed in this lane
+     */
+    long getShed( Lane lane )
+    {
+        return limiters.get( lane ).shed.sum();
+    }
+
+
+    /**
+     * Render the state of the lanes in the Prometheus text exposition format, version 0.0.4.
+     *
+     * @return the lines of the scrape page, empty if the scheduler is disabled
+     */
+    String scrape()
+    {
+        if ( !enabled )
+        {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append( "# HELP fortress_rest_lane_active Calls running in a lane\n" );
+        sb.append( "# TYPE fortress_rest_lane_active gauge\n" );
+
+        for ( Map.Entry<Lane, Limiter> entry : limiters.entrySet() )
+        {
+            Limiter limiter = entry.getValue();
+            sb.append( "fortress_rest_lane_active{lane=\"" ).append( entry.getKey().getId() ).append( "\"} " )
+                .append( limiter.maxConcurrent - limiter.permits.availablePermits() ).append( '\n' );
+        }
+
+        sb.append( "# HELP fortress_rest_lane_queued Calls waiting for their turn in a lane\n" );
+        sb.append( "# TYPE fortress_rest_lane_queued gauge\n" );
+
+        for ( Map.Entry<Lane, Limiter> entry : limiters.entrySet() )
+        {
+            sb.append( "fortress_rest_lane_queued{lane=\"" ).append( entry.getKey().getId() ).append( "\"} " )
+                .append( entry.getValue().queued.get() ).append( '\n' );
+        }
+
+        sb.append( "# HELP fortress_rest_lane_shed_total Calls answered with a 503 because their lane was saturated\n" );
+        sb.append( "# TYPE fortress_rest_lane_shed_total counter\n" );
+
+        for ( Map.Entry<Lane, Limiter> entry : limiters.entrySet() )
+        {
+            sb.append( "fortress_rest_lane_shed_total{lane=\"" ).append( entry.getKey().getId() ).append( "\"} " )
+                .append( entry.getValue().shed.sum() ).append( '\n' );
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.jaxrs.model.OperationResourceInfo;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageContentsList;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.directory.fortress.core.model.FortResponse;
+
+/**
+ * Interceptor timing the requests into {@link EndpointMetrics}.  One instance is registered for each of these phases:
+ * <ul>
+ *   <li>in, receive: the request starts</li>
+ *   <li>in, pre-invoke: the service is called, after the authorization check</li>
+ *   <li>out, setup: the service returned, its FortResponse error code is read</li>
+ *   <li>out, post-marshal: the response is written, the request is recorded</li>
+ *   <li>out fault, setup: the request ended with a fault, it is recorded</li>
+ * </ul>
+ * SecUtils reports its own time through {@link #secUtilsTime(long)}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class MetricsInterceptor extends AbstractPhaseInterceptor<Message>
+{
+    /** The path recorded when no service matched the request */
+    private static final String UNMATCHED = "unmatched";
+
+    /** The timestamps of a request, kept on its exchange */
+    static final class RequestTimer
+    {
+        private final long start = System.nanoTime();
+        private String path = UNMATCHED;
+        private long invokeStart = -1;
+        private long invokeEnd = -1;
+        private long secUtils = -1;
+        private int errorCode;
+    }
+
+
+    /**
+     * @param phase The CXF phase this instance runs in, one of receive, pre-invoke, setup or post-marshal
+     */
+    public MetricsInterceptor( String phase )
+    {
+        super( phase );
+
+        if ( Phase.PRE_INVOKE.equals( phase ) )
+        {
+            addAfter( FortressInterceptor.class.getName() );
+        }
+        else if ( Phase.POST_MARSHAL.equals( phase ) )
+        {
+            addAfter( FortressResponseInterceptor.class.getName() );
+        }
+    }
+
+
+    @Override
+    public void handleMessage( Message message ) throws Fault
+    {
+        Exchange exchange = message.getExchange();
+
+        if ( Phase.RECEIVE.equals( getPhase() ) )
+        {
+            exchange.put( RequestTimer.class, new RequestTimer() );
+
+            return;
+        }
+
+        RequestTimer timer = exchange.get( RequestTimer.class );
+
+        if ( timer == null )
+        {
+            return;
+        }
+
+        long now = System.nanoTime();
+
+        switch ( getPhase() )
+        {
+            case Phase.PRE_INVOKE:
+                timer.path = path( exchange );
+                timer.invokeStart = now;
+                break;
+
+            case Phase.SETUP:
+                if ( message == exchange.getOutFaultMessage() )
+                {
+                    record( timer, now, -1, EndpointMetrics.FAULT, exchange );
+                }
+                else
+                {
+                    timer.invokeEnd = now;
+                    timer.errorCode = errorCode( message );
+                }
+                break;
+
+            case Phase.POST_MARSHAL:
+                record( timer, now, timer.invokeEnd < 0 ? -1 : now - timer.invokeEnd, timer.errorCode, exchange );
+                break;
+
+            default:
+                break;
+        }
+    }
+
+
+    /**
+     * Add the time spent deserializing the session of the current request, a no-op outside of a CXF request.
+     *
+     * @param nanos The time spent in SecUtils.initializeSession
+     */
+    static void secUtilsTime( long nanos )
+    {
+        Message message = AsyncInvokeInterceptor.currentMessage();
+
+        if ( message != null )
+        {
+            RequestTimer timer = message.getExchange().get( RequestTimer.class );
+
+            if ( timer != null )
+            {
+                timer.secUtils = Math.max( timer.secUtils, 0 ) + nanos;
+            }
+        }
+    }
+
+
+    private static void record( RequestTimer timer, long now, long marshal, int errorCode, Exchange exchange )
+    {
+        // A request may reach both the fault and the normal out chain, only the first one counts
+        exchange.remove( RequestTimer.class );
+
+        if ( UNMATCHED.equals( timer.path ) )
+        {
+            timer.path = path( exchange );
+        }
+
+        long manager = -1;
+
+        if ( ( timer.invokeStart >= 0 ) && ( timer.invokeEnd >= 0 ) )
+        {
+            manager = timer.invokeEnd - timer.invokeStart - Math.max( timer.secUtils, 0 );
+        }
+
+        EndpointMetrics.get( timer.path ).record( now - timer.start, timer.secUtils, manager, marshal, errorCode );
+    }
+
+
+    /**
+     * @param exchange The exchange of the request
+     * @return The path template of the service called, e.g. userAdd or stream/{service}, or unmatched
+     */
+    static String path( Exchange exchange )
+    {
+        OperationResourceInfo ori = exchange.get( OperationResourceInfo.class );
+
+        if ( ( ori == null ) || ( ori.getURITemplate() == null ) )
+        {
+            return UNMATCHED;
+        }
+
+        String path = ori.getURITemplate().getValue();
+        int begin = path.startsWith( "/" ) ? 1 : 0;
+        int end = path.endsWith( "/" ) && path.length() > begin ? path.length() - 1 : path.length();
+
+        return path.substring( begin, end ).replace( "\"", "" ).replace( "\\", "" );
+    }
+
+
+    private static int errorCode( Message message )
+    {
+        MessageContentsList objs = MessageContentsList.getContentsList( message );
+
+        if ( ( objs != null ) && !objs.isEmpty() && ( objs.get( 0 ) instanceof FortResponse ) )
+        {
+            return ( ( FortResponse ) objs.get( 0 ) ).getErrorCode();
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.AccessMgrFactory;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.AdminMgrFactory;
+import org.apache.directory.fortress.core.AuditMgr;
+import org.apache.directory.fortress.core.AuditMgrFactory;
+import org.apache.directory.fortress.core.DelAccessMgr;
+import org.apache.directory.fortress.core.DelAccessMgrFactory;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgrFactory;
+import org.apache.directory.fortress.core.DelReviewMgr;
+import org.apache.directory.fortress.core.DelReviewMgrFactory;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.GroupMgr;
+import org.apache.directory.fortress.core.GroupMgrFactory;
+import org.apache.directory.fortress.core.Manageable;
+import org.apache.directory.fortress.core.PwPolicyMgr;
+import org.apache.directory.fortress.core.PwPolicyMgrFactory;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgrFactory;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Holds the Fortress manager instances for every tenant (contextId), so they are created once instead of on every
+ * request.  Managers used without an admin session are shared by all threads.  Managers that must carry the caller's
+ * ARBAC session are bound to the current thread, and {@link Manageable#setAdmin(Session)} is reapplied on each call, so
+ * no two requests ever see each other's admin session.  Tenants not used within 'rest.mgr.cache.idle.seconds' are
+ * dropped.  The reuse counters are published on JMX and on the metrics page.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class MgrRegistry implements MgrRegistryMBean
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( MgrRegistry.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.mgr.cache.enabled";
+    static final String IDLE_SECONDS_PROP = "rest.mgr.cache.idle.seconds";
+
+    private static final int DEFAULT_IDLE_SECONDS = 1800;
+
+    /** Creates a manager for a given contextId */
+    @FunctionalInterface
+    interface Factory<T extends Manageable>
+    {
+        T createInstance( String contextId ) throws SecurityException;
+    }
+
+    /** The core factories, keyed by the manager interface they produce */
+    private static final Map<Class<?>, Factory<?>> FACTORIES = new HashMap<>();
+
+    static
+    {
+        FACTORIES.put( AccessMgr.class, AccessMgrFactory::createInstance );
+        FACTORIES.put( AdminMgr.class, AdminMgrFactory::createInstance );
+        FACTORIES.put( AuditMgr.class, AuditMgrFactory::createInstance );
+        FACTORIES.put( DelAccessMgr.class, DelAccessMgrFactory::createInstance );
+        FACTORIES.put( DelAdminMgr.class, DelAdminMgrFactory::createInstance );
+        FACTORIES.put( DelReviewMgr.class, DelReviewMgrFactory::createInstance );
+        FACTORIES.put( GroupMgr.class, GroupMgrFactory::createInstance );
+        FACTORIES.put( PwPolicyMgr.class, PwPolicyMgrFactory::createInstance );
+        FACTORIES.put( ReviewMgr.class, ReviewMgrFactory::createInstance );
+    }
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final MgrRegistry INSTANCE = new MgrRegistry(
+            Config.getInstance().getBoolean( ENABLED_PROP, true ),
+            Config.getInstance().getInt( IDLE_SECONDS_PROP, DEFAULT_IDLE_SECONDS ) * 1000L, FACTORIES );
+
+        static
+        {
+            INSTANCE.registerMBean();
+        }
+    }
+
+    /** The managers of one tenant */
+    private static final class Tenant
+    {
+        private final ConcurrentMap<Class<?>, Manageable> shared = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Class<?>, ThreadLocal<Manageable>> bound = new ConcurrentHashMap<>();
+        private volatile long lastAccess = System.currentTimeMillis();
+    }
+
+    private final boolean enabled;
+    private final long idleMillis;
+    private final Map<Class<?>, Factory<?>> factories;
+    private final ConcurrentMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private volatile long lastSweep = System.currentTimeMillis();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.
+     *
+     * @param enabled if false, every call creates a new manager, as before
+     * @param idleMillis how long a tenant may stay unused before its managers are dropped
+     * @param factories the factories, keyed by the manager interface they produce
+     */
+    MgrRegistry( boolean enabled, long idleMillis, Map<Class<?>, Factory<?>> factories )
+    {
+        this.enabled = enabled;
+        this.idleMillis = idleMillis;
+        this.factories = factories;
+        LOG.info( "MgrRegistry enabled={}, idleMillis={}", enabled, idleMillis );
+    }
+
+
+    /**
+     * @return the registry shared by all the *MgrImpl classes
+     */
+    static MgrRegistry getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * Return a manager for the given tenant.
+     *
+     * @param type the manager interface, e.g. {@code AdminMgr.class}
+     * @param contextId the tenant id, null or empty for the default tenant
+     * @param adminSession the ARBAC session of the caller, may be null
+     * @param <T> the manager type
+     * @return a manager ready to use by the current thread
+     * @throws SecurityException if the core factory fails
+     */
+    <T extends Manageable> T getManager( Class<T> type, String contextId, Session adminSession ) throws SecurityException
+    {
+        Manageable mgr;
+
+        if ( !enabled )
+        {
+            misses.incrementAndGet();
+            mgr = create( type, contextId );
+        }
+        else
+        {
+            Tenant tenant = tenants.computeIfAbsent( key( contextId ), k -> new Tenant() );
+            long now = System.currentTimeMillis();
+            tenant.lastAccess = now;
+
+            if ( adminSession == null )
+            {
+                mgr = tenant.shared.get( type );
+
+                if ( mgr == null )
+                {
+                    misses.incrementAndGet();
+                    Manageable created = create( type, contextId );
+                    mgr = tenant.shared.putIfAbsent( type, created );
+
+                    if ( mgr == null )
+                    {
+                        mgr = created;
+                    }
+                }
+                else
+                {
+                    hits.incrementAndGet();
+                }
+            }
+            else
+            {
+                ThreadLocal<Manageable> local = tenant.bound.computeIfAbsent( type, t -> new ThreadLocal<>() );
+                mgr = local.get();
+
+                if ( mgr == null )
+                {
+                    misses.incrementAndGet();
+                    mgr = create( type, contextId );
+                    local.set( mgr );
+                }
+                else
+                {
+                    hits.incrementAndGet();
+                }
+            }
+
+            if ( now - lastSweep > idleMillis )
+            {
+                evictIdle( now );
+            }
+        }
+
+        if ( adminSession != null )
+        {
+            mgr.setAdmin( adminSession );
+        }
+
+        return type.cast( mgr );
+    }
+
+
+    /**
+     * Drop the managers of every tenant that has not been used for longer than the idle period.
+     *
+     * @param now the current time, in milliseconds
+     */
+    void evictIdle( long now )
+    {
+        lastSweep = now;
+        Iterator<Map.Entry<String, Tenant>> it = tenants.entrySet().iterator();
+
+        while ( it.hasNext() )
+        {
+            Map.Entry<String, Tenant> entry = it.next();
+
+            if ( now - entry.getValue().lastAccess > idleMillis )
+            {
+                it.remove();
+                evictions.incrementAndGet();
+                LOG.debug( "MgrRegistry evicted idle tenant {}", entry.getKey() );
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTenantCount()
+    {
+        return tenants.size();
+    }
+
+
+    /**
+     * Render the reuse counters in the Prometheus text exposition format, version 0.0.4.
+     *
+     * @return the lines of the scrape page
+     */
+    String scrape()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "# HELP fortress_rest_mgr_reuse_total Calls served by an existing manager (hit) or a new one (miss)\n" );
+        sb.append( "# TYPE fortress_rest_mgr_reuse_total counter\n" );
+        sb.append( "fortress_rest_mgr_reuse_total{result=\"hit\"} " ).append( hits.get() ).append( '\n' );
+        sb.append( "fortress_rest_mgr_reuse_total{result=\"miss\"} " ).append( misses.get() ).append( '\n' );
+        sb.append( "# HELP fortress_rest_mgr_evictions_total Tenants whose managers were dropped after being idle\n" );
+        sb.append( "# TYPE fortress_rest_mgr_evictions_total counter\n" );
+        sb.append( "fortress_rest_mgr_evictions_total " ).append( evictions.get() ).append( '\n' );
+        sb.append( "# HELP fortress_rest_mgr_tenants Tenants currently holding managers\n" );
+        sb.append( "# TYPE fortress_rest_mgr_tenants gauge\n" );
+        sb.append( "fortress_rest_mgr_tenants " ).append( tenants.size() ).append( '\n' );
+
+        return sb.toString();
+    }
+
+
+    /**
+     * The tenant key, the default tenant being {@link GlobalIds#HOME}.
+     *
+     * @param contextId the contextId carried by the request
+     * @return the key used in the tenant map
+     */
+    static String key( String contextId )
+    {
+        return StringUtils.isEmpty( contextId ) ? GlobalIds.HOME : contextId;
+    }
+
+
+    private Manageable create( Class<?> type, String contextId ) throws SecurityException
+    {
+        Factory<?> factory = factories.get( type );
+
+        if ( factory == null )
+        {
+            throw new IllegalArgumentException( "MgrRegistry has no factory for " + type.getName() );
+        }
+
+        return factory.createInstance( contextId );
+    }
+
+
+    private void registerMBean()
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName( ExpiringCache.JMX_DOMAIN + ":type=Registry,name=Managers" );
+
+            if ( !server.isRegistered( objectName ) )
+            {
+                server.registerMBean( this, objectName );
+            }
+        }
+        catch ( JMException e )
+        {
+            LOG.warn( "MgrRegistry.registerMBean could not register, caught " + e );
+        }
+    }
+}
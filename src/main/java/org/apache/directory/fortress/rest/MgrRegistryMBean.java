@@ -0,0 +1,48 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+/**
+ * JMX view of the {@link MgrRegistry}, how often the manager instances of a tenant are reused.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface MgrRegistryMBean
+{
+    /**
+     * @return the number of calls served by an existing manager
+     */
+    long getHits();
+
+    /**
+     * @return the number of calls that had to create a manager
+     */
+    long getMisses();
+
+    /**
+     * @return the number of tenants dropped after being idle
+     */
+    long getEvictions();
+
+    /**
+     * @return the number of tenants currently holding managers
+     */
+    int getTenantCount();
+}
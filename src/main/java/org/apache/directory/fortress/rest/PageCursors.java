@@ -0,0 +1,255 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Pages the entities returned by the search services.  A client asks for pages by passing the 'pageSize' query
+ * parameter: the search runs once, the first page is returned, and if entities remain they are kept in a cursor whose
+ * opaque token is returned in the 'X-Fortress-Page-Token' response header.  The next page is fetched by sending the
+ * same request with that token in the 'pageToken' query parameter, the search is then not run again.
+ * <p>
+ * A token can be used once, by the user and on the service it was issued for, and expires after
+ * 'rest.page.cursor.ttl.seconds'.  At most 'rest.page.cursor.max.size' cursors, holding at most
+ * 'rest.page.cursor.max.entities' entities between them, are kept: other cursors are dropped to make room, and a
+ * search whose remaining entities alone exceed that bound is refused.  A token whose cursor was used, dropped or has
+ * expired gets a 410 error telling the client to run the search again.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class PageCursors
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( PageCursors.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String MAX_SIZE_PROP = "rest.page.cursor.max.size";
+    static final String TTL_SECONDS_PROP = "rest.page.cursor.ttl.seconds";
+    static final String MAX_PAGE_SIZE_PROP = "rest.page.max.size";
+    static final String MAX_ENTITIES_PROP = "rest.page.cursor.max.entities";
+
+    private static final int DEFAULT_MAX_SIZE = 1000;
+    private static final int DEFAULT_TTL_SECONDS = 300;
+    private static final int DEFAULT_MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_MAX_ENTITIES = 100000;
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final PageCursors INSTANCE = new PageCursors(
+            Config.getInstance().getInt( MAX_SIZE_PROP, DEFAULT_MAX_SIZE ),
+            Config.getInstance().getInt( TTL_SECONDS_PROP, DEFAULT_TTL_SECONDS ) * 1000L,
+            Config.getInstance().getInt( MAX_PAGE_SIZE_PROP, DEFAULT_MAX_PAGE_SIZE ),
+            Config.getInstance().getInt( MAX_ENTITIES_PROP, DEFAULT_MAX_ENTITIES ) );
+
+        static
+        {
+            INSTANCE.cursors.registerMBean();
+        }
+    }
+
+    /** The result of a search, the position of its next page, and who may fetch it */
+    private static final class Cursor
+    {
+        private final String owner;
+        private final String service;
+        private final int pageSize;
+        private final List<FortEntity> entities;
+        private final int offset;
+
+        private Cursor( String owner, String service, int pageSize, List<FortEntity> entities, int offset )
+        {
+            this.owner = owner;
+            this.service = service;
+            this.pageSize = pageSize;
+            this.entities = entities;
+            this.offset = offset;
+        }
+
+
+        /**
+         * @return the number of entities not returned yet, the weight of this cursor in the cache
+         */
+        private int remaining()
+        {
+            return entities.size() - offset;
+        }
+    }
+
+    private final SecureRandom random = new SecureRandom();
+    private final ExpiringCache<String, Cursor> cursors;
+    private final int maxPageSize;
+    private final int maxEntities;
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.
+     *
+     * @param maxSize the maximum number of open cursors
+     * @param ttlMillis how long an unused cursor is kept
+     * @param maxPageSize the largest page a client may ask for
+     * @param maxEntities the maximum number of entities held by all the open cursors
+     */
+    PageCursors( int maxSize, long ttlMillis, int maxPageSize, int maxEntities )
+    {
+        this.cursors = new ExpiringCache<>( "PageCursors", maxSize, ttlMillis, Cursor::remaining, maxEntities );
+        this.maxPageSize = maxPageSize;
+        this.maxEntities = maxEntities;
+    }
+
+
+    /**
+     * @return the cursors used by FortressServiceImpl
+     */
+    static PageCursors getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * Run a search, or continue one, and page its entities.
+     *
+     * @param request The request of the search service
+     * @param search The search, only run when no token is given
+     * @param owner The user calling, a token is only honored for the user it was issued to
+     * @param service The service called, a token is only honored for the service it was issued for
+     * @param pageSize The 'pageSize' query parameter, may be null
+     * @param token The 'pageToken' query parameter, may be null
+     * @param nextToken Receives the token of the next page, if any
+     * @return The response, holding one page of entities
+     */
+    FortResponse page( FortRequest request, Function<FortRequest, FortResponse> search, String owner, String service,
+        String pageSize, String token, StringBuilder nextToken )
+    {
+        if ( token != null )
+        {
+            Cursor cursor = cursors.get( token );
+            // A token is good for one page only
+            cursors.remove( token );
+
+            if ( cursor == null )
+            {
+                return createError( "PageCursors page token expired or already used, run the search again",
+                    GlobalErrIds.REST_NOT_FOUND_ERR, 410 );
+            }
+
+            if ( !Objects.equals( cursor.owner, owner ) || !cursor.service.equals( service ) )
+            {
+                return createError( "PageCursors unknown page token", GlobalErrIds.REST_NOT_FOUND_ERR, 404 );
+            }
+
+            FortResponse response = new FortResponse();
+            response.setErrorCode( GlobalErrIds.NO_ERROR );
+            response.setEntities( nextPage( cursor, owner, service, nextToken ) );
+
+            return response;
+        }
+
+        FortResponse response = search.apply( request );
+
+        if ( ( pageSize == null ) || ( response.getErrorCode() != GlobalErrIds.NO_ERROR )
+            || ( response.getEntities() == null ) )
+        {
+            return response;
+        }
+
+        int size;
+
+        try
+        {
+            size = Math.min( Integer.parseInt( pageSize ), maxPageSize );
+        }
+        catch ( NumberFormatException nfe )
+        {
+            size = 0;
+        }
+
+        if ( size <= 0 )
+        {
+            return createError( "PageCursors invalid pageSize: " + pageSize, GlobalErrIds.REST_WEB_ERR, 400 );
+        }
+
+        if ( response.getEntities().size() - size > maxEntities )
+        {
+            return createError( "PageCursors search returned " + response.getEntities().size()
+                + " entities, more than " + MAX_ENTITIES_PROP + " can keep, narrow the search",
+                GlobalErrIds.REST_WEB_ERR, 400 );
+        }
+
+        Cursor cursor = new Cursor( owner, service, size, response.getEntities(), 0 );
+        response.setEntities( nextPage( cursor, owner, service, nextToken ) );
+
+        return response;
+    }
+
+
+    private List<FortEntity> nextPage( Cursor cursor, String owner, String service, StringBuilder nextToken )
+    {
+        List<FortEntity> entities = cursor.entities;
+        int end = Math.min( cursor.offset + cursor.pageSize, entities.size() );
+        List<FortEntity> page = new ArrayList<>( entities.subList( cursor.offset, end ) );
+
+        if ( end < entities.size() )
+        {
+            String token = newToken();
+            cursors.put( token, new Cursor( owner, service, cursor.pageSize, entities, end ) );
+            nextToken.append( token );
+        }
+
+        return page;
+    }
+
+
+    private String newToken()
+    {
+        byte[] bytes = new byte[16];
+        random.nextBytes( bytes );
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString( bytes );
+    }
+
+
+    private static FortResponse createError( String errMsg, int errorCode, int httpStatus )
+    {
+        LOG.info( errMsg );
+        FortResponse response = new FortResponse();
+        response.setErrorCode( errorCode );
+        response.setErrorMessage( errMsg );
+        response.setHttpStatus( httpStatus );
+
+        return response;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.Permission;
+
+/**
+ * Carries the permissions of a {@link FortressService#checkAccessBulk(org.apache.directory.fortress.core.model.FortRequest)}
+ * call, and the decisions returned for them.  {@link #getResults()} is parallel to {@link #getPermissions()}: the
+ * decision for the permission at index i is at index i.
+ * <p>
+ * This entity is only exchanged as JSON, it is not known to the JAXB context of Fortress Core.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PermCheckSet extends FortEntity
+{
+    private static final long serialVersionUID = 1L;
+
+    private List<Permission> permissions = new ArrayList<>();
+    private List<Boolean> results;
+
+
+    /**
+     * default constructor
+     */
+    public PermCheckSet()
+    {
+    }
+
+
+    /**
+     * @return the permissions to check
+     */
+    public List<Permission> getPermissions()
+    {
+        return permissions;
+    }
+
+
+    /**
+     * @param permissions the permissions to check
+     */
+    public void setPermissions( List<Permission> permissions )
+    {
+        this.permissions = permissions;
+    }
+
+
+    /**
+     * @return one decision per permission, in the same order, null until checked
+     */
+    public List<Boolean> getResults()
+    {
+        return results;
+    }
+
+
+    /**
+     * @param results one decision per permission, in the same order
+     */
+    public void setResults( List<Boolean> results )
+    {
+        this.results = results;
+    }
+}
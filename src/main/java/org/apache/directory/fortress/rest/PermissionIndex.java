@@ -0,0 +1,473 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An in-memory inverted index of the RBAC grants of each tenant: from a permission, its (objName, opName, objId), to
+ * the roles and users it is granted to, and from a role to the users assigned to it.  It serves the permissionRoles,
+ * permissionUsers, authorizedPermissionRoles and authorizedPermissionUsers reviews without a directory search.
+ * <p>
+ * The index of a tenant is loaded on first use with one permission search and one user search, and reloaded after
+ * 'rest.perm.index.ttl.seconds'.  The grants, revocations and assignments made through AdminMgrImpl are applied to it
+ * in place, the other changes to users, roles and permissions drop it.  A permission the index does not know is
+ * reported as such, the caller then asks the directory, so a permission created elsewhere is still found.
+ * <p>
+ * The index is disabled unless 'rest.perm.index.enabled' is set to true.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class PermissionIndex
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( PermissionIndex.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.perm.index.enabled";
+    static final String TTL_SECONDS_PROP = "rest.perm.index.ttl.seconds";
+
+    private static final int DEFAULT_TTL_SECONDS = 300;
+
+    /** Loads the grants and the assignments of a tenant */
+    interface Loader
+    {
+        /**
+         * @return all the permissions of the tenant, with the roles and users they are granted to
+         * @throws SecurityException if the permissions can't be read
+         */
+        List<Permission> permissions() throws SecurityException;
+
+        /**
+         * @return all the users of the tenant, with their assigned roles
+         * @throws SecurityException if the users can't be read
+         */
+        List<User> users() throws SecurityException;
+    }
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final PermissionIndex INSTANCE = new PermissionIndex(
+            Config.getInstance().getBoolean( ENABLED_PROP, false ),
+            Config.getInstance().getInt( TTL_SECONDS_PROP, DEFAULT_TTL_SECONDS ) * 1000L );
+    }
+
+    /** The roles and users a permission is granted to */
+    private static final class Grants
+    {
+        private final Set<String> roles = new ConcurrentSkipListSet<>( String.CASE_INSENSITIVE_ORDER );
+        private final Set<String> users = new ConcurrentSkipListSet<>( String.CASE_INSENSITIVE_ORDER );
+    }
+
+    /** The index of one tenant.  Its monitor serializes the loads and the changes, the reads don't lock */
+    private static final class Tenant
+    {
+        private volatile ConcurrentMap<String, Grants> grants = new ConcurrentHashMap<>();
+        private volatile ConcurrentMap<String, Set<String>> roleUsers = new ConcurrentHashMap<>();
+        private volatile long expires;
+    }
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final ConcurrentMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.
+     *
+     * @param enabled if false, the index is never used
+     * @param ttlMillis how long the index of a tenant is used before being reloaded
+     */
+    PermissionIndex( boolean enabled, long ttlMillis )
+    {
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+
+        if ( enabled )
+        {
+            LOG.info( "PermissionIndex enabled, ttlMillis={}", ttlMillis );
+        }
+    }
+
+
+    /**
+     * @return the index used by the Mgr implementations
+     */
+    static PermissionIndex getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * @param reviewMgr the ReviewMgr of a tenant
+     * @return a loader reading the grants and assignments of that tenant
+     */
+    static Loader loader( final ReviewMgr reviewMgr )
+    {
+        return new Loader()
+        {
+            @Override
+            public List<Permission> permissions() throws SecurityException
+            {
+                return reviewMgr.findPermissions( new Permission( "", "" ) );
+            }
+
+
+            @Override
+            public List<User> users() throws SecurityException
+            {
+                return reviewMgr.findUsers( new User( "" ) );
+            }
+        };
+    }
+
+
+    /**
+     * @return true if the permission reviews are answered from the index
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * @param contextId the tenant
+     * @param perm the permission
+     * @param loader loads the tenant if its index is not loaded
+     * @return the roles the permission is granted to, or null if the index does not know the permission
+     * @throws SecurityException if the tenant can't be loaded
+     */
+    List<String> permissionRoles( String contextId, Permission perm, Loader loader ) throws SecurityException
+    {
+        Grants grants = tenant( contextId, loader ).grants.get( AccessMgrImpl.permKey( perm ) );
+
+        return grants == null ? null : new ArrayList<>( grants.roles );
+    }
+
+
+    /**
+     * @param contextId the tenant
+     * @param perm the permission
+     * @param loader loads the tenant if its index is not loaded
+     * @return the users the permission is directly granted to, or null if the index does not know the permission
+     * @throws SecurityException if the tenant can't be loaded
+     */
+    List<String> permissionUsers( String contextId, Permission perm, Loader loader ) throws SecurityException
+    {
+        Grants grants = tenant( contextId, loader ).grants.get( AccessMgrImpl.permKey( perm ) );
+
+        return grants == null ? null : new ArrayList<>( grants.users );
+    }
+
+
+    /**
+     * @param contextId the tenant
+     * @param roleNames the roles
+     * @param loader loads the tenant if its index is not loaded
+     * @return the users assigned to any of the roles, ordered ignoring the case
+     * @throws SecurityException if the tenant can't be loaded
+     */
+    Set<String> assignedUsers( String contextId, Collection<String> roleNames, Loader loader )
+        throws SecurityException
+    {
+        Tenant tenant = tenant( contextId, loader );
+        Set<String> users = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+
+        for ( String roleName : roleNames )
+        {
+            Set<String> assigned = tenant.roleUsers.get( roleKey( roleName ) );
+
+            if ( assigned != null )
+            {
+                users.addAll( assigned );
+            }
+        }
+
+        return users;
+    }
+
+
+    /**
+     * Record a new permission, granted to nobody yet, in the loaded index of a tenant.
+     *
+     * @param contextId the tenant
+     * @param perm the permission created
+     */
+    void permissionAdded( String contextId, Permission perm )
+    {
+        Tenant tenant = loadedTenant( contextId );
+
+        if ( tenant != null )
+        {
+            synchronized ( tenant )
+            {
+                add( tenant.grants, perm );
+            }
+        }
+    }
+
+
+    /**
+     * Record a grant in the loaded index of a tenant.
+     *
+     * @param contextId the tenant
+     * @param perm the permission
+     * @param roleName the role granted the permission, or null
+     * @param userId the user granted the permission, or null
+     */
+    void granted( String contextId, Permission perm, String roleName, String userId )
+    {
+        Tenant tenant = loadedTenant( contextId );
+
+        if ( tenant == null )
+        {
+            return;
+        }
+
+        synchronized ( tenant )
+        {
+            Grants grants = tenant.grants.get( AccessMgrImpl.permKey( perm ) );
+
+            if ( grants == null )
+            {
+                // The permission was created elsewhere, the next load will know it
+                return;
+            }
+
+            if ( roleName != null )
+            {
+                grants.roles.add( roleName );
+            }
+
+            if ( userId != null )
+            {
+                grants.users.add( userId );
+            }
+        }
+    }
+
+
+    /**
+     * Record a revocation in the loaded index of a tenant.
+     *
+     * @param contextId the tenant
+     * @param perm the permission
+     * @param roleName the role the permission is revoked from, or null
+     * @param userId the user the permission is revoked from, or null
+     */
+    void revoked( String contextId, Permission perm, String roleName, String userId )
+    {
+        Tenant tenant = loadedTenant( contextId );
+
+        if ( tenant == null )
+        {
+            return;
+        }
+
+        synchronized ( tenant )
+        {
+            Grants grants = tenant.grants.get( AccessMgrImpl.permKey( perm ) );
+
+            if ( grants != null )
+            {
+                if ( roleName != null )
+                {
+                    grants.roles.remove( roleName );
+                }
+
+                if ( userId != null )
+                {
+                    grants.users.remove( userId );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Record a role assignment in the loaded index of a tenant.
+     *
+     * @param contextId the tenant
+     * @param roleName the role
+     * @param userId the user assigned to it
+     */
+    void userAssigned( String contextId, String roleName, String userId )
+    {
+        Tenant tenant = loadedTenant( contextId );
+
+        if ( tenant != null )
+        {
+            synchronized ( tenant )
+            {
+                assign( tenant.roleUsers, roleName, userId );
+            }
+        }
+    }
+
+
+    /**
+     * Record a role deassignment in the loaded index of a tenant.
+     *
+     * @param contextId the tenant
+     * @param roleName the role
+     * @param userId the user deassigned from it
+     */
+    void userDeassigned( String contextId, String roleName, String userId )
+    {
+        Tenant tenant = loadedTenant( contextId );
+
+        if ( tenant != null )
+        {
+            synchronized ( tenant )
+            {
+                Set<String> users = tenant.roleUsers.get( roleKey( roleName ) );
+
+                if ( users != null )
+                {
+                    users.remove( userId );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Drop the index of a tenant, it is reloaded on next use.  Called after a change that can't be applied in place,
+     * like the deletion of a user, a role or a permission.
+     *
+     * @param contextId the tenant
+     */
+    void invalidate( String contextId )
+    {
+        if ( enabled )
+        {
+            tenants.remove( MgrRegistry.key( contextId ) );
+        }
+    }
+
+
+    private Tenant loadedTenant( String contextId )
+    {
+        return enabled ? tenants.get( MgrRegistry.key( contextId ) ) : null;
+    }
+
+
+    private Tenant tenant( String contextId, Loader loader ) throws SecurityException
+    {
+        Tenant tenant = tenants.computeIfAbsent( MgrRegistry.key( contextId ), k -> new Tenant() );
+
+        if ( tenant.expires > System.currentTimeMillis() )
+        {
+            return tenant;
+        }
+
+        synchronized ( tenant )
+        {
+            if ( tenant.expires <= System.currentTimeMillis() )
+            {
+                List<Permission> perms = loader.permissions();
+                List<User> users = loader.users();
+                ConcurrentMap<String, Grants> grants = new ConcurrentHashMap<>();
+                ConcurrentMap<String, Set<String>> roleUsers = new ConcurrentHashMap<>();
+
+                if ( perms != null )
+                {
+                    for ( Permission perm : perms )
+                    {
+                        add( grants, perm );
+                    }
+                }
+
+                if ( users != null )
+                {
+                    for ( User user : users )
+                    {
+                        if ( user.getRoles() != null )
+                        {
+                            for ( UserRole uRole : user.getRoles() )
+                            {
+                                assign( roleUsers, uRole.getName(), user.getUserId() );
+                            }
+                        }
+                    }
+                }
+
+                // Swapped whole, so the readers never see a partly loaded index
+                tenant.grants = grants;
+                tenant.roleUsers = roleUsers;
+                tenant.expires = System.currentTimeMillis() + ttlMillis;
+                LOG.debug( "PermissionIndex loaded {} permissions and {} users for tenant {}",
+                    tenant.grants.size(), users == null ? 0 : users.size(), contextId );
+            }
+
+            return tenant;
+        }
+    }
+
+
+    private static void add( ConcurrentMap<String, Grants> index, Permission perm )
+    {
+        Grants grants = index.computeIfAbsent( AccessMgrImpl.permKey( perm ), k -> new Grants() );
+
+        if ( perm.getRoles() != null )
+        {
+            grants.roles.addAll( perm.getRoles() );
+        }
+
+        if ( perm.getUsers() != null )
+        {
+            grants.users.addAll( perm.getUsers() );
+        }
+    }
+
+
+    private static void assign( ConcurrentMap<String, Set<String>> roleUsers, String roleName, String userId )
+    {
+        roleUsers.computeIfAbsent( roleKey( roleName ),
+            k -> new ConcurrentSkipListSet<>( String.CASE_INSENSITIVE_ORDER ) ).add( userId );
+    }
+
+
+    private static String roleKey( String roleName )
+    {
+        return roleName == null ? "" : roleName.toLowerCase( Locale.ROOT );
+    }
+}
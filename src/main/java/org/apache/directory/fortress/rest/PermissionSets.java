@@ -0,0 +1,363 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Materializes the permissions granted to a session as a hashed set of (objName, opName, objId) keys, so checkAccess
+ * becomes a hash probe instead of a directory evaluation.  A set is keyed by a fingerprint of the session: its tenant,
+ * user and activated roles, RBAC or administrative.
+ * <p>
+ * The set is loaded with one sessionPermissions call when a session is created, when a role is dropped, or on the
+ * first check of a session not seen yet.  When a role is added, only the permissions of that role are loaded and
+ * merged into the set of the session it was added to.
+ * <p>
+ * The constraints of the session and its roles are evaluated when the set is loaded, sets expire after
+ * 'rest.authz.permset.ttl.seconds' so time based constraints are evaluated again.  A policy change made through this
+ * server drops the sets of its tenant.  The engine is disabled unless 'rest.authz.permset.enabled' is set to true.
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class PermissionSets
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( PermissionSets.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.authz.permset.enabled";
+    static final String MAX_SIZE_PROP = "rest.authz.permset.max.size";
+    static final String TTL_SECONDS_PROP = "rest.authz.permset.ttl.seconds";
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final int DEFAULT_TTL_SECONDS = 60;
+
+    /** Separates the fields of a fingerprint */
+    private static final char SEP = '\u0000';
+
+    /** Loads the permissions of a session from the directory */
+    interface Loader
+    {
+        /**
+         * @param session the session
+         * @return the permissions granted to the session
+         * @throws SecurityException if the session is not valid
+         */
+        List<Permission> load( Session session ) throws SecurityException;
+    }
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final PermissionSets INSTANCE = new PermissionSets(
+            Config.getInstance().getBoolean( ENABLED_PROP, false ),
+            Config.getInstance().getInt( MAX_SIZE_PROP, DEFAULT_MAX_SIZE ),
+            Config.getInstance().getInt( TTL_SECONDS_PROP, DEFAULT_TTL_SECONDS ) * 1000L );
+    }
+
+    private final boolean enabled;
+    private final ExpiringCache<String, Set<String>> sets;
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.
+     *
+     * @param enabled if false, nothing is materialized
+     * @param maxSize the maximum number of sessions whose set is kept
+     * @param ttlMillis how long a set is used
+     */
+    PermissionSets( boolean enabled, int maxSize, long ttlMillis )
+    {
+        this.enabled = enabled;
+        this.sets = new ExpiringCache<>( "PermissionSets", maxSize, ttlMillis );
+
+        if ( enabled )
+        {
+            LOG.info( "PermissionSets enabled, maxSize={}, ttlMillis={}", maxSize, ttlMillis );
+            sets.registerMBean();
+        }
+    }
+
+
+    /**
+     * @return the engine used by AccessMgrImpl and DelegatedAccessMgrImpl
+     */
+    static PermissionSets getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * @return true if checkAccess is answered from the materialized sets
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Check a permission against the set of a session, loading the set if needed.
+     *
+     * @param contextId the tenant
+     * @param session the session
+     * @param perm the permission, its admin flag selects the RBAC or the administrative roles
+     * @param loader loads the permissions of the session, RBAC or administrative
+     * @return true if the session is granted the permission
+     * @throws SecurityException if the set can't be loaded
+     */
+    boolean checkAccess( String contextId, Session session, Permission perm, Loader loader ) throws SecurityException
+    {
+        String fingerprint = fingerprint( contextId, session, perm.isAdmin() );
+        Set<String> grants = sets.get( fingerprint );
+
+        if ( grants == null )
+        {
+            grants = toKeys( loader.load( session ) );
+            sets.put( fingerprint, grants );
+        }
+
+        return grants.contains( AccessMgrImpl.permKey( perm ) );
+    }
+
+
+    /**
+     * Load the set of a session that was just created, or that had a role dropped.  A failure is logged, never
+     * thrown, the set will then be loaded by the first check.
+     *
+     * @param contextId the tenant
+     * @param session the session, in its current state
+     * @param admin true for the administrative roles
+     * @param loader loads the permissions of the session
+     */
+    void load( String contextId, Session session, boolean admin, Loader loader )
+    {
+        if ( !enabled || ( session == null ) )
+        {
+            return;
+        }
+
+        try
+        {
+            sets.put( fingerprint( contextId, session, admin ), toKeys( loader.load( session ) ) );
+        }
+        catch ( SecurityException se )
+        {
+            LOG.warn( "PermissionSets.load could not load the permissions of " + session.getUserId() + ", caught "
+                + se );
+        }
+    }
+
+
+    /**
+     * Derive the set of a session from the one it had before a role was added: only the permissions of the added role
+     * are loaded.  Nothing is done if the previous set is not known, if the permissions of the role can't be loaded,
+     * or for a group session, which has no user to load them for: the set will then be loaded by the next check.
+     *
+     * @param contextId the tenant
+     * @param previous the fingerprint of the session before the role was added
+     * @param session the session, with the role added
+     * @param roleName the name of the role added
+     * @param admin true if an administrative role was added
+     * @param loader loads the permissions of a session
+     */
+    void roleAdded( String contextId, String previous, Session session, String roleName, boolean admin, Loader loader )
+    {
+        if ( !enabled || ( previous == null ) || ( session.getUser() == null ) )
+        {
+            return;
+        }
+
+        Set<String> before = sets.get( previous );
+        UserRole role = findRole( session, roleName, admin );
+
+        if ( ( before == null ) || ( role == null ) )
+        {
+            return;
+        }
+
+        try
+        {
+            Set<String> after = new HashSet<>( before );
+            after.addAll( toKeys( loader.load( singleRoleSession( contextId, session, role, admin ) ) ) );
+            sets.put( fingerprint( contextId, session, admin ), Collections.unmodifiableSet( after ) );
+        }
+        catch ( SecurityException se )
+        {
+            LOG.warn( "PermissionSets.roleAdded could not load the permissions of " + roleName + ", caught " + se );
+        }
+    }
+
+
+    /**
+     * Drop the sets of a tenant, after a change to its users, roles, permissions or grants.
+     *
+     * @param contextId the tenant whose policy changed
+     */
+    void invalidate( String contextId )
+    {
+        if ( enabled )
+        {
+            generation( contextId ).incrementAndGet();
+        }
+    }
+
+
+    /**
+     * @param contextId the tenant
+     * @param session the session
+     * @param admin true for the administrative roles
+     * @return the key of the set of this session, or null if the engine is disabled
+     */
+    String fingerprint( String contextId, Session session, boolean admin )
+    {
+        if ( !enabled || ( session == null ) )
+        {
+            return null;
+        }
+
+        List<? extends UserRole> roles = admin ? session.getAdminRoles() : session.getRoles();
+        List<String> roleNames = new ArrayList<>();
+
+        if ( roles != null )
+        {
+            for ( UserRole role : roles )
+            {
+                roleNames.add( lower( role.getName() ) );
+            }
+
+            Collections.sort( roleNames );
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append( MgrRegistry.key( contextId ) ).append( SEP );
+        sb.append( generation( contextId ).get() ).append( SEP );
+        sb.append( admin ? 'A' : 'R' ).append( SEP );
+        sb.append( lower( session.getUserId() ) ).append( SEP );
+
+        for ( String roleName : roleNames )
+        {
+            sb.append( roleName ).append( SEP );
+        }
+
+        return AuthzDecisionCache.sha256( sb.toString() );
+    }
+
+
+    /**
+     * The role as activated in the session, carrying the constraints the directory returned for it.
+     */
+    private static UserRole findRole( Session session, String roleName, boolean admin )
+    {
+        List<? extends UserRole> roles = admin ? session.getAdminRoles() : session.getRoles();
+
+        if ( ( roles != null ) && ( roleName != null ) )
+        {
+            for ( UserRole role : roles )
+            {
+                if ( roleName.equalsIgnoreCase( role.getName() ) )
+                {
+                    return role;
+                }
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * A session of the same user holding only one role, whose permissions are then those that role brings.
+     */
+    private static Session singleRoleSession( String contextId, Session session, UserRole role, boolean admin )
+    {
+        User user = new User( session.getUserId() );
+        user.setContextId( contextId );
+
+        if ( admin )
+        {
+            List<UserAdminRole> adminRoles = new ArrayList<>();
+            adminRoles.add( ( UserAdminRole ) role );
+            user.setAdminRoles( adminRoles );
+            user.setRoles( new ArrayList<>() );
+        }
+        else
+        {
+            List<UserRole> roles = new ArrayList<>();
+            roles.add( role );
+            user.setRoles( roles );
+        }
+
+        Session single = new Session();
+        single.setUser( user );
+
+        return single;
+    }
+
+
+    private static Set<String> toKeys( List<Permission> perms )
+    {
+        Set<String> keys = new HashSet<>();
+
+        if ( perms != null )
+        {
+            for ( Permission perm : perms )
+            {
+                keys.add( AccessMgrImpl.permKey( perm ) );
+            }
+        }
+
+        return Collections.unmodifiableSet( keys );
+    }
+
+
+    private AtomicLong generation( String contextId )
+    {
+        return generations.computeIfAbsent( MgrRegistry.key( contextId ), k -> new AtomicLong() );
+    }
+
+
+    private static String lower( String value )
+    {
+        return value == null ? "" : value.toLowerCase( Locale.ROOT );
+    }
+}
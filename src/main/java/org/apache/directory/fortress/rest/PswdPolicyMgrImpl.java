@@ -20,7 +20,6 @@
 package org.apache.directory.fortress.rest;
 
 import org.apache.directory.fortress.core.PwPolicyMgr;
-import org.apache.directory.fortress.core.PwPolicyMgrFactory;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.PwPolicy;
 import org.apache.directory.fortress.core.model.FortRequest;
@@ -52,8 +51,7 @@ class PswdPolicyMgrImpl extends AbstractMgrImpl
         try
         {
             PwPolicy inPolicy = (PwPolicy) request.getEntity();
-            PwPolicyMgr policyMgr = PwPolicyMgrFactory.createInstance( request.getContextId() );
-            policyMgr.setAdmin( request.getSession() );
+            PwPolicyMgr policyMgr = getManager( PwPolicyMgr.class, request );
             policyMgr.add( inPolicy );
             response.setEntity( inPolicy );
         }
@@ -73,8 +71,7 @@ class PswdPolicyMgrImpl extends AbstractMgrImpl
         try
         {
             PwPolicy inPolicy = (PwPolicy) request.getEntity();
-            PwPolicyMgr policyMgr = PwPolicyMgrFactory.createInstance( request.getContextId() );
-            policyMgr.setAdmin( request.getSession() );
+            PwPolicyMgr policyMgr = getManager( PwPolicyMgr.class, request );
             policyMgr.update( inPolicy );
             response.setEntity( inPolicy );
         }
@@ -94,8 +91,7 @@ class PswdPolicyMgrImpl extends AbstractMgrImpl
         try
         {
             PwPolicy inPolicy = (PwPolicy) request.getEntity();
-            PwPolicyMgr policyMgr = PwPolicyMgrFactory.createInstance( request.getContextId() );
-            policyMgr.setAdmin( request.getSession() );
+            PwPolicyMgr policyMgr = getManager( PwPolicyMgr.class, request );
             policyMgr.delete( inPolicy );
             response.setEntity( inPolicy );
         }
@@ -116,8 +112,7 @@ class PswdPolicyMgrImpl extends AbstractMgrImpl
         try
         {
             PwPolicy inPolicy = (PwPolicy) request.getEntity();
-            PwPolicyMgr policyMgr = PwPolicyMgrFactory.createInstance( request.getContextId() );
-            policyMgr.setAdmin( request.getSession() );
+            PwPolicyMgr policyMgr = getManager( PwPolicyMgr.class, request );
             outPolicy = policyMgr.read( inPolicy.getName() );
             response.setEntity( outPolicy );
         }
@@ -139,8 +134,7 @@ class PswdPolicyMgrImpl extends AbstractMgrImpl
         try
         {
             PwPolicy inPolicy = (PwPolicy) request.getEntity();
-            PwPolicyMgr policyMgr = PwPolicyMgrFactory.createInstance( request.getContextId() );
-            policyMgr.setAdmin( request.getSession() );
+            PwPolicyMgr policyMgr = getManager( PwPolicyMgr.class, request );
             policyList = policyMgr.search( inPolicy.getName() );
             response.setEntities( policyList );
         }
@@ -161,8 +155,7 @@ class PswdPolicyMgrImpl extends AbstractMgrImpl
         try
         {
             PwPolicy inPolicy = (PwPolicy) request.getEntity();
-            PwPolicyMgr policyMgr = PwPolicyMgrFactory.createInstance( request.getContextId() );
-            policyMgr.setAdmin( request.getSession() );
+            PwPolicyMgr policyMgr = getManager( PwPolicyMgr.class, request );
             String userId = request.getValue();
             policyMgr.updateUserPolicy( userId, inPolicy.getName() );
         }
@@ -181,8 +174,7 @@ class PswdPolicyMgrImpl extends AbstractMgrImpl
         
         try
         {
-            PwPolicyMgr policyMgr = PwPolicyMgrFactory.createInstance( request.getContextId() );
-            policyMgr.setAdmin( request.getSession() );
+            PwPolicyMgr policyMgr = getManager( PwPolicyMgr.class, request );
             String userId = request.getValue();
             policyMgr.deletePasswordPolicy( userId );
         }
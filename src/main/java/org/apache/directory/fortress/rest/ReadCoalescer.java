@@ -0,0 +1,371 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Collapses identical reads running at the same time into one directory call.  A read is identified by its tenant,
+ * its operation and a canonical key of what it reads; the first caller runs it, the callers arriving while it is in
+ * flight wait for it and share its result, or its exception.  Reads made for an admin session are only shared with
+ * reads made for the same admin, holding the same admin roles, as the core checks their permissions.  Nothing is kept once the read completes, this is not a
+ * cache: a read started after the previous one completed goes to the directory again.
+ * <p>
+ * The shared results are only read afterwards, when the responses are marshalled, so they are not copied.
+ * <p>
+ * The number of calls and of collapsed calls per operation are published on JMX and on the metrics page.  The
+ * coalescer is disabled unless 'rest.coalesce.enabled' is set to true.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class ReadCoalescer implements ReadCoalescerMBean
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( ReadCoalescer.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.coalesce.enabled";
+
+    /** Separates the fields of a key */
+    private static final char SEP = '\u0000';
+
+    /** A read to run against the directory */
+    interface Read<T>
+    {
+        /**
+         * @return the result of the read
+         * @throws SecurityException if the read fails
+         */
+        T load() throws SecurityException;
+    }
+
+    /** The counters of one operation */
+    private static final class Counters
+    {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+    }
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final ReadCoalescer INSTANCE = new ReadCoalescer(
+            Config.getInstance().getBoolean( ENABLED_PROP, false ) );
+    }
+
+    private final boolean enabled;
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counters> operations = new ConcurrentHashMap<>();
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.
+     *
+     * @param enabled if false, every read goes to the directory
+     */
+    ReadCoalescer( boolean enabled )
+    {
+        this.enabled = enabled;
+
+        if ( enabled )
+        {
+            LOG.info( "ReadCoalescer enabled" );
+            registerMBean();
+        }
+    }
+
+
+    /**
+     * @return the coalescer used by the Mgr implementations
+     */
+    static ReadCoalescer getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * Run a read made without an admin session, or wait for the identical read already in flight.
+     *
+     * @param contextId the tenant
+     * @param operation the name of the read, e.g. readRole
+     * @param key the canonical key of what is read, see {@link #key(String...)}
+     * @param read the read
+     * @param <T> the type of the result
+     * @return the result of the read
+     * @throws SecurityException if the read fails
+     */
+    <T> T read( String contextId, String operation, String key, Read<T> read ) throws SecurityException
+    {
+        return read( contextId, null, operation, key, read );
+    }
+
+
+    /**
+     * Run a read, or wait for the identical read already in flight for the same admin.
+     *
+     * @param contextId the tenant
+     * @param adminSession the admin session the read is made for, null if none
+     * @param operation the name of the read, e.g. readRole
+     * @param key the canonical key of what is read, see {@link #key(String...)}
+     * @param read the read
+     * @param <T> the type of the result
+     * @return the result of the read
+     * @throws SecurityException if the read fails
+     */
+    @SuppressWarnings("unchecked")
+    <T> T read( String contextId, Session adminSession, String operation, String key, Read<T> read )
+        throws SecurityException
+    {
+        if ( !enabled )
+        {
+            return read.load();
+        }
+
+        Counters counters = operations.computeIfAbsent( operation, k -> new Counters() );
+        counters.calls.increment();
+        String flightKey = MgrRegistry.key( contextId ) + SEP + admin( adminSession ) + SEP + operation + SEP + key;
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> flight = inFlight.putIfAbsent( flightKey, created );
+
+        if ( flight != null )
+        {
+            counters.coalesced.increment();
+
+            return ( T ) await( flight, read );
+        }
+
+        try
+        {
+            T result = read.load();
+            created.complete( result );
+
+            return result;
+        }
+        catch ( SecurityException | RuntimeException | Error e )
+        {
+            created.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            inFlight.remove( flightKey, created );
+        }
+    }
+
+
+    private static Object await( CompletableFuture<Object> flight, Read<?> read ) throws SecurityException
+    {
+        try
+        {
+            return flight.get();
+        }
+        catch ( InterruptedException ie )
+        {
+            // Don't leave the caller without an answer, run its own read
+            Thread.currentThread().interrupt();
+
+            return read.load();
+        }
+        catch ( ExecutionException ee )
+        {
+            Throwable cause = ee.getCause();
+
+            if ( cause instanceof SecurityException )
+            {
+                throw ( SecurityException ) cause;
+            }
+            else if ( cause instanceof RuntimeException )
+            {
+                throw ( RuntimeException ) cause;
+            }
+
+            throw ( Error ) cause;
+        }
+    }
+
+
+    /**
+     * @param parts the parts identifying what is read, names are compared ignoring case
+     * @return the canonical key of the parts
+     */
+    static String key( String... parts )
+    {
+        StringBuilder sb = new StringBuilder();
+
+        for ( String part : parts )
+        {
+            sb.append( part == null ? "" : part.toLowerCase( Locale.ROOT ) ).append( SEP );
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * @param adminSession an admin session, may be null
+     * @return the canonical key of its user and admin roles, empty if there is no session
+     */
+    static String admin( Session adminSession )
+    {
+        if ( adminSession == null )
+        {
+            return "";
+        }
+
+        List<String> parts = new ArrayList<>();
+
+        if ( adminSession.getAdminRoles() != null )
+        {
+            for ( UserAdminRole adminRole : adminSession.getAdminRoles() )
+            {
+                parts.add( adminRole.getName() == null ? "" : adminRole.getName().toLowerCase( Locale.ROOT ) );
+            }
+
+            Collections.sort( parts );
+        }
+
+        parts.add( 0, adminSession.getUserId() );
+
+        return key( parts.toArray( new String[0] ) );
+    }
+
+
+    /**
+     * Render the counters in the Prometheus text exposition format, version 0.0.4.
+     *
+     * @return the lines of the scrape page, empty if the coalescer is disabled
+     */
+    String scrape()
+    {
+        if ( !enabled )
+        {
+            return "";
+        }
+
+        Map<String, Counters> sorted = new TreeMap<>( operations );
+        StringBuilder sb = new StringBuilder();
+        sb.append( "# HELP fortress_rest_coalescer_calls_total Reads that went through the coalescer\n" );
+        sb.append( "# TYPE fortress_rest_coalescer_calls_total counter\n" );
+
+        for ( Map.Entry<String, Counters> entry : sorted.entrySet() )
+        {
+            sb.append( "fortress_rest_coalescer_calls_total{operation=\"" ).append( entry.getKey() ).append( "\"} " )
+                .append( entry.getValue().calls.sum() ).append( '\n' );
+        }
+
+        sb.append( "# HELP fortress_rest_coalesced_total Reads that shared the result of an identical read in flight\n" );
+        sb.append( "# TYPE fortress_rest_coalesced_total counter\n" );
+
+        for ( Map.Entry<String, Counters> entry : sorted.entrySet() )
+        {
+            sb.append( "fortress_rest_coalesced_total{operation=\"" ).append( entry.getKey() ).append( "\"} " )
+                .append( entry.getValue().coalesced.sum() ).append( '\n' );
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCalls()
+    {
+        long calls = 0;
+
+        for ( Counters counters : operations.values() )
+        {
+            calls += counters.calls.sum();
+        }
+
+        return calls;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCoalesced()
+    {
+        long coalesced = 0;
+
+        for ( Counters counters : operations.values() )
+        {
+            coalesced += counters.coalesced.sum();
+        }
+
+        return coalesced;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getInFlight()
+    {
+        return inFlight.size();
+    }
+
+
+    private void registerMBean()
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName( ExpiringCache.JMX_DOMAIN + ":type=Coalescer,name=Reads" );
+
+            if ( !server.isRegistered( objectName ) )
+            {
+                server.registerMBean( this, objectName );
+            }
+        }
+        catch ( JMException e )
+        {
+            LOG.warn( "ReadCoalescer.registerMBean could not register, caught " + e );
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+/**
+ * Paths of the services that only exist in Fortress Rest, and so are not part of
+ * {@link org.apache.directory.fortress.core.rest.HttpIds}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class RestIds
+{
+    /** Check a batch of permissions against one session */
+    public static final String RBAC_AUTHZ_BULK = "rbacAuthZBulk";
+
+    /** Run a list of AdminMgr operations in one request */
+    public static final String ADMIN_BATCH = "adminBatch";
+
+    /** Prefix of the streamed variants of the large ReviewMgr searches, e.g. stream/userSearch */
+    public static final String STREAM = "stream";
+
+    /** Forget a session stored on the server */
+    public static final String SESSION_RELEASE = "sessionRelease";
+
+    /** Query parameter of the createSession services asking to keep the session on the server */
+    public static final String SESSION_HANDLE = "sessionHandle";
+
+    /** Request and response header carrying the handle of a session kept on the server */
+    public static final String SESSION_HANDLE_HEADER = "X-Fortress-Session-Handle";
+
+    /** The Prometheus scrape page of the service metrics */
+    public static final String METRICS = "metrics";
+
+    /** Query parameter asking a search service for pages of this many entities */
+    public static final String PAGE_SIZE = "pageSize";
+
+    /** Query parameter carrying the token of the next page */
+    public static final String PAGE_TOKEN = "pageToken";
+
+    /** Response header carrying the token of the next page, absent on the last page */
+    public static final String PAGE_TOKEN_HEADER = "X-Fortress-Page-Token";
+
+    /** Query parameter listing the fields of the returned entities to write, e.g. fields=userId,ou */
+    public static final String FIELDS = "fields";
+
+    private RestIds()
+    {
+    }
+}
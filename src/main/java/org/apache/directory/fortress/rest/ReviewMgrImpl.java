@@ -20,8 +20,8 @@
 package org.apache.directory.fortress.rest;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.ReviewMgr;
-import org.apache.directory.fortress.core.ReviewMgrFactory;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.PermObj;
@@ -34,8 +34,10 @@ import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserRole;
 import org.apache.directory.fortress.core.model.FortRequest;
 import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.rest.HttpIds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -49,6 +51,54 @@ class ReviewMgrImpl extends AbstractMgrImpl
     /** A logger for this class */
     private static final Logger LOG = LoggerFactory.getLogger( ReviewMgrImpl.class.getName() );
 
+    /** Answers the inheritance queries from the in-memory role hierarchy, when enabled */
+    private final RoleHierarchyIndex roleIndex = RoleHierarchyIndex.getInstance();
+
+    /** Answers the permission reviews from the in-memory grants, when enabled */
+    private final PermissionIndex permIndex = PermissionIndex.getInstance();
+
+    /** Collapses the identical reads in flight into one directory call, when enabled */
+    private final ReadCoalescer coalescer = ReadCoalescer.getInstance();
+
+    /**
+     * Run one of the large searches for a streamed response.  The search is the same as its own service, only the
+     * way the result is written differs, see {@link StreamingFortResponse}.
+     *
+     * @param service The path of the search service: userSearch, userAsigned, permSearch, objSearch or userPerms
+     * @param request The {@link FortRequest} of that service
+     * @return The {@link FortResponse} of the search
+     */
+    /* No qualifier */  FortResponse streamSearch( String service, FortRequest request )
+    {
+        switch ( service )
+        {
+            case HttpIds.USER_SEARCH:
+                return findUsersM( request );
+
+            case HttpIds.USER_ASGNED:
+                return assignedUsersM( request );
+
+            case HttpIds.PERM_SEARCH:
+                return findPermissions( request );
+
+            case HttpIds.OBJ_SEARCH:
+                return findPermObjs( request );
+
+            case HttpIds.USER_PERMS:
+                return userPermissionsM( request );
+
+            default:
+                String szError = "streamSearch unsupported service: " + service;
+                LOG.warn( szError );
+                FortResponse response = new FortResponse();
+                response.setErrorCode( GlobalErrIds.REST_NOT_FOUND_ERR );
+                response.setErrorMessage( szError );
+
+                return response;
+        }
+    }
+
+
     /* No qualifier */  FortResponse readPermission( FortRequest request )
     {
         FortResponse response = createResponse();
@@ -56,8 +106,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         try
         {
             Permission inPerm = (Permission) request.getEntity();
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Permission retPerm = reviewMgr.readPermission( inPerm );
             response.setEntity( retPerm );
         }
@@ -77,8 +126,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         try
         {
             PermObj inObj = (PermObj) request.getEntity();
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             PermObj retObj = reviewMgr.readPermObj( inObj );
             response.setEntity( retObj );
         }
@@ -97,8 +145,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Permission inPerm = (Permission) request.getEntity();
             List<Permission> perms = reviewMgr.findPermissions( inPerm );
             response.setEntities( perms );
@@ -118,8 +165,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
 
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             PermObj inObj = (PermObj) request.getEntity();
             List<Permission> perms = reviewMgr.findPermsByObj( inObj );
             response.setEntities( perms );
@@ -139,8 +185,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
 
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Permission inPerm = (Permission) request.getEntity();
             List<Permission> perms = reviewMgr.findAnyPermissions( inPerm );
             response.setEntities( perms );
@@ -160,8 +205,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             PermObj inObj = (PermObj) request.getEntity();
             List<PermObj> objs = null;
             
@@ -191,10 +235,10 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Role inRole = (Role) request.getEntity();
-            Role outRole = reviewMgr.readRole( inRole );
+            Role outRole = coalescer.read( request.getContextId(), request.getSession(), HttpIds.ROLE_READ,
+                ReadCoalescer.key( inRole.getName() ), () -> reviewMgr.readRole( inRole ) );
             response.setEntity( outRole );
         }
         catch ( SecurityException se )
@@ -212,8 +256,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             String searchValue = request.getValue();
             
             if ( request.getLimit() != null )
@@ -242,8 +285,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             User inUser = (User) request.getEntity();
             User outUser = reviewMgr.readUser( inUser );
             response.setEntity( outUser );
@@ -263,8 +305,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             User inUser = (User) request.getEntity();
             
             if ( request.getLimit() != null )
@@ -303,8 +344,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Role inRole = (Role) request.getEntity();
             
             if ( request.getLimit() != null )
@@ -333,8 +373,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
 
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Role inRole = (Role) request.getEntity();
             RoleConstraint inConstraint = (RoleConstraint) request.getEntity2();
             List<User> users = reviewMgr.assignedUsers( inRole, inConstraint );
@@ -355,8 +394,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
 
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Role inRole = (Role) request.getEntity();
             RoleConstraint inConstraint = (RoleConstraint) request.getEntity2();
             List<UserRole> uRoles = reviewMgr.assignedUsers( inRole, inConstraint.getType(), inConstraint.getKey() );
@@ -377,8 +415,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             
             if ( StringUtils.isNotEmpty( request.getValue() ) )
             {
@@ -408,8 +445,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Role inRole = (Role) request.getEntity();
             List<User> users = reviewMgr.authorizedUsers( inRole );
             response.setEntities( users );
@@ -429,10 +465,28 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             User inUser = (User) request.getEntity();
-            Set<String> outSet = reviewMgr.authorizedRoles( inUser );
+            Set<String> outSet;
+
+            // The index would skip the ARBAC02 check of authorizedRoles, a call carrying an admin session is left to
+            // the core.  Without one the manager has no admin session either, so loading the hierarchy checks no one
+            if ( roleIndex.isEnabled() && ( request.getSession() == null ) )
+            {
+                List<String> assigned = new ArrayList<>();
+
+                for ( UserRole uRole : reviewMgr.assignedRoles( inUser ) )
+                {
+                    assigned.add( uRole.getName() );
+                }
+
+                outSet = roleIndex.withAscendants( request.getContextId(), assigned, () -> reviewMgr.findRoles( "" ) );
+            }
+            else
+            {
+                outSet = reviewMgr.authorizedRoles( inUser );
+            }
+
             response.setValueSet( outSet );
         }
         catch ( SecurityException se )
@@ -450,10 +504,23 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Permission inPerm = (Permission) request.getEntity();
-            List<String> outList = reviewMgr.permissionRoles( inPerm );
+            List<String> outList = null;
+
+            // The index would skip the ARBAC02 check of permissionRoles, a call carrying an admin session is left to
+            // the core.  Without one the manager has no admin session either, so loading the index checks no one
+            if ( permIndex.isEnabled() && ( request.getSession() == null ) )
+            {
+                outList = permIndex.permissionRoles( request.getContextId(), inPerm,
+                    PermissionIndex.loader( reviewMgr ) );
+            }
+
+            if ( outList == null )
+            {
+                outList = reviewMgr.permissionRoles( inPerm );
+            }
+
             response.setValues( outList );
         }
         catch ( SecurityException se )
@@ -471,10 +538,34 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Permission inPerm = (Permission) request.getEntity();
-            Set<String> outSet = reviewMgr.authorizedPermissionRoles( inPerm );
+            Set<String> outSet;
+
+            // As in authorizedRoleM and permissionRolesM, the ARBAC02 check of authorizedPermissionRoles is left to the
+            // core, neither index is used nor loaded under an admin session
+            if ( roleIndex.isEnabled() && ( request.getSession() == null ) )
+            {
+                List<String> granted = null;
+
+                if ( permIndex.isEnabled() )
+                {
+                    granted = permIndex.permissionRoles( request.getContextId(), inPerm,
+                        PermissionIndex.loader( reviewMgr ) );
+                }
+
+                if ( granted == null )
+                {
+                    granted = reviewMgr.permissionRoles( inPerm );
+                }
+
+                outSet = roleIndex.withDescendants( request.getContextId(), granted, () -> reviewMgr.findRoles( "" ) );
+            }
+            else
+            {
+                outSet = reviewMgr.authorizedPermissionRoles( inPerm );
+            }
+
             response.setValueSet( outSet );
         }
         catch ( SecurityException se )
@@ -492,9 +583,21 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request.getContextId() );
             Permission inPerm = (Permission) request.getEntity();
-            List<String> outList = reviewMgr.permissionUsers( inPerm );
+            List<String> outList = null;
+
+            if ( permIndex.isEnabled() )
+            {
+                outList = permIndex.permissionUsers( request.getContextId(), inPerm,
+                    PermissionIndex.loader( reviewMgr ) );
+            }
+
+            if ( outList == null )
+            {
+                outList = reviewMgr.permissionUsers( inPerm );
+            }
+
             response.setValues( outList );
         }
         catch ( SecurityException se )
@@ -512,9 +615,31 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request.getContextId() );
             Permission inPerm = (Permission) request.getEntity();
-            Set<String> outSet = reviewMgr.authorizedPermissionUsers( inPerm );
+            Set<String> outSet = null;
+
+            // The users of the roles inheriting the permission need the role hierarchy too
+            if ( permIndex.isEnabled() && roleIndex.isEnabled() )
+            {
+                PermissionIndex.Loader loader = PermissionIndex.loader( reviewMgr );
+                List<String> granted = permIndex.permissionRoles( request.getContextId(), inPerm, loader );
+                List<String> users = permIndex.permissionUsers( request.getContextId(), inPerm, loader );
+
+                if ( ( granted != null ) && ( users != null ) )
+                {
+                    Set<String> roles = roleIndex.withDescendants( request.getContextId(), granted,
+                        () -> reviewMgr.findRoles( "" ) );
+                    outSet = permIndex.assignedUsers( request.getContextId(), roles, loader );
+                    outSet.addAll( users );
+                }
+            }
+
+            if ( outSet == null )
+            {
+                outSet = reviewMgr.authorizedPermissionUsers( inPerm );
+            }
+
             response.setValueSet( outSet );
         }
         catch ( SecurityException se )
@@ -532,8 +657,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             User inUser = (User) request.getEntity();
             List<Permission> perms = reviewMgr.userPermissions( inUser );
             response.setEntities( perms );
@@ -553,11 +677,12 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Role inRole = (Role) request.getEntity();
             boolean noInheritance = request.getIsFlag();
-            List<Permission> perms = reviewMgr.rolePermissions( inRole, noInheritance );
+            List<Permission> perms = coalescer.read( request.getContextId(), request.getSession(),
+                HttpIds.ROLE_PERMS, ReadCoalescer.key( inRole.getName(), String.valueOf( noInheritance ) ),
+                () -> reviewMgr.rolePermissions( inRole, noInheritance ) );
             response.setEntities( perms );
         }
         catch ( SecurityException se )
@@ -575,8 +700,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Role inRole = (Role) request.getEntity();
             List<SDSet> outSets = reviewMgr.ssdRoleSets( inRole );
             response.setEntities( outSets );
@@ -596,8 +720,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             SDSet outSet = reviewMgr.ssdRoleSet( inSet );
             response.setEntity( outSet );
@@ -617,7 +740,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request.getContextId() );
             SDSet inSet = (SDSet) request.getEntity();
             Set<String> outSet = reviewMgr.ssdRoleSetRoles( inSet );
             response.setValueSet( outSet );
@@ -637,7 +760,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request.getContextId() );
             SDSet inSet = (SDSet) request.getEntity();
             int cardinality = reviewMgr.ssdRoleSetCardinality( inSet );
             inSet.setCardinality( cardinality );
@@ -658,8 +781,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             SDSet inSdSet = (SDSet) request.getEntity();
             List<SDSet> outSets = reviewMgr.ssdSets( inSdSet );
             response.setEntities( outSets );
@@ -679,8 +801,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Role inRole = (Role) request.getEntity();
             List<SDSet> outSets = reviewMgr.dsdRoleSets( inRole );
             response.setEntities( outSets );
@@ -700,8 +821,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             SDSet inSet = (SDSet) request.getEntity();
             SDSet outSet = reviewMgr.dsdRoleSet( inSet );
             response.setEntity( outSet );
@@ -721,7 +841,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request.getContextId() );
             SDSet inSet = (SDSet) request.getEntity();
             Set<String> outSet = reviewMgr.dsdRoleSetRoles( inSet );
             response.setValueSet( outSet );
@@ -741,7 +861,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
         
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request.getContextId() );
             SDSet inSet = (SDSet) request.getEntity();
             int cardinality = reviewMgr.dsdRoleSetCardinality( inSet );
             inSet.setCardinality( cardinality );
@@ -762,8 +882,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
 
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             SDSet inSdSet = (SDSet) request.getEntity();
             List<SDSet> outSets = reviewMgr.dsdSets( inSdSet );
             response.setEntities( outSets );
@@ -783,8 +902,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
 
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             User inUser = (User) request.getEntity();
             Permission inPerm = (Permission) request.getEntity2();
             RoleConstraint.RCType inType = RoleConstraint.RCType.valueOf( request.getValue() );
@@ -806,8 +924,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
 
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             Role inRole = (Role) request.getEntity();
             boolean isReplace = request.getIsFlag();
             List<PermissionAttributeSet> retAttrSets = reviewMgr.rolePermissionAttributeSets( inRole, isReplace );
@@ -828,8 +945,7 @@ class ReviewMgrImpl extends AbstractMgrImpl
 
         try
         {
-            ReviewMgr reviewMgr = ReviewMgrFactory.createInstance( request.getContextId() );
-            reviewMgr.setAdmin( request.getSession() );
+            ReviewMgr reviewMgr = getManager( ReviewMgr.class, request );
             PermissionAttributeSet inSet = (PermissionAttributeSet) request.getEntity();
             PermissionAttributeSet outSet = reviewMgr.readPermAttributeSet( inSet );
             response.setEntity( outSet );
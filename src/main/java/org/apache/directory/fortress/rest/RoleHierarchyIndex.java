@@ -0,0 +1,564 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An in-memory index of the role hierarchy of each tenant.  Roles are numbered densely, and the transitive ascendants
+ * and descendants of every role are kept as bitsets, so the roles inherited through a set of roles are the OR of their
+ * bitsets instead of a walk of the hierarchy graph.
+ * <p>
+ * As in Fortress Core, the ascendants of a role are its parents and their own ascendants: a role inherits the
+ * permissions of its ascendants, and its users are authorized for its ascendants.
+ * <p>
+ * The index of a tenant is loaded from the directory on first use, with one role search, and reloaded after
+ * 'rest.role.index.ttl.seconds'.  The inheritance changes made through AdminMgrImpl are applied to it in place: an
+ * added relationship ORs the closures of the two roles, a deleted one recomputes the closures from the parents kept in
+ * memory.  The index is disabled unless 'rest.role.index.enabled' is set to true.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class RoleHierarchyIndex
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( RoleHierarchyIndex.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.role.index.enabled";
+    static final String TTL_SECONDS_PROP = "rest.role.index.ttl.seconds";
+
+    private static final int DEFAULT_TTL_SECONDS = 300;
+
+    /** Loads all the roles of a tenant, with their parents */
+    interface Loader
+    {
+        /**
+         * @return the roles of the tenant
+         * @throws SecurityException if the roles can't be read
+         */
+        List<Role> load() throws SecurityException;
+    }
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final RoleHierarchyIndex INSTANCE = new RoleHierarchyIndex(
+            Config.getInstance().getBoolean( ENABLED_PROP, false ),
+            Config.getInstance().getInt( TTL_SECONDS_PROP, DEFAULT_TTL_SECONDS ) * 1000L );
+    }
+
+    /**
+     * The immutable state of the index of a tenant.  A change builds a new snapshot, sharing the bitsets it does not
+     * modify with the previous one.
+     */
+    private static final class Snapshot
+    {
+        /** The role ids, by lower case role name */
+        private final Map<String, Integer> ids;
+
+        /** The role names, by id */
+        private final List<String> names;
+
+        /** The ids of the immediate parents, by id */
+        private final List<BitSet> parents;
+
+        /** The transitive ascendants, by id, a role is not its own ascendant */
+        private final BitSet[] ascendants;
+
+        /** The transitive descendants, by id */
+        private final BitSet[] descendants;
+
+        /** When this snapshot must be reloaded from the directory */
+        private final long expires;
+
+        private Snapshot( Map<String, Integer> ids, List<String> names, List<BitSet> parents, BitSet[] ascendants,
+            BitSet[] descendants, long expires )
+        {
+            this.ids = ids;
+            this.names = names;
+            this.parents = parents;
+            this.ascendants = ascendants;
+            this.descendants = descendants;
+            this.expires = expires;
+        }
+    }
+
+    /** The index of one tenant, its monitor serializes the loads and the changes */
+    private static final class Tenant
+    {
+        private volatile Snapshot snapshot;
+    }
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final ConcurrentMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.
+     *
+     * @param enabled if false, the index is never used
+     * @param ttlMillis how long the index of a tenant is used before being reloaded
+     */
+    RoleHierarchyIndex( boolean enabled, long ttlMillis )
+    {
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+
+        if ( enabled )
+        {
+            LOG.info( "RoleHierarchyIndex enabled, ttlMillis={}", ttlMillis );
+        }
+    }
+
+
+    /**
+     * @return the index used by the Mgr implementations
+     */
+    static RoleHierarchyIndex getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * @return true if the inheritance queries are answered from the index
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * The roles authorized through a set of roles: the roles themselves and all their ascendants.
+     *
+     * @param contextId the tenant
+     * @param roleNames the names of the roles
+     * @param loader loads the roles of the tenant if its index is not loaded
+     * @return the role names, ordered ignoring the case
+     * @throws SecurityException if the roles can't be loaded
+     */
+    Set<String> withAscendants( String contextId, Collection<String> roleNames, Loader loader )
+        throws SecurityException
+    {
+        Snapshot snapshot = snapshot( contextId, loader );
+
+        return closure( snapshot, roleNames, snapshot.ascendants );
+    }
+
+
+    /**
+     * The roles inheriting from a set of roles: the roles themselves and all their descendants.
+     *
+     * @param contextId the tenant
+     * @param roleNames the names of the roles
+     * @param loader loads the roles of the tenant if its index is not loaded
+     * @return the role names, ordered ignoring the case
+     * @throws SecurityException if the roles can't be loaded
+     */
+    Set<String> withDescendants( String contextId, Collection<String> roleNames, Loader loader )
+        throws SecurityException
+    {
+        Snapshot snapshot = snapshot( contextId, loader );
+
+        return closure( snapshot, roleNames, snapshot.descendants );
+    }
+
+
+    /**
+     * Apply a new inheritance relationship to the loaded index of a tenant.  A role the index does not know yet, as
+     * created by addAscendant or addDescendant, is added to it.
+     *
+     * @param contextId the tenant
+     * @param parentName the parent role
+     * @param childName the child role, which now inherits from the parent
+     */
+    void inheritanceAdded( String contextId, String parentName, String childName )
+    {
+        Tenant tenant = loadedTenant( contextId );
+
+        if ( tenant == null )
+        {
+            return;
+        }
+
+        synchronized ( tenant )
+        {
+            Snapshot current = tenant.snapshot;
+
+            if ( current == null )
+            {
+                return;
+            }
+
+            Map<String, Integer> ids = new HashMap<>( current.ids );
+            List<String> names = new ArrayList<>( current.names );
+            List<BitSet> parents = new ArrayList<>( current.parents );
+            int parent = addRole( ids, names, parents, parentName );
+            int child = addRole( ids, names, parents, childName );
+            BitSet[] ascendants = grow( current.ascendants, names.size() );
+            BitSet[] descendants = grow( current.descendants, names.size() );
+
+            BitSet childParents = ( BitSet ) parents.get( child ).clone();
+            childParents.set( parent );
+            parents.set( child, childParents );
+
+            // The child and its descendants gain the parent and its ascendants
+            BitSet gained = ( BitSet ) ascendants[parent].clone();
+            gained.set( parent );
+            BitSet heirs = ( BitSet ) descendants[child].clone();
+            heirs.set( child );
+
+            for ( int id = heirs.nextSetBit( 0 ); id >= 0; id = heirs.nextSetBit( id + 1 ) )
+            {
+                ascendants[id] = or( ascendants[id], gained );
+            }
+
+            for ( int id = gained.nextSetBit( 0 ); id >= 0; id = gained.nextSetBit( id + 1 ) )
+            {
+                descendants[id] = or( descendants[id], heirs );
+            }
+
+            tenant.snapshot = new Snapshot( ids, names, parents, ascendants, descendants, current.expires );
+        }
+    }
+
+
+    /**
+     * Apply a deleted inheritance relationship to the loaded index of a tenant.  The child may still inherit from the
+     * parent through another path, so the closures are recomputed from the parents kept in memory.
+     *
+     * @param contextId the tenant
+     * @param parentName the parent role
+     * @param childName the child role
+     */
+    void inheritanceDeleted( String contextId, String parentName, String childName )
+    {
+        Tenant tenant = loadedTenant( contextId );
+
+        if ( tenant == null )
+        {
+            return;
+        }
+
+        synchronized ( tenant )
+        {
+            Snapshot current = tenant.snapshot;
+
+            if ( current == null )
+            {
+                return;
+            }
+
+            Integer parent = current.ids.get( lower( parentName ) );
+            Integer child = current.ids.get( lower( childName ) );
+
+            if ( ( parent == null ) || ( child == null ) )
+            {
+                return;
+            }
+
+            List<BitSet> parents = new ArrayList<>( current.parents );
+            BitSet childParents = ( BitSet ) parents.get( child ).clone();
+            childParents.clear( parent );
+            parents.set( child, childParents );
+            tenant.snapshot = build( current.ids, current.names, parents, current.expires );
+        }
+    }
+
+
+    /**
+     * Add a role created without parents to the loaded index of a tenant.
+     *
+     * @param contextId the tenant
+     * @param role the role created
+     */
+    void roleAdded( String contextId, Role role )
+    {
+        if ( ( role.getParents() != null ) && !role.getParents().isEmpty() )
+        {
+            invalidate( contextId );
+
+            return;
+        }
+
+        Tenant tenant = loadedTenant( contextId );
+
+        if ( tenant == null )
+        {
+            return;
+        }
+
+        synchronized ( tenant )
+        {
+            Snapshot current = tenant.snapshot;
+
+            if ( ( current == null ) || current.ids.containsKey( lower( role.getName() ) ) )
+            {
+                return;
+            }
+
+            Map<String, Integer> ids = new HashMap<>( current.ids );
+            List<String> names = new ArrayList<>( current.names );
+            List<BitSet> parents = new ArrayList<>( current.parents );
+            addRole( ids, names, parents, role.getName() );
+            tenant.snapshot = new Snapshot( ids, names, parents, grow( current.ascendants, names.size() ),
+                grow( current.descendants, names.size() ), current.expires );
+        }
+    }
+
+
+    /**
+     * Drop the index of a tenant, it is reloaded on next use.  Called when a role is deleted.
+     *
+     * @param contextId the tenant
+     */
+    void invalidate( String contextId )
+    {
+        if ( enabled )
+        {
+            tenants.remove( MgrRegistry.key( contextId ) );
+        }
+    }
+
+
+    private Tenant loadedTenant( String contextId )
+    {
+        return enabled ? tenants.get( MgrRegistry.key( contextId ) ) : null;
+    }
+
+
+    private Snapshot snapshot( String contextId, Loader loader ) throws SecurityException
+    {
+        Tenant tenant = tenants.computeIfAbsent( MgrRegistry.key( contextId ), k -> new Tenant() );
+        Snapshot snapshot = tenant.snapshot;
+
+        if ( ( snapshot != null ) && ( snapshot.expires > System.currentTimeMillis() ) )
+        {
+            return snapshot;
+        }
+
+        synchronized ( tenant )
+        {
+            snapshot = tenant.snapshot;
+
+            if ( ( snapshot == null ) || ( snapshot.expires <= System.currentTimeMillis() ) )
+            {
+                snapshot = load( loader.load(), System.currentTimeMillis() + ttlMillis );
+                tenant.snapshot = snapshot;
+                LOG.debug( "RoleHierarchyIndex loaded {} roles for tenant {}", snapshot.names.size(), contextId );
+            }
+
+            return snapshot;
+        }
+    }
+
+
+    /**
+     * Build a snapshot from the roles read from the directory.
+     */
+    private static Snapshot load( List<Role> roles, long expires )
+    {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        List<BitSet> parents = new ArrayList<>();
+
+        if ( roles != null )
+        {
+            for ( Role role : roles )
+            {
+                addRole( ids, names, parents, role.getName() );
+            }
+
+            for ( Role role : roles )
+            {
+                if ( role.getParents() != null )
+                {
+                    BitSet roleParents = parents.get( ids.get( lower( role.getName() ) ) );
+
+                    for ( String parentName : role.getParents() )
+                    {
+                        roleParents.set( addRole( ids, names, parents, parentName ) );
+                    }
+                }
+            }
+        }
+
+        return build( ids, names, parents, expires );
+    }
+
+
+    /**
+     * Compute the closures from the immediate parents.  The hierarchy is a DAG, so the ascendants of a role are
+     * computed once, after those of its parents.
+     */
+    private static Snapshot build( Map<String, Integer> ids, List<String> names, List<BitSet> parents, long expires )
+    {
+        int size = names.size();
+        BitSet[] ascendants = new BitSet[size];
+        BitSet[] descendants = new BitSet[size];
+
+        for ( int id = 0; id < size; id++ )
+        {
+            ascendants( id, parents, ascendants, new BitSet( size ) );
+            descendants[id] = new BitSet( size );
+        }
+
+        for ( int id = 0; id < size; id++ )
+        {
+            BitSet asc = ascendants[id];
+
+            for ( int a = asc.nextSetBit( 0 ); a >= 0; a = asc.nextSetBit( a + 1 ) )
+            {
+                descendants[a].set( id );
+            }
+        }
+
+        return new Snapshot( ids, names, parents, ascendants, descendants, expires );
+    }
+
+
+    private static BitSet ascendants( int id, List<BitSet> parents, BitSet[] ascendants, BitSet visiting )
+    {
+        if ( ascendants[id] != null )
+        {
+            return ascendants[id];
+        }
+
+        BitSet result = new BitSet();
+
+        // A cycle can't be created through Fortress, but a hand edited directory must not hang the server
+        if ( visiting.get( id ) )
+        {
+            return result;
+        }
+
+        visiting.set( id );
+        BitSet roleParents = parents.get( id );
+
+        for ( int p = roleParents.nextSetBit( 0 ); p >= 0; p = roleParents.nextSetBit( p + 1 ) )
+        {
+            result.set( p );
+            result.or( ascendants( p, parents, ascendants, visiting ) );
+        }
+
+        visiting.clear( id );
+        result.clear( id );
+        ascendants[id] = result;
+
+        return result;
+    }
+
+
+    private static Set<String> closure( Snapshot snapshot, Collection<String> roleNames, BitSet[] relatives )
+    {
+        Set<String> result = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        BitSet found = new BitSet( snapshot.names.size() );
+
+        if ( roleNames != null )
+        {
+            for ( String roleName : roleNames )
+            {
+                Integer id = snapshot.ids.get( lower( roleName ) );
+
+                if ( id == null )
+                {
+                    result.add( roleName );
+                }
+                else
+                {
+                    found.set( id );
+                    found.or( relatives[id] );
+                }
+            }
+        }
+
+        for ( int id = found.nextSetBit( 0 ); id >= 0; id = found.nextSetBit( id + 1 ) )
+        {
+            result.add( snapshot.names.get( id ) );
+        }
+
+        return result;
+    }
+
+
+    private static int addRole( Map<String, Integer> ids, List<String> names, List<BitSet> parents, String name )
+    {
+        Integer id = ids.get( lower( name ) );
+
+        if ( id == null )
+        {
+            id = names.size();
+            ids.put( lower( name ), id );
+            names.add( name );
+            parents.add( new BitSet() );
+        }
+
+        return id;
+    }
+
+
+    private static BitSet[] grow( BitSet[] bitsets, int size )
+    {
+        BitSet[] result = new BitSet[size];
+        System.arraycopy( bitsets, 0, result, 0, bitsets.length );
+
+        for ( int id = bitsets.length; id < size; id++ )
+        {
+            result[id] = new BitSet();
+        }
+
+        return result;
+    }
+
+
+    private static BitSet or( BitSet left, BitSet right )
+    {
+        BitSet result = ( BitSet ) left.clone();
+        result.or( right );
+
+        return result;
+    }
+
+
+    private static String lower( String value )
+    {
+        return value == null ? "" : value.toLowerCase( Locale.ROOT );
+    }
+}
@@ -42,6 +42,9 @@ public class SecUtils
 {
     private static final Logger LOG = LoggerFactory.getLogger( SecUtils.class.getName() );
     private static J2eePolicyMgr j2eePolicyMgr;
+    /** Property names of the deserialized session cache, read from fortress.properties */
+    static final String SESSION_CACHE_MAX_SIZE_PROP = "rest.session.cache.max.size";
+    static final String SESSION_CACHE_TTL_SECONDS_PROP = "rest.session.cache.ttl.seconds";
 
     static
     {
@@ -71,6 +74,19 @@ public class SecUtils
      * @return Response will contain the RBAC session object (if found) or a system error if a problem in the get.  If arbac02 isn't enabled, it will return a NULL.
      */
     static FortResponse initializeSession(FortRequest fortRequest, HttpServletRequest httpRequest)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            return loadSession(fortRequest, httpRequest);
+        }
+        finally
+        {
+            MetricsInterceptor.secUtilsTime(System.nanoTime() - start);
+        }
+    }
+
+    private static FortResponse loadSession(FortRequest fortRequest, HttpServletRequest httpRequest)
     {
         Session realmSession;
         FortResponse fortResponse = null;
@@ -88,8 +104,8 @@ public class SecUtils
                 {
                     // Get the security principal from the runtime.
                     String szPrincipal = httpRequest.getUserPrincipal().toString();
-                    // This has to happen before it can be used by Fortress.
-                    realmSession = j2eePolicyMgr.deserialize(szPrincipal);
+                    // This has to happen before it can be used by Fortress, reuse the outcome for a principal already seen.
+                    realmSession = deserialize(szPrincipal);
                     if (realmSession != null)
                     {
                         // The RBAC Session successfully grabbed from the container.
@@ -110,6 +126,68 @@ public class SecUtils
         return fortResponse;
     }
 
+    /**
+     * Deserialize the principal, going through the session cache when it is enabled.  The key is a digest of the
+     * whole serialized principal, so a changed principal, e.g. after a role activation, never matches a stale entry.
+     * The cache holds the session as bytes and every request gets its own copy, since Fortress Core changes the
+     * session it is given, e.g. when checkAccess prunes the roles whose constraints no longer hold.
+     *
+     * @param szPrincipal The serialized principal
+     * @return The RBAC session, or null
+     * @throws SecurityException If the principal can't be deserialized
+     */
+    private static Session deserialize(String szPrincipal) throws SecurityException
+    {
+        ExpiringCache<String, byte[]> cache = SessionCacheHolder.INSTANCE;
+        if (cache == null)
+        {
+            return j2eePolicyMgr.deserialize(szPrincipal);
+        }
+        String key = AuthzDecisionCache.sha256(szPrincipal);
+        byte[] bytes = cache.get(key);
+        if (bytes != null)
+        {
+            Session copy = SessionCopies.read(bytes);
+            if (copy != null)
+            {
+                return copy;
+            }
+        }
+        Session realmSession = j2eePolicyMgr.deserialize(szPrincipal);
+        if (realmSession != null)
+        {
+            bytes = SessionCopies.write(realmSession);
+            if (bytes != null)
+            {
+                cache.put(key, bytes);
+            }
+        }
+        return realmSession;
+    }
+
+    /**
+     * The serialized sessions, created on first use and only if 'rest.session.cache.max.size' is above 0, it is off by
+     * default.
+     */
+    private static final class SessionCacheHolder
+    {
+        private static final ExpiringCache<String, byte[]> INSTANCE = createSessionCache();
+
+        private static ExpiringCache<String, byte[]> createSessionCache()
+        {
+            int maxSize = Config.getInstance().getInt(SESSION_CACHE_MAX_SIZE_PROP, 0);
+            int ttlSeconds = Config.getInstance().getInt(SESSION_CACHE_TTL_SECONDS_PROP, 60);
+            if (maxSize <= 0 || ttlSeconds <= 0)
+            {
+                return null;
+            }
+            LOG.info("SecUtils session cache enabled, maxSize={}, ttlSeconds={}", maxSize, ttlSeconds);
+            ExpiringCache<String, byte[]> cache = new ExpiringCache<>("RealmSessions", maxSize, ttlSeconds * 1000L);
+            cache.registerMBean();
+            return cache;
+        }
+    }
+
     private static FortResponse createError(int errId, String errMsg, int hCode)
     {
         FortResponse fortResponse = new FortResponse();
@@ -60,7 +60,8 @@ public class SecurityOutFaultInterceptor extends AbstractPhaseInterceptor<Messag
         if ( !(ex instanceof SecurityException) )
         {
             LOG.warn("SecurityOutFaultInterceptor caught exception: " + ex );
-            response.setStatus( 500 );
+            // 500 unless the fault carries another status, like the 503 of a timed out asynchronous call
+            response.setStatus( fault.getStatusCode() );
         }
         // Security violation:
         else
@@ -0,0 +1,98 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.directory.fortress.core.model.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Writes RBAC sessions to bytes and reads them back, for the stores that hand every request its own copy of a
+ * session: Fortress Core changes the session it is given, e.g. when checkAccess prunes the roles whose constraints no
+ * longer hold, so a session object must never be shared between requests.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class SessionCopies
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( SessionCopies.class.getName() );
+
+    /** Only the Fortress model and the JDK types it uses may be read back */
+    private static final ObjectInputFilter SESSION_FILTER = ObjectInputFilter.Config.createFilter(
+        "org.apache.directory.fortress.core.model.*;java.lang.*;java.util.*;!*" );
+
+
+    private SessionCopies()
+    {
+    }
+
+
+    /**
+     * @param session The session to keep
+     * @return its Java serialized form, or null if it can't be serialized
+     */
+    static byte[] write( Session session )
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        try ( ObjectOutputStream oos = new ObjectOutputStream( bos ) )
+        {
+            oos.writeObject( session );
+        }
+        catch ( IOException e )
+        {
+            LOG.warn( "SessionCopies.write could not write the session, caught " + e );
+
+            return null;
+        }
+
+        return bos.toByteArray();
+    }
+
+
+    /**
+     * @param bytes A session written by {@link #write(Session)}
+     * @return a new copy of that session, or null if it can't be read back
+     */
+    static Session read( byte[] bytes )
+    {
+        try ( ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes ) ) )
+        {
+            ois.setObjectInputFilter( SESSION_FILTER );
+
+            return ( Session ) ois.readObject();
+        }
+        catch ( IOException | ClassNotFoundException | ClassCastException e )
+        {
+            LOG.warn( "SessionCopies.read could not read a session, caught " + e );
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Keeps RBAC sessions on the server, so a client can refer to its session by a compact handle instead of sending the
+ * whole session, with all its roles and constraints, on every AccessMgr call.
+ * <p>
+ * A client opts in by calling createSession, createSessionTrusted or createGroupSession with the 'sessionHandle=true'
+ * query parameter; the handle comes back in the 'X-Fortress-Session-Handle' response header.  Later AccessMgr calls
+ * send that header instead of a session, the stored session is then used and updated, and it is not returned in the
+ * response.  A handle is only honored for the user that created it and on its tenant, and expires when unused for
+ * 'rest.session.store.ttl.seconds'.
+ * <p>
+ * The session is stored serialized and every call gets its own copy, since Fortress Core changes the session it is
+ * given even on checkAccess.  Calls that only read a session run concurrently, addActiveRole and dropActiveRole, which
+ * change it, run alone so that no change is lost.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class SessionHandles
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( SessionHandles.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String MAX_SIZE_PROP = "rest.session.store.max.size";
+    static final String TTL_SECONDS_PROP = "rest.session.store.ttl.seconds";
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final int DEFAULT_TTL_SECONDS = 1800;
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final SessionHandles INSTANCE = new SessionHandles(
+            Config.getInstance().getInt( MAX_SIZE_PROP, DEFAULT_MAX_SIZE ),
+            Config.getInstance().getInt( TTL_SECONDS_PROP, DEFAULT_TTL_SECONDS ) * 1000L );
+
+        static
+        {
+            INSTANCE.handles.registerMBean();
+        }
+    }
+
+    /** A stored session, with the user and tenant it belongs to */
+    private static final class Entry
+    {
+        private final String owner;
+        private final String contextId;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile byte[] session;
+
+        private Entry( String owner, String contextId, byte[] session )
+        {
+            this.owner = owner;
+            this.contextId = contextId;
+            this.session = session;
+        }
+    }
+
+    private final SecureRandom random = new SecureRandom();
+    private final ExpiringCache<String, Entry> handles;
+    private final int maxSize;
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.
+     *
+     * @param maxSize the maximum number of stored sessions, 0 disables the store
+     * @param ttlMillis how long an unused session is kept
+     */
+    SessionHandles( int maxSize, long ttlMillis )
+    {
+        this.maxSize = maxSize;
+        this.handles = new ExpiringCache<>( "SessionHandles", Math.max( maxSize, 1 ), ttlMillis );
+    }
+
+
+    /**
+     * @return the store used by FortressServiceImpl
+     */
+    static SessionHandles getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * Store the session of a createSession response.
+     *
+     * @param contextId the tenant
+     * @param session the session created, nothing is stored if null
+     * @param owner the user calling
+     * @return the handle of the session, or null if it wasn't stored
+     */
+    String create( String contextId, Session session, String owner )
+    {
+        if ( ( session == null ) || ( maxSize <= 0 ) )
+        {
+            return null;
+        }
+
+        byte[] stored = SessionCopies.write( session );
+
+        if ( stored == null )
+        {
+            return null;
+        }
+
+        byte[] bytes = new byte[16];
+        random.nextBytes( bytes );
+        String handle = Base64.getUrlEncoder().withoutPadding().encodeToString( bytes );
+        handles.put( handle, new Entry( owner, MgrRegistry.key( contextId ), stored ) );
+
+        return handle;
+    }
+
+
+    /**
+     * Run an AccessMgr call with a copy of the session stored under a handle.  The session returned by a call that
+     * mutates it replaces the stored one, and the session is always removed from the response.
+     *
+     * @param request the request of the call, its session is set from the store
+     * @param handle the handle sent by the client
+     * @param owner the user calling
+     * @param mutates true if the call changes the session, it then runs alone on it
+     * @param call the AccessMgrImpl call
+     * @return the response of the call, without its session
+     */
+    FortResponse call( FortRequest request, String handle, String owner, boolean mutates,
+        Function<FortRequest, FortResponse> call )
+    {
+        Entry entry = handles.get( handle );
+
+        if ( ( entry == null ) || !Objects.equals( entry.owner, owner )
+            || !entry.contextId.equals( MgrRegistry.key( request.getContextId() ) ) )
+        {
+            return createError( "SessionHandles unknown or expired session handle" );
+        }
+
+        Lock lock = mutates ? entry.lock.writeLock() : entry.lock.readLock();
+        lock.lock();
+
+        try
+        {
+            Session session = SessionCopies.read( entry.session );
+
+            if ( session == null )
+            {
+                return createError( "SessionHandles could not read the stored session" );
+            }
+
+            request.setSession( session );
+            FortResponse response = call.apply( request );
+
+            if ( mutates && ( response.getSession() != null ) )
+            {
+                byte[] stored = SessionCopies.write( response.getSession() );
+
+                if ( stored != null )
+                {
+                    entry.session = stored;
+                }
+            }
+
+            response.setSession( null );
+
+            // Keep a session in use from expiring
+            handles.put( handle, entry );
+
+            return response;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Forget a session, if it belongs to the user calling.
+     *
+     * @param handle the handle of the session
+     * @param owner the user calling
+     */
+    void remove( String handle, String owner )
+    {
+        Entry entry = handles.get( handle );
+
+        if ( ( entry != null ) && Objects.equals( entry.owner, owner ) )
+        {
+            handles.remove( handle );
+        }
+    }
+
+
+    private static FortResponse createError( String szError )
+    {
+        LOG.info( szError );
+        FortResponse response = new FortResponse();
+        response.setErrorCode( GlobalErrIds.USER_SESS_NULL );
+        response.setErrorMessage( szError );
+        response.setHttpStatus( 401 );
+
+        return response;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.FortResponse;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+
+/**
+ * Writes a {@link FortResponse} as the same JSON document the JSON provider would produce, but streams its entities
+ * through a {@link JsonGenerator}, one at a time.  Each entity is released from the list once written, so the memory
+ * held by a large search drains as the response goes out, and no serialized copy of the whole result is ever built.
+ * <p>
+ * Fortress Core returns a search result as a whole list, so that list is still materialized before streaming
+ * starts.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class StreamingFortResponse implements StreamingOutput
+{
+    /** The name of the entities field of FortResponse */
+    private static final String ENTITIES = "entities";
+
+    /** Flush the generator after this many entities, so the container sends the data as it comes */
+    private static final int FLUSH_INTERVAL = 500;
+
+    private static final TunedJacksonMapper MAPPER = new TunedJacksonMapper();
+
+    /**
+     * Writes each entity with its type id, as the entities of a FortResponse are.  ObjectWriter flushes the
+     * generator after every value by default, the flushes are left to FLUSH_INTERVAL instead.
+     */
+    private static final ObjectWriter ENTITY_WRITER = MAPPER.writerFor( FortEntity.class )
+        .without( SerializationFeature.FLUSH_AFTER_WRITE_VALUE );
+
+    private final FortResponse response;
+
+
+    /**
+     * @param response A successful response, its entities are consumed while writing
+     */
+    StreamingFortResponse( FortResponse response )
+    {
+        this.response = response;
+    }
+
+
+    /**
+     * Wrap a response for JAX-RS: a successful one carrying entities is streamed, any other goes through the JSON
+     * provider as usual.
+     *
+     * @param response The response of a search
+     * @return The JAX-RS response
+     */
+    static Response toResponse( FortResponse response )
+    {
+        if ( ( response.getErrorCode() != GlobalErrIds.NO_ERROR ) || ( response.getEntities() == null ) )
+        {
+            return Response.status( response.getHttpStatus() ).entity( response ).type( MediaType.APPLICATION_JSON_TYPE )
+                .build();
+        }
+
+        return Response.status( response.getHttpStatus() ).entity( new StreamingFortResponse( response ) )
+            .type( MediaType.APPLICATION_JSON_TYPE ).build();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( OutputStream output ) throws IOException
+    {
+        List<FortEntity> entities = response.getEntities();
+        response.setEntities( null );
+        ObjectNode header = MAPPER.valueToTree( response );
+        header.remove( ENTITIES );
+
+        try ( JsonGenerator generator = MAPPER.getFactory().createGenerator( output ) )
+        {
+            // The container owns the output stream
+            generator.disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
+            generator.writeStartObject();
+
+            for ( Iterator<Map.Entry<String, JsonNode>> fields = header.fields(); fields.hasNext(); )
+            {
+                Map.Entry<String, JsonNode> field = fields.next();
+                generator.writeFieldName( field.getKey() );
+                generator.writeTree( field.getValue() );
+            }
+
+            if ( entities != null )
+            {
+                generator.writeArrayFieldStart( ENTITIES );
+                int count = 0;
+
+                for ( ListIterator<FortEntity> it = entities.listIterator(); it.hasNext(); )
+                {
+                    ENTITY_WRITER.writeValue( generator, it.next() );
+                    // Let the entity be collected, the list is not used after this response
+                    it.set( null );
+
+                    if ( ++count % FLUSH_INTERVAL == 0 )
+                    {
+                        generator.flush();
+                    }
+                }
+
+                generator.writeEndArray();
+            }
+
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Per tenant bulkheads and rate limits, so one tenant can't take the directory connections shared by all of them.
+ * Every tenant, keyed by the contextId of its requests, runs at most 'max.concurrent' calls at once, and starts at
+ * most 'rate.per.second' calls per second on average, with bursts of 'burst' calls, through a token bucket.  A call
+ * over either limit is rejected at once, it never waits: the {@link AdmissionInterceptor} answers it with a 503 or a
+ * 429.
+ * <p>
+ * The limits are read from fortress.properties.  rest.tenant.{contextId}.max.concurrent,
+ * rest.tenant.{contextId}.rate.per.second and rest.tenant.{contextId}.burst give one tenant its own limits, the
+ * default tenant being HOME.  The other tenants get a bulkhead and a bucket each, with the limits set by
+ * rest.tenant.max.concurrent, rest.tenant.rate.per.second and rest.tenant.burst, so a busy tenant can't starve the
+ * others.  A tenant that has no call running and has not been called for 'rest.tenant.idle.seconds' is dropped, so the
+ * state kept, and the series of the scrape page, grow with the tenants in use, not with every contextId the clients
+ * ever sent; its counters start again from 0 when it comes back.  A rate of 0 means no rate limit.  The limits are
+ * disabled unless 'rest.tenant.limits.enabled' is set to true.  This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class TenantLimits
+{
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( TenantLimits.class.getName() );
+
+    /** Property names, read from fortress.properties */
+    static final String ENABLED_PROP = "rest.tenant.limits.enabled";
+    static final String PROP_PREFIX = "rest.tenant.";
+    static final String MAX_CONCURRENT_SUFFIX = "max.concurrent";
+    static final String RATE_SUFFIX = "rate.per.second";
+    static final String BURST_SUFFIX = "burst";
+    static final String IDLE_SECONDS_PROP = "rest.tenant.idle.seconds";
+
+    private static final int DEFAULT_MAX_CONCURRENT = 50;
+    private static final int DEFAULT_RATE = 0;
+    private static final int DEFAULT_IDLE_SECONDS = 600;
+
+    /** The outcome of {@link #admit(String)} */
+    enum Decision
+    {
+        /** The call may run, it must be released when it completes */
+        ADMITTED,
+
+        /** The tenant started too many calls in the last second */
+        RATE_LIMITED,
+
+        /** The tenant runs too many calls at once */
+        SATURATED
+    }
+
+    /** The limits of a tenant */
+    static final class Limits
+    {
+        private final int maxConcurrent;
+        private final int ratePerSecond;
+        private final int burst;
+
+        /**
+         * @param maxConcurrent the number of calls run at once
+         * @param ratePerSecond the number of calls started per second on average, 0 for no limit
+         * @param burst the number of calls started at once after an idle period
+         */
+        Limits( int maxConcurrent, int ratePerSecond, int burst )
+        {
+            this.maxConcurrent = Math.max( maxConcurrent, 0 );
+            this.ratePerSecond = ratePerSecond;
+            this.burst = Math.max( burst, 1 );
+        }
+    }
+
+    /** The state of a tenant */
+    private static final class Tenant
+    {
+        private final Limits limits;
+        private final Semaphore permits;
+        private final LongAdder rateLimited = new LongAdder();
+        private final LongAdder saturated = new LongAdder();
+        private double tokens;
+        private long refilled = System.nanoTime();
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private Tenant( Limits limits )
+        {
+            this.limits = limits;
+            this.permits = new Semaphore( limits.maxConcurrent );
+            this.tokens = limits.burst;
+        }
+
+        /**
+         * Take a token from the bucket, refilled at the rate of the tenant since the last call.
+         */
+        private synchronized boolean takeToken()
+        {
+            if ( limits.ratePerSecond <= 0 )
+            {
+                return true;
+            }
+
+            long now = System.nanoTime();
+            tokens = Math.min( limits.burst,
+                tokens + ( now - refilled ) * limits.ratePerSecond / ( double ) TimeUnit.SECONDS.toNanos( 1 ) );
+            refilled = now;
+
+            if ( tokens >= 1 )
+            {
+                tokens--;
+
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    /** Reads the configuration on first use only, so the unit tests can build their own instance */
+    private static final class Holder
+    {
+        private static final TenantLimits INSTANCE = new TenantLimits(
+            Config.getInstance().getBoolean( ENABLED_PROP, false ),
+            Config.getInstance().getInt( IDLE_SECONDS_PROP, DEFAULT_IDLE_SECONDS ) * 1000L,
+            TenantLimits::configured );
+    }
+
+    private final boolean enabled;
+    private final long idleMillis;
+    private final Function<String, Limits> limits;
+    private final ConcurrentMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private volatile long lastSweep = System.currentTimeMillis();
+
+
+    /**
+     * Package private for the unit tests, everyone else goes through {@link #getInstance()}.
+     *
+     * @param enabled if false, every call is admitted
+     * @param idleMillis how long a tenant without calls is kept
+     * @param limits gives the limits of a tenant from its key
+     */
+    TenantLimits( boolean enabled, long idleMillis, Function<String, Limits> limits )
+    {
+        this.enabled = enabled;
+        this.idleMillis = idleMillis;
+        this.limits = limits;
+
+        if ( enabled )
+        {
+            LOG.info( "TenantLimits enabled, idleMillis={}", idleMillis );
+        }
+    }
+
+
+    /**
+     * @return the limits used by the AdmissionInterceptor
+     */
+    static TenantLimits getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+
+    /**
+     * @param contextId the tenant of a call
+     * @return whether the call may run
+     */
+    Decision admit( String contextId )
+    {
+        if ( !enabled )
+        {
+            return Decision.ADMITTED;
+        }
+
+        Tenant tenant = tenant( contextId );
+
+        while ( !tenant.permits.tryAcquire() )
+        {
+            // An evicted tenant keeps all its permits taken, its calls go to the entry that replaced it
+            Tenant current = tenant( contextId );
+
+            if ( current == tenant )
+            {
+                tenant.saturated.increment();
+
+                return Decision.SATURATED;
+            }
+
+            tenant = current;
+        }
+
+        if ( !tenant.takeToken() )
+        {
+            tenant.permits.release();
+            tenant.rateLimited.increment();
+
+            return Decision.RATE_LIMITED;
+        }
+
+        return Decision.ADMITTED;
+    }
+
+
+    /**
+     * @param contextId the tenant of a call that was admitted
+     */
+    void release( String contextId )
+    {
+        if ( enabled )
+        {
+            tenant( contextId ).permits.release();
+        }
+    }
+
+
+    /**
+     * @param contextId the tenant
+     * @param decision {@link Decision#RATE_LIMITED} or {@link Decision#SATURATED}
+     * @return the number of calls of the tenant rejected for this reason
+     */
+    long getRejected( String contextId, Decision decision )
+    {
+        Tenant tenant = tenant( contextId );
+
+        return decision == Decision.RATE_LIMITED ? tenant.rateLimited.sum() : tenant.saturated.sum();
+    }
+
+
+    /**
+     * Render the rejection counters in the Prometheus text exposition format, version 0.0.4.
+     *
+     * @return the lines of the scrape page, empty if the limits are disabled
+     */
+    String scrape()
+    {
+        if ( !enabled )
+        {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append( "# HELP fortress_rest_tenant_rejected_total Calls rejected because their tenant was over a limit\n" );
+        sb.append( "# TYPE fortress_rest_tenant_rejected_total counter\n" );
+        Map<String, Tenant> sorted = new TreeMap<>( tenants );
+
+        for ( Map.Entry<String, Tenant> entry : sorted.entrySet() )
+        {
+            String tenant = entry.getKey().replace( "\\", "\\\\" ).replace( "\"", "\\\"" ).replace( "\n", "\\n" );
+            sb.append( "fortress_rest_tenant_rejected_total{tenant=\"" ).append( tenant )
+                .append( "\",reason=\"concurrency\"} " ).append( entry.getValue().saturated.sum() ).append( '\n' );
+            sb.append( "fortress_rest_tenant_rejected_total{tenant=\"" ).append( tenant )
+                .append( "\",reason=\"rate\"} " ).append( entry.getValue().rateLimited.sum() ).append( '\n' );
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * Drop the tenants that run no call and have not been called for longer than the idle period.  A tenant is only
+     * dropped once all its permits are taken, so no call admitted on it is left running, and none is admitted on it
+     * afterwards.
+     *
+     * @param now the current time, in milliseconds
+     */
+    void evictIdle( long now )
+    {
+        lastSweep = now;
+        Iterator<Map.Entry<String, Tenant>> it = tenants.entrySet().iterator();
+
+        while ( it.hasNext() )
+        {
+            Map.Entry<String, Tenant> entry = it.next();
+            Tenant tenant = entry.getValue();
+
+            if ( ( now - tenant.lastAccess > idleMillis ) && tenant.permits.tryAcquire( tenant.limits.maxConcurrent ) )
+            {
+                it.remove();
+                LOG.debug( "TenantLimits evicted idle tenant {}", entry.getKey() );
+            }
+        }
+    }
+
+
+    /**
+     * @return the number of tenants whose limits are kept
+     */
+    int getTenants()
+    {
+        return tenants.size();
+    }
+
+
+    /**
+     * @return the entry of a tenant, created on its first call
+     */
+    private Tenant tenant( String contextId )
+    {
+        String key = MgrRegistry.key( contextId );
+        Tenant tenant = tenants.computeIfAbsent( key, k -> new Tenant( limits.apply( k ) ) );
+        long now = System.currentTimeMillis();
+        tenant.lastAccess = now;
+
+        if ( now - lastSweep > idleMillis )
+        {
+            evictIdle( now );
+        }
+
+        return tenant;
+    }
+
+
+    /**
+     * @param key the key of a tenant
+     * @return its limits, read from fortress.properties: its own ones, the unset ones taken from the rest.tenant.*
+     * defaults
+     */
+    private static Limits configured( String key )
+    {
+        Config config = Config.getInstance();
+        String prefix = PROP_PREFIX + key + ".";
+        int maxConcurrent = config.getInt( PROP_PREFIX + MAX_CONCURRENT_SUFFIX, DEFAULT_MAX_CONCURRENT );
+        int rate = config.getInt( PROP_PREFIX + RATE_SUFFIX, DEFAULT_RATE );
+        int burst = config.getInt( PROP_PREFIX + BURST_SUFFIX, rate );
+        maxConcurrent = config.getInt( prefix + MAX_CONCURRENT_SUFFIX, maxConcurrent );
+        rate = config.getInt( prefix + RATE_SUFFIX, rate );
+        burst = config.getInt( prefix + BURST_SUFFIX, Math.max( burst, rate ) );
+        LOG.debug( "TenantLimits tenant={}, maxConcurrent={}, ratePerSecond={}, burst={}", key, maxConcurrent, rate,
+            burst );
+
+        return new Limits( maxConcurrent, rate, burst );
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jakarta.xml.bind.annotation.XmlSeeAlso;
+
+import org.apache.directory.fortress.core.model.FortEntity;
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * A {@link JacksonFieldOnlyMapper} tuned for the request path:
+ * <ul>
+ *   <li>the Blackbird module replaces the reflective accessors it can with generated lambdas</li>
+ *   <li>the serializers and deserializers of FortRequest, FortResponse and every FortEntity subtype are built when
+ *   the mapper is created, and kept in the caches the mapper shares with every reader and writer, so the first
+ *   requests after a start don't pay for it</li>
+ * </ul>
+ * The Jackson providers get their readers and writers from readerFor and writerFor, as usual, and find these caches
+ * warm.
+ * The JSON it reads and writes is the same as the one of JacksonFieldOnlyMapper.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class TunedJacksonMapper extends JacksonFieldOnlyMapper
+{
+    private static final long serialVersionUID = 1L;
+
+    /** A logger for this class */
+    private static final Logger LOG = LoggerFactory.getLogger( TunedJacksonMapper.class.getName() );
+
+
+    /**
+     * default constructor
+     */
+    public TunedJacksonMapper()
+    {
+        this( null );
+    }
+
+
+    /**
+     * Create a tuned mapper writing another format than JSON, like Smile or CBOR.
+     *
+     * @param factory the factory of the format, null for JSON
+     */
+    public TunedJacksonMapper( JsonFactory factory )
+    {
+        super( factory );
+        registerModule( new BlackbirdModule() );
+        List<Class<?>> types = modelClasses();
+
+        // The eager fetch features, on by default, make each reader and writer resolve its (de)serializer now, the
+        // reader and writer are dropped but what they resolved stays in the caches of the mapper
+        for ( Class<?> type : types )
+        {
+            readerFor( type );
+            writerFor( type );
+        }
+
+        LOG.info( "TunedJacksonMapper warmed {} types for {}", types.size(), getFactory().getFormatName() );
+    }
+
+
+    /**
+     * @return FortRequest, FortResponse, FortEntity and the subtypes FortEntity declares to JAXB
+     */
+    static List<Class<?>> modelClasses()
+    {
+        List<Class<?>> classes = new ArrayList<>();
+        classes.add( FortRequest.class );
+        classes.add( FortResponse.class );
+        classes.add( FortEntity.class );
+        XmlSeeAlso subTypes = FortEntity.class.getAnnotation( XmlSeeAlso.class );
+
+        if ( subTypes != null )
+        {
+            Collections.addAll( classes, subTypes.value() );
+        }
+
+        return classes;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.rest.HttpIds;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AdminBatchTest {
+    /** The requests the handlers were given, in order */
+    private final List<FortRequest> requests = new ArrayList<>();
+
+    private final Map<String, Function<FortRequest, FortResponse>> handlers = new HashMap<>();
+
+    private AdminMgrImpl adminMgrImpl(int batchMaxSize) {
+        return new AdminMgrImpl(new PermissionIndex(false, 0), batchMaxSize) {
+            @Override
+            Function<FortRequest, FortResponse> batchOperation(String op) {
+                return handlers.get(op);
+            }
+        };
+    }
+
+    private void handle(String op, int errorCode) {
+        handlers.put(op, request -> {
+            requests.add(request);
+            FortResponse response = new FortResponse();
+            response.setErrorCode(errorCode);
+            response.setErrorMessage(errorCode == GlobalErrIds.NO_ERROR ? null : op + " failed");
+            return response;
+        });
+    }
+
+    private static FortRequest request(AdminBatch batch) {
+        FortRequest request = new FortRequest();
+        request.setContextId("t1");
+        Session session = new Session();
+        session.setUser(new User("admin"));
+        request.setSession(session);
+        request.setEntity(batch);
+        return request;
+    }
+
+    @Test
+    public void testHandlerMap() {
+        AdminMgrImpl adminMgrImpl = new AdminMgrImpl(new PermissionIndex(false, 0), 10);
+        for (String op : Arrays.asList(HttpIds.USER_ADD, HttpIds.USER_DELETE, HttpIds.ROLE_ADD, HttpIds.ROLE_ASGN,
+                HttpIds.PERM_ADD, HttpIds.ROLE_GRANT, HttpIds.USER_REVOKE, HttpIds.ROLE_ADDINHERIT, HttpIds.SSD_ADD,
+                HttpIds.DSD_CARD_UPDATE, HttpIds.PERM_UPDATE_PERM_ATTRIBUTE_IN_SET)) {
+            assertNotNull(op, adminMgrImpl.batchOperation(op));
+        }
+        // reads and unknown paths are not batched
+        assertNull(adminMgrImpl.batchOperation(HttpIds.USER_READ));
+        assertNull(adminMgrImpl.batchOperation("noSuchOp"));
+    }
+
+    @Test
+    public void testOperationRequests() {
+        handle(HttpIds.ROLE_ASGN, GlobalErrIds.NO_ERROR);
+        AdminBatch.Operation operation = new AdminBatch.Operation(HttpIds.ROLE_ASGN, new User("jdoe"));
+        operation.setEntity2(new Role("teller"));
+        operation.setValue("v1");
+        operation.setIsFlag(true);
+        AdminBatch batch = new AdminBatch();
+        batch.getOperations().add(operation);
+        FortRequest batchRequest = request(batch);
+
+        FortResponse response = adminMgrImpl(10).adminBatch(batchRequest);
+
+        assertEquals(GlobalErrIds.NO_ERROR, response.getErrorCode());
+        assertEquals(1, requests.size());
+        FortRequest request = requests.get(0);
+        assertEquals("t1", request.getContextId());
+        assertSame(batchRequest.getSession(), request.getSession());
+        assertSame(operation.getEntity(), request.getEntity());
+        assertSame(operation.getEntity2(), request.getEntity2());
+        assertEquals("v1", request.getValue());
+        assertTrue(request.getIsFlag());
+        assertEquals(1, ((AdminBatch) response.getEntity()).getResults().size());
+    }
+
+    @Test
+    public void testStopOnError() {
+        handle(HttpIds.USER_ADD, GlobalErrIds.NO_ERROR);
+        handle(HttpIds.USER_DELETE, GlobalErrIds.USER_NOT_FOUND);
+        AdminBatch batch = new AdminBatch();
+        batch.getOperations().add(new AdminBatch.Operation(HttpIds.USER_ADD, new User("u1")));
+        batch.getOperations().add(new AdminBatch.Operation(HttpIds.USER_DELETE, new User("u2")));
+        batch.getOperations().add(new AdminBatch.Operation(HttpIds.USER_ADD, new User("u3")));
+
+        FortResponse response = adminMgrImpl(10).adminBatch(request(batch));
+
+        assertEquals(GlobalErrIds.USER_NOT_FOUND, response.getErrorCode());
+        assertTrue(response.getErrorMessage(), response.getErrorMessage().startsWith("adminBatch operation 1 failed"));
+        assertEquals(2, requests.size());
+        assertEquals(2, ((AdminBatch) response.getEntity()).getResults().size());
+    }
+
+    @Test
+    public void testContinueOnError() {
+        handle(HttpIds.USER_ADD, GlobalErrIds.NO_ERROR);
+        handlers.put(HttpIds.USER_DELETE, request -> {
+            throw new ClassCastException("not a User");
+        });
+        AdminBatch batch = new AdminBatch();
+        batch.setStopOnError(false);
+        batch.getOperations().add(new AdminBatch.Operation("noSuchOp", new User("u1")));
+        batch.getOperations().add(new AdminBatch.Operation(HttpIds.USER_DELETE, new Role("r1")));
+        batch.getOperations().add(new AdminBatch.Operation(HttpIds.USER_ADD, new User("u3")));
+
+        FortResponse response = adminMgrImpl(10).adminBatch(request(batch));
+
+        // the first failure is reported, every operation is run
+        assertEquals(GlobalErrIds.REST_NOT_FOUND_ERR, response.getErrorCode());
+        List<FortResponse> results = ((AdminBatch) response.getEntity()).getResults();
+        assertEquals(3, results.size());
+        assertEquals(GlobalErrIds.REST_WEB_ERR, results.get(1).getErrorCode());
+        assertEquals(GlobalErrIds.NO_ERROR, results.get(2).getErrorCode());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void testBatchTooLarge() {
+        handle(HttpIds.USER_ADD, GlobalErrIds.NO_ERROR);
+        AdminBatch batch = new AdminBatch();
+        for (int i = 0; i < 3; i++) {
+            batch.getOperations().add(new AdminBatch.Operation(HttpIds.USER_ADD, new User("u" + i)));
+        }
+
+        FortResponse response = adminMgrImpl(2).adminBatch(request(batch));
+
+        assertEquals(GlobalErrIds.REST_WEB_ERR, response.getErrorCode());
+        assertEquals(400, response.getHttpStatus());
+        assertTrue(requests.isEmpty());
+
+        assertEquals(GlobalErrIds.NO_ERROR, adminMgrImpl(3).adminBatch(request(batch)).getErrorCode());
+        assertEquals(3, requests.size());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageContentsList;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.phase.Phase;
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AdmissionInterceptorTest {
+    private final TenantLimits limits = new TenantLimits(true, 60000, key -> new TenantLimits.Limits(1, 0, 0));
+    private final LaneScheduler scheduler = new LaneScheduler(false, 0);
+    private final AdmissionInterceptor preInvoke = new AdmissionInterceptor(Phase.PRE_INVOKE, scheduler, limits);
+    private final AdmissionInterceptor setup = new AdmissionInterceptor(Phase.SETUP, scheduler, limits);
+
+    /** Runs the pre-invoke instance on a call of tenant1 */
+    private Exchange admit() {
+        Message message = new MessageImpl();
+        Exchange exchange = new ExchangeImpl();
+        message.setExchange(exchange);
+        exchange.setInMessage(message);
+        FortRequest request = new FortRequest();
+        request.setContextId("tenant1");
+        message.setContent(List.class, new MessageContentsList(request));
+        preInvoke.handleMessage(message);
+        return exchange;
+    }
+
+    private void respond(Exchange exchange) {
+        Message message = new MessageImpl();
+        message.setExchange(exchange);
+        exchange.setOutMessage(message);
+        setup.handleMessage(message);
+    }
+
+    @Test
+    public void testResponseGivesPermitsBackOnce() {
+        Exchange first = admit();
+        assertFalse(AdmissionInterceptor.isShed(first));
+        assertTrue(AdmissionInterceptor.isShed(admit()));
+        respond(first);
+        respond(first);
+        Exchange second = admit();
+        assertFalse(AdmissionInterceptor.isShed(second));
+        assertTrue(AdmissionInterceptor.isShed(admit()));
+    }
+
+    @Test
+    public void testHeldPermitsOutliveTheResponse() {
+        Exchange first = admit();
+        Runnable release = AdmissionInterceptor.hold(first);
+        // The call timed out, its response is sent while it still runs
+        respond(first);
+        assertTrue(AdmissionInterceptor.isShed(admit()));
+        release.run();
+        assertFalse(AdmissionInterceptor.isShed(admit()));
+    }
+
+    @Test
+    public void testHoldEndingBeforeTheResponse() {
+        Exchange first = admit();
+        AdmissionInterceptor.hold(first).run();
+        assertTrue(AdmissionInterceptor.isShed(admit()));
+        respond(first);
+        assertFalse(AdmissionInterceptor.isShed(admit()));
+    }
+}
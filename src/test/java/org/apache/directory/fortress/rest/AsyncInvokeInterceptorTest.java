@@ -0,0 +1,137 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.cxf.bus.managers.PhaseManagerImpl;
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.ServiceInvokerInterceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.phase.Interceptor;
+import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AsyncInvokeInterceptorTest {
+    private static Message message(AsyncInvokeInterceptor interceptor) {
+        PhaseInterceptorChain chain = new PhaseInterceptorChain(new PhaseManagerImpl().getInPhases());
+        chain.add(interceptor);
+        chain.add(new ServiceInvokerInterceptor());
+        Message message = new MessageImpl();
+        Exchange exchange = new ExchangeImpl();
+        message.setExchange(exchange);
+        exchange.setInMessage(message);
+        message.setInterceptorChain(chain);
+        return message;
+    }
+
+    /** A continuation that is new until suspended, and counts down resumed when resumed */
+    private static void continuation(Message message, CountDownLatch resumed) {
+        AtomicBoolean isNew = new AtomicBoolean(true);
+        Continuation continuation = (Continuation) Proxy.newProxyInstance(loader(),
+                new Class<?>[] {Continuation.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isNew":
+                            return isNew.get();
+                        case "suspend":
+                            isNew.set(false);
+                            return true;
+                        case "resume":
+                            resumed.countDown();
+                            return null;
+                        default:
+                            return method.getReturnType() == boolean.class ? false : null;
+                    }
+                });
+        ContinuationProvider provider = (ContinuationProvider) Proxy.newProxyInstance(loader(),
+                new Class<?>[] {ContinuationProvider.class},
+                (proxy, method, args) -> "getContinuation".equals(method.getName()) ? continuation : null);
+        message.put(ContinuationProvider.class, provider);
+    }
+
+    private static ClassLoader loader() {
+        return AsyncInvokeInterceptorTest.class.getClassLoader();
+    }
+
+    private static boolean hasServiceInvoker(Message message) {
+        for (Interceptor<? extends Message> interceptor : message.getInterceptorChain()) {
+            if (interceptor instanceof ServiceInvokerInterceptor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testRunsOnThePoolAndRethrowsOnResume() throws Exception {
+        AsyncInvokeInterceptor interceptor = new AsyncInvokeInterceptor(true, 2, 10, 60000);
+        try {
+            Message message = message(interceptor);
+            CountDownLatch resumed = new CountDownLatch(1);
+            continuation(message, resumed);
+            interceptor.handleMessage(message);
+            assertTrue(resumed.await(5, TimeUnit.SECONDS));
+            assertFalse(hasServiceInvoker(message));
+            // There is no endpoint to invoke, the failure of the pool thread is thrown on the resumed pass
+            try {
+                interceptor.handleMessage(message);
+                fail();
+            } catch (Fault f) {
+                assertTrue(f.getCause() instanceof NullPointerException);
+            }
+        } finally {
+            interceptor.destroy();
+        }
+    }
+
+    @Test
+    public void testWithoutContinuationOrDisabledRunsInline() {
+        AsyncInvokeInterceptor interceptor = new AsyncInvokeInterceptor(true, 2, 10, 60000);
+        try {
+            Message message = message(interceptor);
+            interceptor.handleMessage(message);
+            assertTrue(hasServiceInvoker(message));
+        } finally {
+            interceptor.destroy();
+        }
+        AsyncInvokeInterceptor disabled = new AsyncInvokeInterceptor(false, 2, 10, 60000);
+        Message message = message(disabled);
+        continuation(message, new CountDownLatch(1));
+        disabled.handleMessage(message);
+        assertTrue(hasServiceInvoker(message));
+        assertNull(AsyncInvokeInterceptor.currentMessage());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class AuthzDecisionCacheTest {
+    private static User user(String userId, String... roles) {
+        User user = new User(userId);
+        user.setRoles(new ArrayList<>());
+        for (String role : roles) {
+            user.getRoles().add(new UserRole(userId, role));
+        }
+        return user;
+    }
+
+    @Test
+    public void testKeyIgnoresRoleOrderAndCase() {
+        AuthzDecisionCache cache = new AuthzDecisionCache(true, 100, 60000);
+        Permission perm = new Permission("obj1", "read");
+        String k1 = cache.key("tenant1", user("jdoe", "r1", "r2"), perm, true);
+        String k2 = cache.key("tenant1", user("JDOE", "R2", "r1"), perm, true);
+        assertEquals(k1, k2);
+        assertNotEquals(k1, cache.key("tenant2", user("jdoe", "r1", "r2"), perm, true));
+        assertNotEquals(k1, cache.key("tenant1", user("jdoe", "r1"), perm, true));
+        assertNotEquals(k1, cache.key("tenant1", user("jdoe", "r1", "r2"), new Permission("obj1", "write"), true));
+    }
+
+    @Test
+    public void testUntrustedAndDisabledAreNotCached() {
+        AuthzDecisionCache cache = new AuthzDecisionCache(true, 100, 60000);
+        assertNull(cache.key("tenant1", user("jdoe", "r1"), new Permission("obj1", "read"), false));
+        AuthzDecisionCache disabled = new AuthzDecisionCache(false, 100, 60000);
+        assertNull(disabled.key("tenant1", user("jdoe", "r1"), new Permission("obj1", "read"), true));
+    }
+
+    @Test
+    public void testInvalidate() {
+        AuthzDecisionCache cache = new AuthzDecisionCache(true, 100, 60000);
+        User user = user("jdoe", "r1");
+        Permission perm = new Permission("obj1", "read");
+        cache.put(cache.key("tenant1", user, perm, true), true);
+        cache.put(cache.key("tenant2", user, perm, true), true);
+        assertEquals(Boolean.TRUE, cache.get(cache.key("tenant1", user, perm, true)));
+        cache.invalidate("tenant1");
+        assertNull(cache.get(cache.key("tenant1", user, perm, true)));
+        assertEquals(Boolean.TRUE, cache.get(cache.key("tenant2", user, perm, true)));
+    }
+
+    @Test
+    public void testBoundedSize() {
+        ExpiringCache<String, Boolean> cache = new ExpiringCache<>("test", 10, 60000);
+        for (String key : Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l")) {
+            cache.put(key, true);
+        }
+        assertEquals(true, cache.getSize() <= 10);
+        assertEquals(true, cache.getEvictions() > 0);
+    }
+}
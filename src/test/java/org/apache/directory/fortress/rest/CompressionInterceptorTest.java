@@ -0,0 +1,52 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.directory.fortress.core.rest.HttpIds;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CompressionInterceptorTest {
+    @Test
+    public void testParsePaths() {
+        assertEquals(CompressionInterceptor.DEFAULT_PATHS, CompressionInterceptor.parsePaths(null));
+        assertEquals(CompressionInterceptor.DEFAULT_PATHS, CompressionInterceptor.parsePaths(" "));
+        assertEquals(new HashSet<>(Arrays.asList("userSearch", "stream/{service}")),
+                CompressionInterceptor.parsePaths(" /userSearch/ ,stream/{service},,"));
+    }
+
+    @Test
+    public void testAllowList() {
+        CompressionInterceptor interceptor = new CompressionInterceptor(true, 8192, CompressionInterceptor.DEFAULT_PATHS);
+        assertTrue(interceptor.isCompressed(HttpIds.AUDIT_BINDS));
+        assertFalse(interceptor.isCompressed(HttpIds.RBAC_AUTHZ));
+        CompressionInterceptor disabled = new CompressionInterceptor(false, 8192, CompressionInterceptor.DEFAULT_PATHS);
+        assertFalse(disabled.isCompressed(HttpIds.AUDIT_BINDS));
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleState;
+import org.apache.catalina.realm.GenericPrincipal;
+import org.apache.catalina.realm.RealmBase;
+import org.apache.catalina.startup.Constants;
+import org.apache.catalina.startup.ContextConfig;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.directory.fortress.core.RestException;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.rest.HttpIds;
+import org.apache.directory.fortress.core.rest.RestUtils;
+import org.apache.tomcat.util.scan.StandardJarScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldif.LDIFReader;
+
+/**
+ * Runs the whole Fortress Rest stack in this JVM with no external service: an in-memory directory loaded with the
+ * empty Fortress DIT of embeddedFortress.ldif, and an embedded Tomcat serving src/main/webapp, so web.xml boots
+ * applicationContext.xml and every interceptor exactly as the WAR does.  {@link #seed()} then creates the entities
+ * EmTest works with, by posting the XML fixtures of src/test/resources to the services.
+ * <p>
+ * The container authenticates one user, demouser4/password, holding the fortress-rest-user and
+ * fortress-rest-super-user roles.  is.arbac02 is off, so no Fortress session is read from the principal and no ARBAC
+ * policy has to be loaded.  Fortress Core takes its connection settings from the fortress.* system properties set by
+ * {@link #start()}; it reads them once, so the harness must be started before anything else in the JVM uses Config,
+ * and only once per JVM.
+ * <p>
+ * Run main to keep a seeded instance up, e.g. to point a load generator or the benchmarks at it.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class EmbeddedFortress {
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddedFortress.class.getName());
+
+    /** The user the container knows, as in EmTest */
+    static final String USER_ID = "demouser4";
+    static final String PASSWORD = "password";
+
+    /** fortress-rest-user passes the constraint of web.xml, every service allows the super user */
+    private static final List<String> ROLES = Arrays.asList("fortress-rest-user", "fortress-rest-super-user");
+
+    private static final String CONTEXT_PATH = "/fortress-rest";
+    private static final String SUFFIX = "dc=example,dc=com";
+    private static final String ADMIN_DN = "uid=admin,ou=system";
+    private static final String ADMIN_PW = "secret";
+    private static final String DIT_LDIF = "embeddedFortress.ldif";
+
+    /** The fixtures EmTest creates its entities from, and the services they are posted to, in order */
+    static final String[][] FIXTURES = {
+        {"emTestPermOrg1.xml", HttpIds.ORG_ADD},
+        {"emTestOrg1.xml", HttpIds.ORG_ADD},
+        {"addEmRole1.xml", HttpIds.ROLE_ADD},
+        {"addEmRole3.xml", HttpIds.ROLE_ADD},
+        {"addEmRole2Ascendent.xml", HttpIds.ROLE_ASC},
+        {"addEmUser1.xml", HttpIds.USER_ADD},
+        {"assignEmUser1.xml", HttpIds.ROLE_ASGN},
+        {"addEmTestObj1.xml", HttpIds.OBJ_ADD},
+        {"addEmTestPermission.xml", HttpIds.PERM_ADD},
+        {"addPermGrant1.xml", HttpIds.ROLE_GRANT},
+        {"addEmGroup1.xml", HttpIds.GROUP_ADD},
+    };
+
+    private InMemoryDirectoryServer directory;
+    private Tomcat tomcat;
+    private Path baseDir;
+    private HttpClient client;
+    private String uri;
+
+    /**
+     * Start the directory, then the container.  Returns once the Spring context is up.
+     *
+     * @throws Exception if either could not start
+     */
+    public synchronized void start() throws Exception {
+        directory = startDirectory();
+        LOG.info("EmbeddedFortress directory listening on port {}", directory.getListenPort());
+
+        System.setProperty("fortress.host", "localhost");
+        System.setProperty("fortress.port", String.valueOf(directory.getListenPort()));
+        System.setProperty("fortress.admin.user", ADMIN_DN);
+        System.setProperty("fortress.admin.pw", ADMIN_PW);
+        System.setProperty("fortress.ldap.server.type", "other");
+        System.setProperty("fortress.config.realm", "DEFAULT");
+        System.setProperty("fortress.config.root", "ou=Config," + SUFFIX);
+        System.setProperty("fortress.is.arbac02", "false");
+
+        baseDir = Files.createTempDirectory("fortress-rest");
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        // Only web.xml, without the default servlets of a standalone Tomcat
+        tomcat.setAddDefaultWebXmlToWebapp(false);
+        ContextConfig contextConfig = new ContextConfig();
+        contextConfig.setDefaultWebXml(Constants.NoDefaultWebXml);
+        Context context = tomcat.addWebapp(tomcat.getHost(), CONTEXT_PATH, webappDir(), contextConfig);
+        context.setRealm(new UserRealm());
+        // web.xml is metadata-complete, there is nothing to find on the test classpath
+        StandardJarScanner scanner = (StandardJarScanner) context.getJarScanner();
+        scanner.setScanClassPath(false);
+        scanner.setScanManifest(false);
+        tomcat.start();
+
+        if (context.getState() != LifecycleState.STARTED) {
+            throw new IllegalStateException("EmbeddedFortress webapp failed to start, state=" + context.getState());
+        }
+
+        uri = "http://localhost:" + tomcat.getConnector().getLocalPort() + CONTEXT_PATH + "/";
+        client = HttpClient.newHttpClient();
+        LOG.info("EmbeddedFortress serving {}", uri);
+    }
+
+    /**
+     * Stop the container, then the directory, and drop everything written to disk.
+     *
+     * @throws Exception if the container could not be stopped
+     */
+    public synchronized void stop() throws Exception {
+        if (tomcat != null) {
+            tomcat.stop();
+            tomcat.destroy();
+            tomcat = null;
+        }
+        if (directory != null) {
+            directory.shutDown(true);
+            directory = null;
+        }
+        if (baseDir != null) {
+            try (Stream<Path> paths = Files.walk(baseDir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+            baseDir = null;
+        }
+    }
+
+    /**
+     * @return the base URI of the services, e.g. http://localhost:port/fortress-rest/
+     */
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * @return the port of the in-memory directory
+     */
+    public int getLdapPort() {
+        return directory.getListenPort();
+    }
+
+    /**
+     * Create the entities of the {@link #FIXTURES} through the services.
+     *
+     * @throws Exception if a fixture could not be posted or a service returned an error
+     */
+    public void seed() throws Exception {
+        for (String[] fixture : FIXTURES) {
+            FortResponse response = post(fixture[0], fixture[1]);
+            if (response.getErrorCode() != 0) {
+                throw new IllegalStateException("EmbeddedFortress.seed FAILED calling " + fixture[1] + " with "
+                    + fixture[0] + " rc=" + response.getErrorCode() + " error message=" + response.getErrorMessage());
+            }
+        }
+    }
+
+    /**
+     * Post an XML fixture of src/test/resources to a service, as demouser4.
+     *
+     * @param xmlFile the name of the fixture
+     * @param function the path of the service, one of HttpIds
+     * @return the unmarshalled response
+     * @throws IOException if the fixture can't be read or the call failed
+     * @throws InterruptedException if interrupted while waiting for the response
+     * @throws RestException if the response is not a FortResponse
+     */
+    public FortResponse post(String xmlFile, String function) throws IOException, InterruptedException, RestException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri + function))
+            .header("Content-Type", "application/xml")
+            .header("Accept", "application/xml")
+            .header("Authorization", authorization(USER_ID, PASSWORD))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(fixture(xmlFile)))
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        LOG.debug("EmbeddedFortress.post {} to {} status {}", xmlFile, function, response.statusCode());
+        return RestUtils.unmarshall(response.body());
+    }
+
+    /**
+     * @param userId the user
+     * @param password its password
+     * @return the value of the Authorization header of an HTTP Basic authentication
+     */
+    static String authorization(String userId, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((userId + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param xmlFile the name of a file of src/test/resources
+     * @return its content
+     * @throws IOException if it can't be read
+     */
+    static byte[] fixture(String xmlFile) throws IOException {
+        try (InputStream in = resource(xmlFile)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Start a seeded instance and keep it up until the JVM is stopped.
+     *
+     * @param args not used
+     * @throws Exception if the instance could not start or be seeded
+     */
+    public static void main(String[] args) throws Exception {
+        EmbeddedFortress fortress = new EmbeddedFortress();
+        fortress.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                fortress.stop();
+            } catch (Exception e) {
+                LOG.warn("EmbeddedFortress.stop caught " + e);
+            }
+        }));
+        fortress.seed();
+        LOG.info("EmbeddedFortress seeded, serving {} as {}/{}", fortress.getUri(), USER_ID, PASSWORD);
+        Thread.currentThread().join();
+    }
+
+    private static InMemoryDirectoryServer startDirectory() throws Exception {
+        InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(SUFFIX);
+        config.addAdditionalBindCredentials(ADMIN_DN, ADMIN_PW);
+        // The Fortress object classes are not part of the default schema, and loading the Fortress schema would
+        // bring nothing a functional or load test needs
+        config.setSchema(null);
+        config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", 0));
+        InMemoryDirectoryServer server = new InMemoryDirectoryServer(config);
+        try (InputStream in = resource(DIT_LDIF)) {
+            server.importFromLDIF(true, new LDIFReader(in));
+        }
+        server.startListening();
+        return server;
+    }
+
+    private static InputStream resource(String name) throws FileNotFoundException {
+        InputStream in = EmbeddedFortress.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new FileNotFoundException("EmbeddedFortress resource " + name + " not found");
+        }
+        return in;
+    }
+
+    private static String webappDir() {
+        return new File(System.getProperty("basedir", "."), "src/main/webapp").getAbsolutePath();
+    }
+
+    /**
+     * Stands for the Fortress realm of a real deployment, which would need the ARBAC policy of the server loaded.
+     */
+    private static final class UserRealm extends RealmBase {
+        @Override
+        protected String getPassword(String username) {
+            return USER_ID.equals(username) ? PASSWORD : null;
+        }
+
+        @Override
+        protected Principal getPrincipal(String username) {
+            return USER_ID.equals(username) ? new GenericPrincipal(username, ROLES) : null;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.rest.HttpIds;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The functional sequence of EmTest, run against {@link EmbeddedFortress} instead of a deployed server.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class EmbeddedFortressTest {
+    private static EmbeddedFortress fortress;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        fortress = new EmbeddedFortress();
+        fortress.start();
+        fortress.seed();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if (fortress != null) {
+            fortress.stop();
+        }
+    }
+
+    private static void assertOk(String xmlFile, String function) throws Exception {
+        FortResponse response = fortress.post(xmlFile, function);
+        assertEquals(function + " " + response.getErrorMessage(), 0, response.getErrorCode());
+    }
+
+    @Test
+    public void testServices() throws Exception {
+        assertOk("emTestAuthN.xml", HttpIds.RBAC_AUTHN);
+        assertOk("createSession.xml", HttpIds.RBAC_CREATE);
+        assertOk("emTestCheckAccess.xml", HttpIds.RBAC_AUTHZ);
+        assertOk("groupRead.xml", HttpIds.GROUP_READ);
+        assertOk("assignEmGroup1.xml", HttpIds.GROUP_ASGN);
+        assertOk("assignEmGroup1.xml", HttpIds.GROUP_DEASGN);
+        assertOk("groupRead.xml", HttpIds.GROUP_ROLE_ASGNED);
+        assertOk("addEmRole1.xml", HttpIds.GROUP_ASGNED);
+        assertOk("createGroupSession.xml", HttpIds.RBAC_CREATE_GROUP_SESSION);
+        assertOk("emTestCheckAccessGroupSession.xml", HttpIds.RBAC_AUTHZ);
+    }
+}
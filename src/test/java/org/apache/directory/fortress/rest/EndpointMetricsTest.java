@@ -0,0 +1,67 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class EndpointMetricsTest {
+    @Test
+    public void testScrapeRendersStagesAndErrors() {
+        EndpointMetrics metrics = EndpointMetrics.get("scrapeTest");
+        metrics.reset();
+        metrics.record(TimeUnit.MILLISECONDS.toNanos(2), -1, TimeUnit.MILLISECONDS.toNanos(1), -1, 0);
+        metrics.record(TimeUnit.MILLISECONDS.toNanos(2), -1, TimeUnit.MILLISECONDS.toNanos(1), -1, 1001);
+        metrics.record(TimeUnit.MILLISECONDS.toNanos(2), -1, -1, -1, EndpointMetrics.FAULT);
+
+        String scrape = EndpointMetrics.scrape();
+        assertTrue(scrape.contains("# TYPE fortress_rest_request_seconds summary\n"));
+        assertTrue(scrape.contains(
+            "fortress_rest_request_seconds{path=\"scrapeTest\",stage=\"total\",quantile=\"0.5\"} 0.002\n"));
+        assertTrue(scrape.contains("fortress_rest_request_seconds_sum{path=\"scrapeTest\",stage=\"total\"} 0.006\n"));
+        assertTrue(scrape.contains("fortress_rest_request_seconds_count{path=\"scrapeTest\",stage=\"total\"} 3\n"));
+        assertTrue(scrape.contains("fortress_rest_request_seconds_count{path=\"scrapeTest\",stage=\"manager\"} 2\n"));
+        // A stage that never ran is left out rather than rendered with empty quantiles
+        assertFalse(scrape.contains("path=\"scrapeTest\",stage=\"secutils\""));
+        assertFalse(scrape.contains("path=\"scrapeTest\",stage=\"marshal\""));
+        assertTrue(scrape.contains("# TYPE fortress_rest_errors_total counter\n"));
+        assertTrue(scrape.contains("fortress_rest_errors_total{path=\"scrapeTest\",code=\"-1\"} 1\n"));
+        assertTrue(scrape.contains("fortress_rest_errors_total{path=\"scrapeTest\",code=\"1001\"} 1\n"));
+        assertFalse(scrape.contains("fortress_rest_errors_total{path=\"scrapeTest\",code=\"0\"}"));
+    }
+
+    @Test
+    public void testEndpointsAreSortedAndShared() {
+        EndpointMetrics.get("scrapeSortB").record(1000, -1, -1, -1, 0);
+        EndpointMetrics.get("scrapeSortA").record(1000, -1, -1, -1, 0);
+        assertSame(EndpointMetrics.get("scrapeSortA"), EndpointMetrics.get("scrapeSortA"));
+
+        String scrape = EndpointMetrics.scrape();
+        assertTrue(scrape.indexOf("path=\"scrapeSortA\"") < scrape.indexOf("path=\"scrapeSortB\""));
+    }
+}
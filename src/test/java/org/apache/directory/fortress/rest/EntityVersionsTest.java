@@ -0,0 +1,84 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.Role;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class EntityVersionsTest {
+    private static FortRequest request(String contextId, String roleName) {
+        FortRequest request = new FortRequest();
+        request.setContextId(contextId);
+        request.setEntity(new Role(roleName));
+        return request;
+    }
+
+    @Test
+    public void testCurrentUntilChanged() {
+        EntityVersions versions = new EntityVersions(true, 60000);
+        String etag = versions.etag("roleRead", request("tenant1", "role1"));
+        assertEquals(etag, versions.etag("roleRead", request("tenant1", "role1")));
+        assertTrue(versions.isCurrent("roleRead", request("tenant1", "role1"), etag));
+        assertTrue(versions.isCurrent("roleRead", request("tenant1", "role1"), "W/" + etag));
+        assertFalse(versions.isCurrent("roleRead", request("tenant1", "role2"), etag));
+        assertFalse(versions.isCurrent("permRead", request("tenant1", "role1"), etag));
+        assertFalse(versions.isCurrent("roleRead?fields=name", request("tenant1", "role1"), etag));
+        assertFalse(versions.isCurrent("roleRead", request("tenant2", "role1"), etag));
+
+        versions.changed("tenant2");
+        assertTrue(versions.isCurrent("roleRead", request("tenant1", "role1"), etag));
+        versions.changed("tenant1");
+        assertFalse(versions.isCurrent("roleRead", request("tenant1", "role1"), etag));
+        assertNotEquals(etag, versions.etag("roleRead", request("tenant1", "role1")));
+    }
+
+    @Test
+    public void testConfigChangeMakesAllStale() {
+        EntityVersions versions = new EntityVersions(true, 60000);
+        String etag = versions.etag("cfgRead", request("tenant1", "role1"));
+        versions.configChanged();
+        assertFalse(versions.isCurrent("cfgRead", request("tenant1", "role1"), etag));
+    }
+
+    @Test
+    public void testExpiredMalformedAndDisabled() {
+        EntityVersions expired = new EntityVersions(true, 0);
+        String etag = expired.etag("roleRead", request("tenant1", "role1"));
+        assertFalse(expired.isCurrent("roleRead", request("tenant1", "role1"), etag));
+
+        EntityVersions versions = new EntityVersions(true, 60000);
+        assertFalse(versions.isCurrent("roleRead", request("tenant1", "role1"), null));
+        assertFalse(versions.isCurrent("roleRead", request("tenant1", "role1"), "\"abc\""));
+        assertFalse(versions.isCurrent("roleRead", request("tenant1", "role1"), "\"x.abc\""));
+
+        EntityVersions disabled = new EntityVersions(false, 60000);
+        assertFalse(disabled.isCurrent("roleRead", request("tenant1", "role1"),
+            disabled.etag("roleRead", request("tenant1", "role1"))));
+    }
+}
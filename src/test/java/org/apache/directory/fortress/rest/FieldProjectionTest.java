@@ -0,0 +1,100 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.model.User;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class FieldProjectionTest {
+    private static final Set<String> FIELDS = new HashSet<>(Arrays.asList("userId", "ou"));
+
+    @Test
+    public void testParse() {
+        assertTrue(FieldProjection.parse(null).isEmpty());
+        assertTrue(FieldProjection.parse("pageSize=10").isEmpty());
+        assertEquals(FIELDS, FieldProjection.parse("pageSize=10&fields=userId%2C%20ou"));
+        assertEquals(FIELDS, FieldProjection.parse("fields=userId&fields=ou,"));
+    }
+
+    @Test
+    public void testOnlyReturnedEntitiesAreProjected() throws Exception {
+        JsonGenerator generator = new JsonFactory().createGenerator(new StringWriter());
+        generator.writeStartObject();
+        generator.writeFieldName("entities");
+        generator.writeStartArray();
+        generator.writeStartObject();
+        assertTrue(FieldProjection.include(generator.getOutputContext(), "userId", FIELDS));
+        assertFalse(FieldProjection.include(generator.getOutputContext(), "address", FIELDS));
+        assertTrue(FieldProjection.include(generator.getOutputContext(), "address", Collections.emptySet()));
+        generator.writeFieldName("roles");
+        generator.writeStartArray();
+        generator.writeStartObject();
+        assertTrue(FieldProjection.include(generator.getOutputContext(), "name", FIELDS));
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeFieldName("session");
+        generator.writeStartObject();
+        assertTrue(FieldProjection.include(generator.getOutputContext(), "user", FIELDS));
+        generator.writeEndObject();
+        generator.writeFieldName("entity");
+        generator.writeStartObject();
+        assertFalse(FieldProjection.include(generator.getOutputContext(), "address", FIELDS));
+    }
+
+    @Test
+    public void testProjectedOnlyWhenFieldsAreRequested() throws Exception {
+        ObjectMapper mapper = new JacksonFieldOnlyMapper();
+        User user = new User("jdoe");
+        user.setOu("dev");
+        user.setDescription("a user");
+        FortResponse response = new FortResponse();
+        response.setEntities(new ArrayList<>(Collections.singletonList(user)));
+
+        String all = FieldProjection.project(mapper.writer(), Collections.emptySet()).writeValueAsString(response);
+        assertEquals(mapper.writeValueAsString(response), all);
+        assertTrue(all, all.contains("a user"));
+
+        String projected = FieldProjection.project(mapper.writer(), FIELDS).writeValueAsString(response);
+        assertTrue(projected, projected.contains("jdoe"));
+        assertTrue(projected, projected.contains("dev"));
+        assertFalse(projected, projected.contains("a user"));
+    }
+}
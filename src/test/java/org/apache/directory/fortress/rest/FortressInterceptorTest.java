@@ -0,0 +1,67 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import jakarta.annotation.security.RolesAllowed;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class FortressInterceptorTest {
+    public interface Service {
+        String find(String name);
+
+        String find(String name, int max);
+    }
+
+    public static class ServiceImpl implements Service {
+        @RolesAllowed({"reader"})
+        @Override
+        public String find(String name) {
+            return name;
+        }
+
+        @RolesAllowed({"reader", "admin"})
+        @Override
+        public String find(String name, int max) {
+            return name;
+        }
+    }
+
+    @Test
+    public void testOverloadedMethodsKeepTheirRoles() throws Exception {
+        FortressInterceptor interceptor = new FortressInterceptor();
+        interceptor.setSecuredObject(new ServiceImpl());
+        assertEquals(Collections.singletonList("reader"),
+            interceptor.getExpectedRoles(ServiceImpl.class.getMethod("find", String.class)));
+        assertEquals(Arrays.asList("reader", "admin"),
+            interceptor.getExpectedRoles(ServiceImpl.class.getMethod("find", String.class, int.class)));
+        // The interface method resolves to the same roles
+        assertEquals(Arrays.asList("reader", "admin"),
+            interceptor.getExpectedRoles(Service.class.getMethod("find", String.class, int.class)));
+    }
+}
@@ -21,11 +21,20 @@ package org.apache.directory.fortress.rest;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directory.fortress.core.model.FortResponse;
 import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
 import org.junit.Test;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 /**
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -41,4 +50,35 @@ public class JsonSerializationTest {
         User read = om.readValue(data, User.class);
         assertNotNull(read);
     }
+
+    @Test
+    public void testBinaryFormats() throws Exception {
+        User u = new User("jdoe");
+        for (JacksonFieldOnlyMapper om : new JacksonFieldOnlyMapper[] {
+                new JacksonFieldOnlyMapper(new SmileFactory()), new JacksonFieldOnlyMapper(new CBORFactory()) }) {
+            byte[] data = om.writeValueAsBytes(u);
+            assertEquals(User.class.getName(), om.readTree(data).get("fqcn").asText());
+            assertEquals("jdoe", om.readValue(data, User.class).getUserId());
+        }
+    }
+
+    @Test
+    public void testTunedMapperWritesTheSameJson() throws Exception {
+        FortResponse response = new FortResponse();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            User user = new User("user" + i);
+            user.setRoles(new ArrayList<>(Collections.singletonList(new UserRole("user" + i, "role" + i))));
+            users.add(user);
+        }
+        response.setEntities(users);
+        JacksonFieldOnlyMapper plain = new JacksonFieldOnlyMapper();
+        TunedJacksonMapper tuned = new TunedJacksonMapper();
+        byte[] expected = plain.writeValueAsBytes(response);
+        byte[] data = tuned.writerFor(FortResponse.class).writeValueAsBytes(response);
+        assertEquals(plain.readTree(expected), tuned.readTree(data));
+        FortResponse read = tuned.readerFor(FortResponse.class).readValue(data);
+        assertEquals("user9", ((User) read.getEntities().get(9)).getUserId());
+        assertTrue(TunedJacksonMapper.modelClasses().size() > 3);
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.directory.fortress.core.rest.HttpIds;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LaneSchedulerTest {
+    @Test
+    public void testClassification() {
+        assertEquals(Lane.RUNTIME, Lane.of(HttpIds.RBAC_AUTHZ));
+        assertEquals(Lane.RUNTIME, Lane.of(HttpIds.RBAC_CREATE));
+        assertEquals(Lane.RUNTIME, Lane.of(HttpIds.ADMIN_AUTHZ));
+        assertEquals(Lane.REVIEW, Lane.of(HttpIds.USER_SEARCH));
+        assertEquals(Lane.REVIEW, Lane.of(RestIds.STREAM + "/{service}"));
+        assertEquals(Lane.AUDIT, Lane.of(HttpIds.AUDIT_BINDS));
+        assertEquals(Lane.ADMIN, Lane.of(HttpIds.USER_ADD));
+        assertEquals(Lane.ADMIN, Lane.of(RestIds.ADMIN_BATCH));
+        assertNull(Lane.of(RestIds.METRICS));
+    }
+
+    @Test
+    public void testShedWhenSaturated() {
+        LaneScheduler scheduler = new LaneScheduler(true, 10);
+        scheduler.limit(Lane.AUDIT, 1, 0);
+        assertTrue(scheduler.admit(Lane.AUDIT));
+        // No queue, the second call is shed at once
+        assertFalse(scheduler.admit(Lane.AUDIT));
+        assertEquals(1, scheduler.getShed(Lane.AUDIT));
+        // The other lanes are not affected
+        assertTrue(scheduler.admit(Lane.RUNTIME));
+        scheduler.release(Lane.AUDIT);
+        assertTrue(scheduler.admit(Lane.AUDIT));
+    }
+
+    @Test
+    public void testQueuedCallTimesOut() {
+        LaneScheduler scheduler = new LaneScheduler(true, 10);
+        scheduler.limit(Lane.REVIEW, 1, 1);
+        assertTrue(scheduler.admit(Lane.REVIEW));
+        assertFalse(scheduler.admit(Lane.REVIEW));
+        assertEquals(1, scheduler.getShed(Lane.REVIEW));
+        assertTrue(scheduler.scrape().contains("fortress_rest_lane_shed_total{lane=\"review\"} 1"));
+    }
+
+    @Test
+    public void testDisabledAdmitsEverything() {
+        LaneScheduler scheduler = new LaneScheduler(false, 10);
+        scheduler.limit(Lane.AUDIT, 1, 0);
+        assertTrue(scheduler.admit(Lane.AUDIT));
+        assertTrue(scheduler.admit(Lane.AUDIT));
+        assertEquals("", scheduler.scrape());
+    }
+}
@@ -0,0 +1,509 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.directory.fortress.core.rest.HttpIds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives the Fortress Rest services with production like load, and reports the throughput and the latency
+ * percentiles of every HttpIds path.  Requests are sent open loop on a pooled asynchronous HTTP client: they leave at
+ * the planned rate whether or not the server keeps up, and a latency is measured from the time its request was
+ * planned to leave, so a stalled server is not hidden by fewer requests being sent.  Calls are either:
+ * <ul>
+ * <li>drawn from a weighted mix of services, each posting an XML fixture of src/test/resources, at a rate following a
+ * ramp profile;</li>
+ * <li>or replayed from a capture of FortRequests, at the pace they were captured.</li>
+ * </ul>
+ * Options are given as name=value arguments, or as load.name system properties:
+ * <ul>
+ * <li>uri: the base URI of the services, default is the local Tomcat EmTest uses;</li>
+ * <li>embedded: true to start and seed an {@link EmbeddedFortress} and drive it instead;</li>
+ * <li>user, password: the HTTP Basic credentials, default demouser4/password;</li>
+ * <li>mix: comma separated path[:fixture]=weight, default rbacAuthZ=90,rbacCreate=5,userUpdate=5;</li>
+ * <li>profile: comma separated duration:rate stages, the rate in requests per second moves linearly from the end
+ * rate of the previous stage, or 0, to the stage's rate, e.g. 30s:500,2m:500,10s:0; default 10s:100,50s:100;</li>
+ * <li>replay: a capture file, each line is offsetMillis TAB path TAB FortRequest, as XML or JSON on one line;</li>
+ * <li>speed: the replay speed, 2 replays twice as fast as captured, 0 as fast as maxInFlight allows; default 1;</li>
+ * <li>maxInFlight: the most requests awaiting a response, beyond that sending waits; default 512;</li>
+ * <li>timeout: the seconds a request may take, default 30.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class LoadGenerator {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadGenerator.class.getName());
+
+    private static final String DEFAULT_URI = "http://localhost:8080/fortress-rest-" + System.getProperty("version") + "/";
+    private static final String DEFAULT_MIX = HttpIds.RBAC_AUTHZ + "=90," + HttpIds.RBAC_CREATE + "=5," + HttpIds.USER_UPDATE + "=5";
+    private static final String DEFAULT_PROFILE = "10s:100,50s:100";
+
+    /** The fixture posted to a path of the mix given without one */
+    private static final Map<String, String> FIXTURES = new HashMap<>();
+
+    static {
+        FIXTURES.put(HttpIds.RBAC_AUTHZ, "emTestCheckAccess.xml");
+        FIXTURES.put(HttpIds.RBAC_CREATE, "createSession.xml");
+        FIXTURES.put(HttpIds.RBAC_AUTHN, "emTestAuthN.xml");
+        FIXTURES.put(HttpIds.USER_UPDATE, "addEmUser1.xml");
+        FIXTURES.put(HttpIds.GROUP_READ, "groupRead.xml");
+        FIXTURES.put(HttpIds.ROLE_READ, "addEmRole1.xml");
+    }
+
+    /** Longer latencies are recorded as this value, in microseconds */
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /** Finds the error code in a FortResponse, whether XML or JSON */
+    private static final Pattern ERROR_CODE = Pattern.compile("errorCode\\W{1,3}(-?\\d+)");
+
+    /** A service call, ready to be sent */
+    static final class Call {
+        final String path;
+        final byte[] body;
+        final String contentType;
+
+        Call(String path, byte[] body) {
+            this.path = path;
+            this.body = body;
+            // A captured request may be JSON, the fixtures are XML
+            this.contentType = body.length > 0 && body[0] == '{' ? "application/json" : "application/xml";
+        }
+    }
+
+    /** The calls of a mix, and their cumulated weights */
+    static final class Mix {
+        private final List<Call> calls = new ArrayList<>();
+        private final List<Integer> bounds = new ArrayList<>();
+        private int total;
+
+        /**
+         * @param spec comma separated path[:fixture]=weight
+         * @return the mix
+         * @throws IOException if a fixture can't be read
+         */
+        static Mix parse(String spec) throws IOException {
+            Mix mix = new Mix();
+            for (String entry : spec.split(",")) {
+                String[] pathWeight = entry.trim().split("=");
+                if (pathWeight.length != 2) {
+                    throw new IllegalArgumentException("LoadGenerator mix entry " + entry + " is not path[:fixture]=weight");
+                }
+                String[] pathFixture = pathWeight[0].split(":");
+                String path = pathFixture[0];
+                String fixture = pathFixture.length > 1 ? pathFixture[1] : FIXTURES.get(path);
+                if (fixture == null) {
+                    throw new IllegalArgumentException("LoadGenerator mix entry " + entry + " needs a fixture");
+                }
+                int weight = Integer.parseInt(pathWeight[1]);
+                if (weight > 0) {
+                    mix.total += weight;
+                    mix.calls.add(new Call(path, EmbeddedFortress.fixture(fixture)));
+                    mix.bounds.add(mix.total);
+                }
+            }
+            if (mix.total == 0) {
+                throw new IllegalArgumentException("LoadGenerator mix " + spec + " has no weight");
+            }
+            return mix;
+        }
+
+        /**
+         * @param draw a number between 0 inclusive and the total weight exclusive
+         * @return the call whose share of the weights holds draw
+         */
+        Call pick(int draw) {
+            int i = 0;
+            while (draw >= bounds.get(i)) {
+                i++;
+            }
+            return calls.get(i);
+        }
+
+        int getTotal() {
+            return total;
+        }
+    }
+
+    /** A ramp profile, the planned rate over time */
+    static final class Profile {
+        private final List<long[]> stages = new ArrayList<>();
+        private long duration;
+
+        /**
+         * @param spec comma separated duration:rate, the duration in ms, s or m
+         * @return the profile
+         */
+        static Profile parse(String spec) {
+            Profile profile = new Profile();
+            for (String stage : spec.split(",")) {
+                String[] durationRate = stage.trim().split(":");
+                if (durationRate.length != 2) {
+                    throw new IllegalArgumentException("LoadGenerator profile stage " + stage + " is not duration:rate");
+                }
+                long millis = millis(durationRate[0]);
+                profile.stages.add(new long[] {millis, Long.parseLong(durationRate[1])});
+                profile.duration += millis;
+            }
+            return profile;
+        }
+
+        private static long millis(String duration) {
+            if (duration.endsWith("ms")) {
+                return Long.parseLong(duration.substring(0, duration.length() - 2));
+            }
+            long value = Long.parseLong(duration.substring(0, duration.length() - 1));
+            switch (duration.charAt(duration.length() - 1)) {
+                case 's':
+                    return TimeUnit.SECONDS.toMillis(value);
+                case 'm':
+                    return TimeUnit.MINUTES.toMillis(value);
+                default:
+                    throw new IllegalArgumentException("LoadGenerator duration " + duration + " is not in ms, s or m");
+            }
+        }
+
+        /**
+         * @param elapsedMillis the time since the start of the run
+         * @return the planned rate, in requests per second, or a negative value once the profile is over
+         */
+        double rateAt(long elapsedMillis) {
+            long start = 0;
+            long from = 0;
+            for (long[] stage : stages) {
+                if (elapsedMillis < start + stage[0]) {
+                    return from + (stage[1] - from) * (double) (elapsedMillis - start) / stage[0];
+                }
+                start += stage[0];
+                from = stage[1];
+            }
+            return -1;
+        }
+
+        long getDuration() {
+            return duration;
+        }
+    }
+
+    /** A captured call and its offset from the start of the capture */
+    static final class Record {
+        final long offsetMillis;
+        final Call call;
+
+        Record(long offsetMillis, Call call) {
+            this.offsetMillis = offsetMillis;
+            this.call = call;
+        }
+
+        /**
+         * @param line offsetMillis TAB path TAB FortRequest
+         * @return the record, or null for a blank or a # comment line
+         */
+        static Record parse(String line) {
+            if (line.isBlank() || line.startsWith("#")) {
+                return null;
+            }
+            String[] fields = line.split("\t", 3);
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("LoadGenerator capture line is not offsetMillis TAB path TAB FortRequest: " + line);
+            }
+            return new Record(Long.parseLong(fields[0].trim()), new Call(fields[1].trim(), fields[2].getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /** What was measured for one path */
+    static final class Stats {
+        final Histogram latency = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+        final LongAdder errors = new LongAdder();
+    }
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final String uri;
+    private final String authorization;
+    private final Duration timeout;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * @param uri the base URI of the services, ending with a slash
+     * @param userId the user of the HTTP Basic authentication
+     * @param password its password
+     * @param maxInFlight the most requests awaiting a response
+     * @param timeout how long a request may take
+     */
+    LoadGenerator(String uri, String userId, String password, int maxInFlight, Duration timeout) {
+        this.uri = uri;
+        this.authorization = EmbeddedFortress.authorization(userId, password);
+        this.timeout = timeout;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "fortress-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The client keeps its HTTP/1.1 connections alive and reuses them, so the load is not a test of TCP setup
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(executor)
+            .connectTimeout(timeout)
+            .build();
+    }
+
+    /**
+     * Send calls drawn from a mix, at the rate of a profile, until the profile is over.
+     *
+     * @param mix the calls and their weights
+     * @param profile the planned rate over time
+     * @throws InterruptedException if interrupted while pacing
+     */
+    void run(Mix mix, Profile profile) throws InterruptedException {
+        LOG.info("LoadGenerator running mix for {} ms against {}", profile.getDuration(), uri);
+        long start = System.nanoTime();
+        long next = start;
+        while (true) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(next - start);
+            double rate = profile.rateAt(elapsedMillis);
+            if (rate < 0) {
+                break;
+            }
+            if (rate < 1) {
+                // Nothing planned yet, look again a little later
+                next += TimeUnit.MILLISECONDS.toNanos(10);
+                sleepUntil(next);
+                continue;
+            }
+            next += (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            sleepUntil(next);
+            send(mix.pick(ThreadLocalRandom.current().nextInt(mix.getTotal())), next);
+        }
+        drain();
+    }
+
+    /**
+     * Send the calls of a capture at the pace they were captured.
+     *
+     * @param records the captured calls, by offset
+     * @param speed how much faster than captured, 0 for as fast as possible
+     * @throws InterruptedException if interrupted while pacing
+     */
+    void replay(List<Record> records, double speed) throws InterruptedException {
+        LOG.info("LoadGenerator replaying {} requests at speed {} against {}", records.size(), speed, uri);
+        long start = System.nanoTime();
+        for (Record record : records) {
+            long planned = System.nanoTime();
+            if (speed > 0) {
+                planned = start + (long) (TimeUnit.MILLISECONDS.toNanos(record.offsetMillis) / speed);
+                sleepUntil(planned);
+            }
+            send(record.call, planned);
+        }
+        drain();
+    }
+
+    private void send(Call call, long planned) throws InterruptedException {
+        inFlight.acquire();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri + call.path))
+            .timeout(timeout)
+            .header("Content-Type", call.contentType)
+            .header("Accept", call.contentType)
+            .header("Authorization", authorization)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(call.body))
+            .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            try {
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - planned);
+                Stats pathStats = stats.computeIfAbsent(call.path, k -> new Stats());
+                pathStats.latency.recordValue(Math.min(Math.max(micros, 0), HIGHEST_MICROS));
+                if (error != null || response.statusCode() >= 400 || errorCode(response.body()) != 0) {
+                    pathStats.errors.increment();
+                }
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Wait until every request sent has its response, or has timed out, then stop the client's threads.
+     */
+    private void drain() throws InterruptedException {
+        if (!inFlight.tryAcquire(maxInFlight, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            LOG.warn("LoadGenerator stopped with {} requests unanswered", maxInFlight - inFlight.availablePermits());
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * @param body a FortResponse as XML or JSON
+     * @return its error code, 0 if none is found
+     */
+    static int errorCode(String body) {
+        if (body == null) {
+            return 0;
+        }
+        Matcher matcher = ERROR_CODE.matcher(body);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    /**
+     * Print one line per path, and one for all of them, with the throughput and latency percentiles in milliseconds.
+     *
+     * @param out where to print
+     * @param elapsedMillis the length of the run
+     */
+    void report(PrintStream out, long elapsedMillis) {
+        double seconds = Math.max(elapsedMillis, 1) / 1000d;
+        Histogram all = new Histogram(HIGHEST_MICROS, 3);
+        long allErrors = 0;
+        out.printf(Locale.ROOT, "%-32s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+            "path", "count", "errors", "req/s", "p50", "p90", "p99", "p99.9", "max");
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+            Histogram latency = entry.getValue().latency.copy();
+            long errors = entry.getValue().errors.sum();
+            all.add(latency);
+            allErrors += errors;
+            line(out, entry.getKey(), latency, errors, seconds);
+        }
+        line(out, "all", all, allErrors, seconds);
+    }
+
+    private static void line(PrintStream out, String path, Histogram latency, long errors, double seconds) {
+        out.printf(Locale.ROOT, "%-32s %10d %8d %10.1f", path, latency.getTotalCount(), errors,
+            latency.getTotalCount() / seconds);
+        for (double percentile : PERCENTILES) {
+            out.printf(Locale.ROOT, " %9.2f", latency.getValueAtPercentile(percentile) / 1000d);
+        }
+        out.printf(Locale.ROOT, " %9.2f%n", latency.getMaxValue() / 1000d);
+    }
+
+    private static void sleepUntil(long nanos) throws InterruptedException {
+        long wait = nanos - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * @param path a capture file
+     * @return its records, by offset
+     * @throws IOException if it can't be read
+     */
+    static List<Record> readCapture(String path) throws IOException {
+        List<Record> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Record record = Record.parse(line);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        records.sort((r1, r2) -> Long.compare(r1.offsetMillis, r2.offsetMillis));
+        return records;
+    }
+
+    /**
+     * Run the load described by the options, then print the report on standard out.
+     *
+     * @param args name=value options, see the class comment
+     * @throws Exception if the load could not be run
+     */
+    public static void main(String[] args) throws Exception {
+        Properties options = new Properties();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("LoadGenerator argument " + arg + " is not name=value");
+            }
+            options.setProperty(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        EmbeddedFortress fortress = null;
+        String uri = option(options, "uri", DEFAULT_URI);
+        if (Boolean.parseBoolean(option(options, "embedded", "false"))) {
+            fortress = new EmbeddedFortress();
+            fortress.start();
+            fortress.seed();
+            uri = fortress.getUri();
+        }
+
+        try {
+            LoadGenerator generator = new LoadGenerator(uri,
+                option(options, "user", EmbeddedFortress.USER_ID),
+                option(options, "password", EmbeddedFortress.PASSWORD),
+                Integer.parseInt(option(options, "maxInFlight", "512")),
+                Duration.ofSeconds(Long.parseLong(option(options, "timeout", "30"))));
+            long start = System.nanoTime();
+            String replay = option(options, "replay", null);
+            if (replay != null) {
+                generator.replay(readCapture(replay), Double.parseDouble(option(options, "speed", "1")));
+            } else {
+                generator.run(Mix.parse(option(options, "mix", DEFAULT_MIX)),
+                    Profile.parse(option(options, "profile", DEFAULT_PROFILE)));
+            }
+            generator.report(System.out, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            if (fortress != null) {
+                fortress.stop();
+            }
+        }
+    }
+
+    private static String option(Properties options, String name, String defaultValue) {
+        return options.getProperty(name, System.getProperty("load." + name, defaultValue));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.apache.directory.fortress.core.rest.HttpIds;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LoadGeneratorTest {
+    @Test
+    public void testMixWeights() throws Exception {
+        LoadGenerator.Mix mix = LoadGenerator.Mix.parse(HttpIds.RBAC_AUTHZ + "=90, " + HttpIds.RBAC_CREATE + "=5,"
+            + HttpIds.ROLE_READ + ":addEmRole3.xml=5," + HttpIds.GROUP_READ + "=0");
+        assertEquals(100, mix.getTotal());
+        assertEquals(HttpIds.RBAC_AUTHZ, mix.pick(0).path);
+        assertEquals(HttpIds.RBAC_AUTHZ, mix.pick(89).path);
+        assertEquals(HttpIds.RBAC_CREATE, mix.pick(90).path);
+        assertEquals(HttpIds.ROLE_READ, mix.pick(99).path);
+        assertEquals("application/xml", mix.pick(99).contentType);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMixNeedsFixture() throws Exception {
+        LoadGenerator.Mix.parse(HttpIds.AUDIT_BINDS + "=1");
+    }
+
+    @Test
+    public void testProfileRamp() {
+        LoadGenerator.Profile profile = LoadGenerator.Profile.parse("10s:100,500ms:100,1m:0");
+        assertEquals(70500, profile.getDuration());
+        assertEquals(0d, profile.rateAt(0), 0.001);
+        assertEquals(50d, profile.rateAt(5000), 0.001);
+        assertEquals(100d, profile.rateAt(10200), 0.001);
+        assertEquals(50d, profile.rateAt(40500), 0.001);
+        assertEquals(-1d, profile.rateAt(70500), 0.001);
+    }
+
+    @Test
+    public void testCaptureRecord() {
+        LoadGenerator.Record record = LoadGenerator.Record.parse("1500\t" + HttpIds.RBAC_AUTHZ + "\t{\"contextId\":\"HOME\"}");
+        assertEquals(1500, record.offsetMillis);
+        assertEquals(HttpIds.RBAC_AUTHZ, record.call.path);
+        assertEquals("application/json", record.call.contentType);
+        assertNull(LoadGenerator.Record.parse("# captured on node1"));
+        assertNull(LoadGenerator.Record.parse(" "));
+    }
+
+    @Test
+    public void testErrorCode() {
+        assertEquals(0, LoadGenerator.errorCode("<FortResponse><errorCode>0</errorCode></FortResponse>"));
+        assertEquals(1035, LoadGenerator.errorCode("<FortResponse><errorCode>1035</errorCode></FortResponse>"));
+        assertEquals(5021, LoadGenerator.errorCode("{\"errorCode\":5021,\"errorMessage\":\"x\"}"));
+        assertEquals(0, LoadGenerator.errorCode(""));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.bus.managers.PhaseManagerImpl;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.jaxrs.model.ClassResourceInfo;
+import org.apache.cxf.jaxrs.model.OperationResourceInfo;
+import org.apache.cxf.jaxrs.model.URITemplate;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageContentsList;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class MetricsInterceptorTest {
+    private static final long SEC_UTILS_NANOS = TimeUnit.MILLISECONDS.toNanos(80);
+
+    private final MetricsInterceptor receive = new MetricsInterceptor(Phase.RECEIVE);
+    private final MetricsInterceptor preInvoke = new MetricsInterceptor(Phase.PRE_INVOKE);
+    private final MetricsInterceptor setup = new MetricsInterceptor(Phase.SETUP);
+    private final MetricsInterceptor postMarshal = new MetricsInterceptor(Phase.POST_MARSHAL);
+
+    /** Stands for the service: it runs for 100ms, 80 of them reported as spent in SecUtils */
+    private static class Service extends AbstractPhaseInterceptor<Message> {
+        Service() {
+            super(Phase.INVOKE);
+        }
+
+        @Override
+        public void handleMessage(Message message) throws Fault {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            MetricsInterceptor.secUtilsTime(SEC_UTILS_NANOS);
+        }
+    }
+
+    /** Runs the in chain of a request to the given path */
+    private Exchange in(String path) throws Exception {
+        PhaseInterceptorChain chain = new PhaseInterceptorChain(new PhaseManagerImpl().getInPhases());
+        chain.add(receive);
+        chain.add(preInvoke);
+        chain.add(new Service());
+        Message message = new MessageImpl();
+        Exchange exchange = new ExchangeImpl();
+        message.setExchange(exchange);
+        exchange.setInMessage(message);
+        message.setInterceptorChain(chain);
+        OperationResourceInfo ori = new OperationResourceInfo(Object.class.getMethod("toString"),
+            new ClassResourceInfo(Object.class));
+        ori.setURITemplate(new URITemplate("/" + path + "/"));
+        exchange.put(OperationResourceInfo.class, ori);
+        chain.doIntercept(message);
+        return exchange;
+    }
+
+    private static Message out(Exchange exchange, int errorCode) {
+        Message message = new MessageImpl();
+        message.setExchange(exchange);
+        exchange.setOutMessage(message);
+        FortResponse response = new FortResponse();
+        response.setErrorCode(errorCode);
+        message.setContent(List.class, new MessageContentsList(response));
+        return message;
+    }
+
+    @Test
+    public void testManagerTimeExcludesSecUtils() throws Exception {
+        Exchange exchange = in("metricsStages");
+        Message message = out(exchange, 0);
+        setup.handleMessage(message);
+        postMarshal.handleMessage(message);
+
+        EndpointMetrics metrics = EndpointMetrics.get("metricsStages");
+        assertEquals(1, metrics.getCount());
+        long secUtils = TimeUnit.NANOSECONDS.toMicros(SEC_UTILS_NANOS);
+        assertEquals(secUtils, metrics.getSecUtilsP99(), secUtils / 100);
+        // The total covers the invocation, which the manager time is the rest of once SecUtils is taken out
+        assertTrue(metrics.getManagerP99() >= TimeUnit.MILLISECONDS.toMicros(15));
+        assertTrue(metrics.getManagerP99() < metrics.getTotalMax() - secUtils + secUtils / 100);
+        assertEquals(0, metrics.getErrors());
+    }
+
+    @Test
+    public void testFaultAndOutChainCountedOnce() throws Exception {
+        Exchange exchange = in("metricsFault");
+        Message fault = new MessageImpl();
+        fault.setExchange(exchange);
+        exchange.setOutFaultMessage(fault);
+        setup.handleMessage(fault);
+        Message message = out(exchange, 0);
+        setup.handleMessage(message);
+        postMarshal.handleMessage(message);
+
+        EndpointMetrics metrics = EndpointMetrics.get("metricsFault");
+        assertEquals(1, metrics.getCount());
+        assertEquals(1, metrics.getErrors());
+        assertEquals("{" + EndpointMetrics.FAULT + "=1}", metrics.getErrorCodes());
+    }
+
+    @Test
+    public void testErrorCodeOfResponseCounted() throws Exception {
+        Exchange exchange = in("metricsError");
+        Message message = out(exchange, 1001);
+        setup.handleMessage(message);
+        postMarshal.handleMessage(message);
+
+        assertEquals("{1001=1}", EndpointMetrics.get("metricsError").getErrorCodes());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class MgrRegistryTest {
+    private final AtomicInteger created = new AtomicInteger();
+
+    /** Every ReviewMgr created records the admin sessions it is given */
+    private final Map<ReviewMgr, List<Session>> admins = Collections.synchronizedMap(new HashMap<>());
+
+    private MgrRegistry registry(boolean enabled, long idleMillis) {
+        Map<Class<?>, MgrRegistry.Factory<?>> factories = new HashMap<>();
+        factories.put(ReviewMgr.class, contextId -> {
+            created.incrementAndGet();
+            List<Session> sessions = Collections.synchronizedList(new ArrayList<>());
+            ReviewMgr mgr = (ReviewMgr) Proxy.newProxyInstance(MgrRegistryTest.class.getClassLoader(),
+                    new Class<?>[] {ReviewMgr.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setAdmin":
+                                sessions.add((Session) args[0]);
+                                return null;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                return null;
+                        }
+                    });
+            admins.put(mgr, sessions);
+            return mgr;
+        });
+        return new MgrRegistry(enabled, idleMillis, factories);
+    }
+
+    private static Session admin(String userId) {
+        Session session = new Session();
+        session.setUser(new User(userId));
+        return session;
+    }
+
+    @Test
+    public void testSharedWithoutAdminSession() throws Exception {
+        MgrRegistry registry = registry(true, 60000);
+        ReviewMgr mgr = registry.getManager(ReviewMgr.class, "tenant1", null);
+        assertSame(mgr, registry.getManager(ReviewMgr.class, "tenant1", null));
+        AtomicReference<ReviewMgr> other = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                other.set(registry.getManager(ReviewMgr.class, "tenant1", null));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertSame(mgr, other.get());
+        assertNotSame(mgr, registry.getManager(ReviewMgr.class, "tenant2", null));
+        // The default tenant, whether the contextId is null or empty
+        assertSame(registry.getManager(ReviewMgr.class, null, null), registry.getManager(ReviewMgr.class, "", null));
+        assertEquals(3, registry.getMisses());
+        assertEquals(3, registry.getHits());
+        assertEquals(3, registry.getTenantCount());
+        assertTrue(admins.get(mgr).isEmpty());
+    }
+
+    @Test
+    public void testBoundToThreadWithAdminSession() throws Exception {
+        MgrRegistry registry = registry(true, 60000);
+        Session first = admin("admin1");
+        Session second = admin("admin2");
+        ReviewMgr mgr = registry.getManager(ReviewMgr.class, "tenant1", first);
+        assertSame(mgr, registry.getManager(ReviewMgr.class, "tenant1", second));
+        // The admin session is applied again on every call, never left over from the previous one
+        assertEquals(2, admins.get(mgr).size());
+        assertSame(first, admins.get(mgr).get(0));
+        assertSame(second, admins.get(mgr).get(1));
+
+        AtomicReference<ReviewMgr> other = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                other.set(registry.getManager(ReviewMgr.class, "tenant1", first));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotSame(mgr, other.get());
+        assertNotSame(mgr, registry.getManager(ReviewMgr.class, "tenant1", null));
+        assertEquals(3, created.get());
+    }
+
+    @Test
+    public void testIdleTenantsAreEvicted() throws Exception {
+        MgrRegistry registry = registry(true, 50);
+        ReviewMgr mgr = registry.getManager(ReviewMgr.class, "tenant1", null);
+        registry.evictIdle(System.currentTimeMillis());
+        assertEquals(1, registry.getTenantCount());
+        Thread.sleep(100);
+        registry.evictIdle(System.currentTimeMillis());
+        assertEquals(0, registry.getTenantCount());
+        assertEquals(1, registry.getEvictions());
+        assertNotSame(mgr, registry.getManager(ReviewMgr.class, "tenant1", null));
+        assertEquals(2, registry.getMisses());
+        assertTrue(registry.scrape().contains("fortress_rest_mgr_evictions_total 1\n"));
+    }
+
+    @Test
+    public void testDisabledCreatesEveryTime() throws Exception {
+        MgrRegistry registry = registry(false, 60000);
+        assertNotSame(registry.getManager(ReviewMgr.class, "tenant1", null),
+                registry.getManager(ReviewMgr.class, "tenant1", null));
+        assertEquals(2, registry.getMisses());
+        assertEquals(0, registry.getHits());
+        assertEquals(0, registry.getTenantCount());
+    }
+}
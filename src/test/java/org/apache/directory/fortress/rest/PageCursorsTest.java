@@ -0,0 +1,149 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.model.User;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PageCursorsTest {
+    @Test
+    public void testPagesThroughResult() {
+        PageCursors cursors = new PageCursors(10, 60000, 100, 1000);
+        AtomicInteger searches = new AtomicInteger();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(new User("user" + i));
+        }
+        FortRequest request = new FortRequest();
+
+        StringBuilder token = new StringBuilder();
+        FortResponse response = cursors.page(request, r -> {
+            searches.incrementAndGet();
+            FortResponse result = new FortResponse();
+            result.setErrorCode(GlobalErrIds.NO_ERROR);
+            result.setEntities(new ArrayList<>(users));
+            return result;
+        }, "admin", "/userSearch/", "2", null, token);
+        assertEquals(2, response.getEntities().size());
+
+        int total = response.getEntities().size();
+        while (token.length() > 0) {
+            String current = token.toString();
+            token.setLength(0);
+            response = cursors.page(request, null, "admin", "/userSearch/", null, current, token);
+            total += response.getEntities().size();
+        }
+        assertEquals(5, total);
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    public void testTokenIsBoundToOwner() {
+        PageCursors cursors = new PageCursors(10, 60000, 100, 1000);
+        FortRequest request = new FortRequest();
+        StringBuilder token = new StringBuilder();
+        cursors.page(request, r -> {
+            FortResponse result = new FortResponse();
+            result.setErrorCode(GlobalErrIds.NO_ERROR);
+            List<User> users = new ArrayList<>();
+            users.add(new User("a"));
+            users.add(new User("b"));
+            result.setEntities(users);
+            return result;
+        }, "admin", "/userSearch/", "1", null, token);
+        FortResponse response = cursors.page(request, null, "other", "/userSearch/", null, token.toString(),
+            new StringBuilder());
+        assertNotEquals(GlobalErrIds.NO_ERROR, response.getErrorCode());
+    }
+
+    private static FortResponse search(PageCursors cursors, int count, String pageSize, StringBuilder token) {
+        return cursors.page(new FortRequest(), r -> {
+            FortResponse result = new FortResponse();
+            result.setErrorCode(GlobalErrIds.NO_ERROR);
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                users.add(new User("user" + i));
+            }
+            result.setEntities(users);
+            return result;
+        }, "admin", "/userSearch/", pageSize, null, token);
+    }
+
+    @Test
+    public void testUsedTokenIsExpired() {
+        PageCursors cursors = new PageCursors(10, 60000, 100, 1000);
+        StringBuilder token = new StringBuilder();
+        search(cursors, 3, "1", token);
+        cursors.page(new FortRequest(), null, "admin", "/userSearch/", null, token.toString(), new StringBuilder());
+        FortResponse response = cursors.page(new FortRequest(), null, "admin", "/userSearch/", null,
+            token.toString(), new StringBuilder());
+        assertEquals(410, response.getHttpStatus());
+        assertTrue(response.getErrorMessage().contains("expired"));
+    }
+
+    @Test
+    public void testEntitiesHeldAreBounded() {
+        PageCursors cursors = new PageCursors(10, 60000, 100, 10);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            StringBuilder token = new StringBuilder();
+            assertEquals(GlobalErrIds.NO_ERROR, search(cursors, 6, "1", token).getErrorCode());
+            tokens.add(token.toString());
+        }
+        int expired = 0;
+        for (String current : tokens) {
+            FortResponse response = cursors.page(new FortRequest(), null, "admin", "/userSearch/", null, current,
+                new StringBuilder());
+            if (response.getHttpStatus() == 410) {
+                expired++;
+            }
+        }
+        assertTrue(expired >= 3);
+        StringBuilder token = new StringBuilder();
+        FortResponse response = search(cursors, 12, "1", token);
+        assertNotEquals(GlobalErrIds.NO_ERROR, response.getErrorCode());
+        assertEquals(400, response.getHttpStatus());
+        assertEquals(0, token.length());
+    }
+
+    @Test
+    public void testInvalidPageSizeIsBadRequest() {
+        PageCursors cursors = new PageCursors(10, 60000, 100, 1000);
+        for (String pageSize : new String[] {"0", "-1", "ten"}) {
+            FortResponse response = search(cursors, 3, pageSize, new StringBuilder());
+            assertEquals(GlobalErrIds.REST_WEB_ERR, response.getErrorCode());
+            assertEquals(400, response.getHttpStatus());
+        }
+    }
+}
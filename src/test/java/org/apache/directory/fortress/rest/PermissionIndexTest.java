@@ -0,0 +1,93 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PermissionIndexTest {
+    private static PermissionIndex.Loader loader(AtomicInteger loads) {
+        return new PermissionIndex.Loader() {
+            @Override
+            public List<Permission> permissions() {
+                loads.incrementAndGet();
+                Permission perm = new Permission("account", "read");
+                perm.setRoles(new HashSet<>(Arrays.asList("teller")));
+                perm.setUsers(new HashSet<>(Arrays.asList("jdoe")));
+                return new ArrayList<>(Collections.singletonList(perm));
+            }
+
+            @Override
+            public List<User> users() {
+                User user = new User("asmith");
+                user.setRoles(new ArrayList<>(Collections.singletonList(new UserRole("asmith", "teller"))));
+                return new ArrayList<>(Collections.singletonList(user));
+            }
+        };
+    }
+
+    @Test
+    public void testLookups() throws Exception {
+        PermissionIndex index = new PermissionIndex(true, 60000);
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals(Arrays.asList("teller"), index.permissionRoles("t1", new Permission("ACCOUNT", "Read"), loader(loads)));
+        assertEquals(Arrays.asList("jdoe"), index.permissionUsers("t1", new Permission("account", "read"), loader(loads)));
+        assertNull(index.permissionRoles("t1", new Permission("account", "write"), loader(loads)));
+        assertEquals(new HashSet<>(Arrays.asList("asmith")), new HashSet<>(index.assignedUsers("t1", Arrays.asList("TELLER"), loader(loads))));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testChangesAppliedInPlace() throws Exception {
+        PermissionIndex index = new PermissionIndex(true, 60000);
+        AtomicInteger loads = new AtomicInteger();
+        Permission write = new Permission("account", "write");
+        index.permissionRoles("t1", write, loader(loads));
+        index.permissionAdded("t1", write);
+        index.granted("t1", write, "manager", null);
+        index.granted("t1", write, null, "bsmith");
+        assertEquals(Arrays.asList("manager"), index.permissionRoles("t1", write, loader(loads)));
+        assertEquals(Arrays.asList("bsmith"), index.permissionUsers("t1", write, loader(loads)));
+        index.revoked("t1", new Permission("account", "read"), "teller", null);
+        assertEquals(Collections.emptyList(), index.permissionRoles("t1", new Permission("account", "read"), loader(loads)));
+        index.userDeassigned("t1", "teller", "asmith");
+        index.userAssigned("t1", "manager", "csmith");
+        assertEquals(Collections.singleton("csmith"), new HashSet<>(index.assignedUsers("t1", Arrays.asList("teller", "manager"), loader(loads))));
+        assertEquals(1, loads.get());
+        index.invalidate("t1");
+        index.permissionRoles("t1", write, loader(loads));
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PermissionSetsTest {
+    private static Session session(String userId, String... roles) {
+        User user = new User(userId);
+        user.setRoles(new ArrayList<>());
+        for (String role : roles) {
+            user.getRoles().add(new UserRole(userId, role));
+        }
+        Session session = new Session();
+        session.setUser(user);
+        return session;
+    }
+
+    /** Grants obj-{role}/read to every role of the session, and counts the loads */
+    private static PermissionSets.Loader loader(AtomicInteger loads) {
+        return session -> {
+            loads.incrementAndGet();
+            List<Permission> perms = new ArrayList<>();
+            for (UserRole role : session.getRoles()) {
+                perms.add(new Permission("obj-" + role.getName(), "read"));
+            }
+            return perms;
+        };
+    }
+
+    @Test
+    public void testCheckLoadsOnce() throws Exception {
+        PermissionSets sets = new PermissionSets(true, 100, 60000);
+        AtomicInteger loads = new AtomicInteger();
+        Session session = session("jdoe", "r1");
+        assertTrue(sets.checkAccess("t1", session, new Permission("OBJ-R1", "Read"), loader(loads)));
+        assertFalse(sets.checkAccess("t1", session, new Permission("obj-r1", "write"), loader(loads)));
+        assertFalse(sets.checkAccess("t1", session, new Permission("obj-r2", "read"), loader(loads)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testRoleAddedIsIncremental() throws Exception {
+        PermissionSets sets = new PermissionSets(true, 100, 60000);
+        AtomicInteger loads = new AtomicInteger();
+        Session session = session("jdoe", "r1");
+        sets.load("t1", session, false, loader(loads));
+        String previous = sets.fingerprint("t1", session, false);
+        session.getUser().getRoles().add(new UserRole("jdoe", "r2"));
+        List<String> loadedRoles = new ArrayList<>();
+        sets.roleAdded("t1", previous, session, "R2", false, s -> {
+            assertEquals("t1", s.getUser().getContextId());
+            for (UserRole role : s.getRoles()) {
+                loadedRoles.add(role.getName());
+            }
+            return loader(loads).load(s);
+        });
+        assertEquals(1, loadedRoles.size());
+        assertEquals("r2", loadedRoles.get(0));
+        assertTrue(sets.checkAccess("t1", session, new Permission("obj-r1", "read"), loader(loads)));
+        assertTrue(sets.checkAccess("t1", session, new Permission("obj-r2", "read"), loader(loads)));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testRoleAddedSkipsGroupSession() throws Exception {
+        PermissionSets sets = new PermissionSets(true, 100, 60000);
+        AtomicInteger loads = new AtomicInteger();
+        Session session = session("jdoe", "r1");
+        sets.load("t1", session, false, loader(loads));
+        // A group session carries no user, its set is left to the next check
+        sets.roleAdded("t1", sets.fingerprint("t1", session, false), new Session(), "r2", false, loader(loads));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        PermissionSets sets = new PermissionSets(true, 100, 60000);
+        AtomicInteger loads = new AtomicInteger();
+        Session session = session("jdoe", "r1");
+        sets.load("t1", session, false, loader(loads));
+        sets.invalidate("t1");
+        sets.checkAccess("t1", session, new Permission("obj-r1", "read"), loader(loads));
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class ReadCoalescerTest {
+    @Test
+    public void testConcurrentDuplicatesShareOneRead() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer(true);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(pool.submit(() -> coalescer.read("tenant1", "roleRead", ReadCoalescer.key("role1"), () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return result;
+                })));
+            }
+            // Let every caller reach the coalescer before the read completes
+            long deadline = System.currentTimeMillis() + 5000;
+            while (coalescer.getCalls() < 8 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            for (Future<Object> future : futures) {
+                assertSame(result, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(8, coalescer.getCalls());
+        assertEquals(7, coalescer.getCoalesced());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    public void testSequentialReadsAreNotShared() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer(true);
+        AtomicInteger loads = new AtomicInteger();
+        coalescer.read("tenant1", "roleRead", ReadCoalescer.key("role1"), loads::incrementAndGet);
+        coalescer.read("tenant1", "roleRead", ReadCoalescer.key("role1"), loads::incrementAndGet);
+        assertEquals(2, loads.get());
+        assertEquals(0, coalescer.getCoalesced());
+    }
+
+    @Test
+    public void testFailureIsThrownAndForgotten() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer(true);
+        try {
+            coalescer.read("tenant1", "roleRead", ReadCoalescer.key("role1"), () -> {
+                throw new SecurityException(GlobalErrIds.ROLE_NOT_FOUND, "not found");
+            });
+            fail();
+        } catch (SecurityException se) {
+            assertEquals(GlobalErrIds.ROLE_NOT_FOUND, se.getErrorId());
+        }
+        assertEquals(0, coalescer.getInFlight());
+        assertEquals("ok", coalescer.read("tenant1", "roleRead", ReadCoalescer.key("role1"), () -> "ok"));
+    }
+
+    private static Session admin(String userId, String... adminRoles) {
+        User user = new User(userId);
+        user.setAdminRoles(new ArrayList<>());
+        for (String adminRole : adminRoles) {
+            user.getAdminRoles().add(new UserAdminRole(userId, adminRole));
+        }
+        Session session = new Session();
+        session.setUser(user);
+        return session;
+    }
+
+    @Test
+    public void testAdminKey() {
+        assertEquals("", ReadCoalescer.admin(null));
+        assertEquals(ReadCoalescer.admin(admin("admin1", "r1", "R2")), ReadCoalescer.admin(admin("admin1", "r2", "r1")));
+        assertNotEquals(ReadCoalescer.admin(admin("admin1", "r1")), ReadCoalescer.admin(admin("admin1", "r1", "r2")));
+        assertNotEquals(ReadCoalescer.admin(admin("admin1", "r1")), ReadCoalescer.admin(admin("admin2", "r1")));
+        assertNotEquals("", ReadCoalescer.admin(admin("admin1")));
+    }
+
+    @Test
+    public void testReadsOfDifferentAdminsAreNotShared() throws Exception {
+        ReadCoalescer coalescer = new ReadCoalescer(true);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (Session session : new Session[] {admin("admin1", "r1"), admin("admin2", "r1")}) {
+                futures.add(pool.submit(() -> coalescer.read("tenant1", session, "roleRead", ReadCoalescer.key("role1"), () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return session.getUserId();
+                })));
+            }
+            // Both reads are in flight at the same time, each runs its own
+            long deadline = System.currentTimeMillis() + 5000;
+            while (coalescer.getInFlight() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, coalescer.getInFlight());
+            release.countDown();
+            assertEquals("admin1", futures.get(0).get(5, TimeUnit.SECONDS));
+            assertEquals("admin2", futures.get(1).get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(2, loads.get());
+        assertEquals(0, coalescer.getCoalesced());
+    }
+}
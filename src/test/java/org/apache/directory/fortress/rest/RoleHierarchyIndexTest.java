@@ -0,0 +1,92 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.fortress.core.model.Role;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class RoleHierarchyIndexTest {
+    private static Role role(String name, String... parents) {
+        Role role = new Role(name);
+        role.setParents(new HashSet<>(Arrays.asList(parents)));
+        return role;
+    }
+
+    /** guest <- user <- admin, user <- auditor */
+    private static RoleHierarchyIndex.Loader loader(AtomicInteger loads) {
+        return () -> {
+            loads.incrementAndGet();
+            List<Role> roles = new ArrayList<>();
+            roles.add(role("guest"));
+            roles.add(role("user", "guest"));
+            roles.add(role("admin", "user"));
+            roles.add(role("auditor", "user"));
+            return roles;
+        };
+    }
+
+    private static TreeSet<String> set(String... names) {
+        TreeSet<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(Arrays.asList(names));
+        return set;
+    }
+
+    @Test
+    public void testClosures() throws Exception {
+        RoleHierarchyIndex index = new RoleHierarchyIndex(true, 60000);
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals(set("admin", "user", "guest"), index.withAscendants("t1", Collections.singletonList("ADMIN"), loader(loads)));
+        assertEquals(set("guest", "user", "admin", "auditor"), index.withDescendants("t1", Collections.singletonList("guest"), loader(loads)));
+        assertEquals(set("auditor", "unknown"), index.withDescendants("t1", Arrays.asList("auditor", "unknown"), loader(loads)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testIncrementalChanges() throws Exception {
+        RoleHierarchyIndex index = new RoleHierarchyIndex(true, 60000);
+        AtomicInteger loads = new AtomicInteger();
+        index.withAscendants("t1", Collections.singletonList("admin"), loader(loads));
+        index.inheritanceAdded("t1", "admin", "root");
+        assertEquals(set("root", "admin", "user", "guest"), index.withAscendants("t1", Collections.singletonList("root"), loader(loads)));
+        assertEquals(set("guest", "user", "admin", "auditor", "root"), index.withDescendants("t1", Collections.singletonList("guest"), loader(loads)));
+        index.inheritanceDeleted("t1", "user", "admin");
+        assertEquals(set("root", "admin"), index.withAscendants("t1", Collections.singletonList("root"), loader(loads)));
+        assertEquals(set("guest", "user", "auditor"), index.withDescendants("t1", Collections.singletonList("guest"), loader(loads)));
+        index.roleAdded("t1", new Role("solo"));
+        assertEquals(set("solo"), index.withAscendants("t1", Collections.singletonList("solo"), loader(loads)));
+        assertEquals(1, loads.get());
+        index.invalidate("t1");
+        index.withAscendants("t1", Collections.singletonList("admin"), loader(loads));
+        assertEquals(2, loads.get());
+    }
+}
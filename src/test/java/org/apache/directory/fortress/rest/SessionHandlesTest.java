@@ -0,0 +1,211 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.model.FortRequest;
+import org.apache.directory.fortress.core.model.FortResponse;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SessionHandlesTest {
+    private static Session session(String userId, String... roles) {
+        User user = new User(userId);
+        user.setRoles(new ArrayList<>());
+        for (String role : roles) {
+            user.getRoles().add(new UserRole(userId, role));
+        }
+        Session session = new Session();
+        session.setUser(user);
+        return session;
+    }
+
+    private static FortRequest request(String contextId) {
+        FortRequest request = new FortRequest();
+        request.setContextId(contextId);
+        return request;
+    }
+
+    private static FortResponse ok(Session session) {
+        FortResponse response = new FortResponse();
+        response.setErrorCode(GlobalErrIds.NO_ERROR);
+        response.setSession(session);
+        return response;
+    }
+
+    @Test
+    public void testIssuesHandles() {
+        SessionHandles handles = new SessionHandles(10, 60000);
+        String handle = handles.create("t1", session("jdoe", "r1"), "admin");
+        assertNotNull(handle);
+        assertTrue(handle.length() >= 20);
+        assertNotEquals(handle, handles.create("t1", session("jdoe", "r1"), "admin"));
+        assertNull(handles.create("t1", null, "admin"));
+        assertNull(new SessionHandles(0, 60000).create("t1", session("jdoe"), "admin"));
+
+        FortResponse response = handles.call(request("t1"), handle, "admin", false, r -> {
+            assertEquals("jdoe", r.getSession().getUserId());
+            return ok(r.getSession());
+        });
+        assertEquals(GlobalErrIds.NO_ERROR, response.getErrorCode());
+        // The stored session is not sent back
+        assertNull(response.getSession());
+    }
+
+    @Test
+    public void testHandleIsBoundToOwnerAndTenant() {
+        SessionHandles handles = new SessionHandles(10, 60000);
+        String handle = handles.create("t1", session("jdoe"), "admin");
+        assertEquals(401, handles.call(request("t1"), handle, "other", false, r -> ok(null)).getHttpStatus());
+        assertEquals(401, handles.call(request("t2"), handle, "admin", false, r -> ok(null)).getHttpStatus());
+        assertEquals(401, handles.call(request("t1"), "unknown", "admin", false, r -> ok(null)).getHttpStatus());
+        handles.remove(handle, "other");
+        assertEquals(GlobalErrIds.NO_ERROR,
+            handles.call(request("t1"), handle, "admin", false, r -> ok(null)).getErrorCode());
+        handles.remove(handle, "admin");
+        assertEquals(GlobalErrIds.USER_SESS_NULL,
+            handles.call(request("t1"), handle, "admin", false, r -> ok(null)).getErrorCode());
+    }
+
+    @Test
+    public void testHandleExpires() throws Exception {
+        SessionHandles handles = new SessionHandles(10, 50);
+        String handle = handles.create("t1", session("jdoe"), "admin");
+        Thread.sleep(100);
+        assertEquals(401, handles.call(request("t1"), handle, "admin", false, r -> ok(null)).getHttpStatus());
+    }
+
+    @Test
+    public void testMutationIsStored() {
+        SessionHandles handles = new SessionHandles(10, 60000);
+        String handle = handles.create("t1", session("jdoe", "r1"), "admin");
+        handles.call(request("t1"), handle, "admin", true, r -> {
+            r.getSession().getUser().getRoles().add(new UserRole("jdoe", "r2"));
+            return ok(r.getSession());
+        });
+        handles.call(request("t1"), handle, "admin", false, r -> {
+            assertEquals(2, r.getSession().getRoles().size());
+            return ok(null);
+        });
+    }
+
+    @Test
+    public void testReadIsNotStored() {
+        SessionHandles handles = new SessionHandles(10, 60000);
+        String handle = handles.create("t1", session("jdoe", "r1"), "admin");
+        FortResponse response = handles.call(request("t1"), handle, "admin", false, r -> {
+            r.getSession().getUser().getRoles().add(new UserRole("jdoe", "r2"));
+            return ok(r.getSession());
+        });
+        assertNull(response.getSession());
+        handles.call(request("t1"), handle, "admin", false, r -> {
+            assertEquals(1, r.getSession().getRoles().size());
+            return ok(null);
+        });
+    }
+
+    @Test
+    public void testCallsOnFullStoreEvictNothing() {
+        SessionHandles handles = new SessionHandles(2, 60000);
+        String first = handles.create("t1", session("jdoe"), "admin");
+        String second = handles.create("t1", session("asmith"), "admin");
+        // Refreshing a stored session replaces its entry, it doesn't make room for a new one
+        for (int i = 0; i < 3; i++) {
+            assertEquals(GlobalErrIds.NO_ERROR,
+                handles.call(request("t1"), first, "admin", i % 2 == 0, r -> ok(r.getSession())).getErrorCode());
+        }
+        assertEquals(GlobalErrIds.NO_ERROR,
+            handles.call(request("t1"), second, "admin", false, r -> ok(null)).getErrorCode());
+        assertEquals(GlobalErrIds.NO_ERROR,
+            handles.call(request("t1"), first, "admin", false, r -> ok(null)).getErrorCode());
+    }
+
+    @Test
+    public void testConcurrentCallsGetTheirOwnCopy() throws Exception {
+        SessionHandles handles = new SessionHandles(10, 60000);
+        String handle = handles.create("t1", session("jdoe", "r1"), "admin");
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // Every reader changes its session while the others hold theirs, as checkAccess may
+            CountDownLatch together = new CountDownLatch(threads);
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String role = "reader" + i;
+                readers.add(executor.submit(() -> {
+                    int[] seen = new int[1];
+                    handles.call(request("t1"), handle, "admin", false, r -> {
+                        r.getSession().getUser().getRoles().add(new UserRole("jdoe", role));
+                        together.countDown();
+                        try {
+                            together.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        seen[0] = r.getSession().getRoles().size();
+                        return ok(null);
+                    });
+                    return seen[0];
+                }));
+            }
+            for (Future<Integer> reader : readers) {
+                assertEquals(2, (int) reader.get(10, TimeUnit.SECONDS));
+            }
+
+            // Writers run one at a time on the stored session, none of their changes is lost
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String role = "writer" + i;
+                writers.add(executor.submit(() -> handles.call(request("t1"), handle, "admin", true, r -> {
+                    r.getSession().getUser().getRoles().add(new UserRole("jdoe", role));
+                    return ok(r.getSession());
+                })));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(10, TimeUnit.SECONDS);
+            }
+            handles.call(request("t1"), handle, "admin", false, r -> {
+                assertEquals(1 + threads, r.getSession().getRoles().size());
+                return ok(null);
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class TenantLimitsTest {
+    @Test
+    public void testBulkheadIsPerTenant() {
+        TenantLimits limits = new TenantLimits(true, 60000, key -> new TenantLimits.Limits(1, 0, 0));
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("tenant1"));
+        assertEquals(TenantLimits.Decision.SATURATED, limits.admit("tenant1"));
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("tenant2"));
+        limits.release("tenant1");
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("tenant1"));
+        assertEquals(1, limits.getRejected("tenant1", TenantLimits.Decision.SATURATED));
+        assertEquals(0, limits.getRejected("tenant2", TenantLimits.Decision.SATURATED));
+    }
+
+    @Test
+    public void testRateLimitAllowsTheBurst() {
+        TenantLimits limits = new TenantLimits(true, 60000, key -> new TenantLimits.Limits(100, 1, 3));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(TenantLimits.Decision.ADMITTED, limits.admit(null));
+        }
+        assertEquals(TenantLimits.Decision.RATE_LIMITED, limits.admit(""));
+        assertEquals(1, limits.getRejected(null, TenantLimits.Decision.RATE_LIMITED));
+        assertTrue(limits.scrape().contains("tenant=\"HOME\",reason=\"rate\"} 1"));
+    }
+
+    @Test
+    public void testPerTenantOverride() {
+        TenantLimits limits = new TenantLimits(true, 60000,
+                key -> new TenantLimits.Limits("big".equals(key) ? 2 : 1, 0, 0));
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("big"));
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("big"));
+        assertEquals(TenantLimits.Decision.SATURATED, limits.admit("big"));
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("small"));
+        assertEquals(TenantLimits.Decision.SATURATED, limits.admit("small"));
+    }
+
+    @Test
+    public void testTenantsDontShareTheDefaultBulkhead() {
+        TenantLimits limits = new TenantLimits(true, 60000,
+                key -> new TenantLimits.Limits("big".equals(key) ? 1 : 2, 0, 0));
+        for (int i = 0; i < 2; i++) {
+            assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("busy"));
+        }
+        assertEquals(TenantLimits.Decision.SATURATED, limits.admit("busy"));
+        // A saturated tenant leaves the others their own calls
+        for (int i = 0; i < 10; i++) {
+            assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("client" + i));
+        }
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("big"));
+        assertEquals(TenantLimits.Decision.SATURATED, limits.admit("big"));
+
+        String scrape = limits.scrape();
+        assertTrue(scrape.contains("tenant=\"busy\",reason=\"concurrency\"} 1"));
+        assertTrue(scrape.contains("tenant=\"client0\",reason=\"concurrency\"} 0"));
+        assertEquals(12, limits.getTenants());
+    }
+
+    @Test
+    public void testIdleTenantsAreEvicted() throws Exception {
+        TenantLimits limits = new TenantLimits(true, 50, key -> new TenantLimits.Limits(1, 0, 0));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("client" + i));
+            limits.release("client" + i);
+        }
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("running"));
+        Thread.sleep(100);
+        limits.evictIdle(System.currentTimeMillis());
+
+        // A tenant with a call running is kept, its permit is released on its own entry
+        assertEquals(1, limits.getTenants());
+        assertFalse(limits.scrape().contains("client"));
+        assertEquals(TenantLimits.Decision.SATURATED, limits.admit("running"));
+        limits.release("running");
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("running"));
+
+        // An evicted tenant comes back with its full limits
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("client0"));
+        assertEquals(TenantLimits.Decision.SATURATED, limits.admit("client0"));
+    }
+
+    @Test
+    public void testDisabled() {
+        TenantLimits limits = new TenantLimits(false, 60000, key -> new TenantLimits.Limits(0, 1, 1));
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("tenant1"));
+        assertEquals(TenantLimits.Decision.ADMITTED, limits.admit("tenant1"));
+        assertEquals("", limits.scrape());
+    }
+}